@@ -1,7 +1,6 @@
 package com.denizenscript.denizen.paper.events;
 
 import com.denizenscript.denizen.events.entity.AreaEnterExitScriptEvent;
-import com.denizenscript.denizen.objects.EntityTag;
 import com.denizenscript.denizen.objects.LocationTag;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.ElementTag;
@@ -37,13 +36,13 @@ public class AreaEnterExitScriptEventPaperImpl extends AreaEnterExitScriptEvent
         @EventHandler
         public void onEntityMove(EntityMoveEvent event) {
             if (event.getEntity().isValid()) {
-                processNewPosition(new EntityTag(event.getEntity()), event.getTo(), event);
+                processNewPosition(event.getEntity(), event.getTo(), event);
             }
         }
 
         @EventHandler
         public void onEntityDeath(EntityDeathEvent event) {
-            processNewPosition(new EntityTag(event.getEntity()), null, event);
+            processNewPosition(event.getEntity(), null, event);
         }
     }
 }
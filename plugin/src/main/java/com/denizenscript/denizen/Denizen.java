@@ -492,6 +492,7 @@ public class Denizen extends JavaPlugin {
         HandlerList.unregisterAll(this);
         saveSaves(true);
         worldFlags.shutdown();
+        Utilities.shutdownWorkerPool();
     }
 
     @Override
@@ -13,7 +13,6 @@ import com.denizenscript.denizen.utilities.implementation.BukkitScriptEntryData;
 import com.denizenscript.denizen.utilities.inventory.SlotHelper;
 import com.denizenscript.denizencore.events.ScriptEvent;
 import com.denizenscript.denizencore.flags.AbstractFlagTracker;
-import com.denizenscript.denizencore.flags.FlaggableObject;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.JavaReflectedObjectTag;
 import com.denizenscript.denizencore.objects.notable.Notable;
@@ -552,6 +551,7 @@ public abstract class BukkitScriptEvent extends ScriptEvent {
             }.runTask(Denizen.getInstance());
             return altEvent;
         }
+        fireCount++;
         return super.fire();
     }
 
@@ -675,10 +675,30 @@ public abstract class BukkitScriptEvent extends ScriptEvent {
         public boolean bool;
     }
 
-    public boolean runInCheck(ScriptPath path, Location location, String innote) {
-        if (!runLocationFlaggedCheck(path, "location_flagged", location)) {
-            return false;
+    /** Incremented every time any event fires, so that per-fire results (like 'in' checks) can be reused between the paths of a single fire. */
+    public static long fireCount = 0;
+
+    public static WeakHashMap<ScriptPath, HashMap<String, InAreaCheck>> compiledInChecks = new WeakHashMap<>();
+
+    private static long inCheckMemoFire = -1;
+
+    private static long inCheckMemoAreaChanges = -1;
+
+    private static Location inCheckMemoLocation;
+
+    private static final HashMap<String, Boolean> inCheckMemo = new HashMap<>();
+
+    public InAreaCheck getInCheck(ScriptPath path, String innote) {
+        HashMap<String, InAreaCheck> pathChecks = compiledInChecks.computeIfAbsent(path, (p) -> new HashMap<>());
+        InAreaCheck check = pathChecks.get(innote);
+        if (check == null || !check.isCurrent()) {
+            check = compileInCheck(path, innote);
+            pathChecks.put(innote, check);
         }
+        return check;
+    }
+
+    public InAreaCheck compileInCheck(ScriptPath path, String innote) {
         String inputText = path.switches.get(innote);
         if (inputText == null) {
             int index;
@@ -689,130 +709,53 @@ public abstract class BukkitScriptEvent extends ScriptEvent {
             }
             if (index >= path.eventArgsLower.length) {
                 // No 'in ...' specified
-                return true;
-            }
-            if (location == null) {
-                return false;
+                return InAreaCheck.NONE;
             }
             Deprecations.inAreaSwitchFormat.warn();
             inputText = path.eventArgLowerAt(index + 1);
             if (inputText.equals("notable") || inputText.equals("noted")) {
                 String subit = path.eventArgLowerAt(index + 2);
-                if (subit.equals("cuboid")) {
-                    BoolHolder bool = new BoolHolder();
-                    NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof CuboidTag) { bool.bool = true; } });
-                    return bool.bool;
-                }
-                else if (subit.equals("ellipsoid")) {
-                    BoolHolder bool = new BoolHolder();
-                    NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof EllipsoidTag) { bool.bool = true; } });
-                    return bool.bool;
+                if (subit.equals("cuboid") || subit.equals("ellipsoid")) {
+                    inputText = subit;
                 }
                 else {
-                    Debug.echoError("Invalid event 'IN ...' check [" + getName() + "] ('in notable ???'): '" + path.event + "' for " + path.container.getName());
-                    return false;
+                    return new InAreaCheck(inputText, false, true, InAreaCheck.error(path.context, "Invalid event 'IN ...' check [" + getName() + "] ('in notable ???'): '" + path.event + "' for " + path.container.getName()));
                 }
             }
         }
-        if (location == null) {
-            return false;
-        }
-        if (inputText.startsWith("!")) {
-            return !inCheckInternal(path.context, getName(), location, inputText.substring(1), path.event, path.container.getName());
-        }
-        return inCheckInternal(path.context, getName(), location, inputText, path.event, path.container.getName());
+        return InAreaCheck.compile(path.context, getName(), inputText, path.event, path.container.getName());
     }
 
-    public static boolean inCheckInternal(TagContext context, String name, Location location, String inputText, String evtLine, String containerName) {
-        String lower = CoreUtilities.toLowerCase(inputText);
-        if (lower.contains(":")) {
-            if (lower.startsWith("world_flagged:")) {
-                return coreFlaggedCheck(inputText.substring("world_flagged:".length()), new WorldTag(location.getWorld()).getFlagTracker());
-            }
-            else if (lower.startsWith("chunk_flagged:")) {
-                return coreFlaggedCheck(inputText.substring("chunk_flagged:".length()), new ChunkTag(location).getFlagTracker());
-            }
-            else if (lower.startsWith("area_flagged:")) {
-                String flagName = inputText.substring("area_flagged:".length());
-                BoolHolder bool = new BoolHolder();
-                NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> {
-                    if (a instanceof FlaggableObject && coreFlaggedCheck(flagName, ((FlaggableObject) a).getFlagTracker())) {
-                        bool.bool = true;
-                    }
-                });
-                return bool.bool;
-            }
-            else if (lower.startsWith("biome:")) {
-                String biome = inputText.substring("biome:".length());
-                return runGenericCheck(biome, Utilities.namespacedKeyToString(new LocationTag(location).getBiome().getKey()));
-            }
-        }
-        if (lower.equals("cuboid")) {
-            BoolHolder bool = new BoolHolder();
-            NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof CuboidTag) { bool.bool = true; } });
-            return bool.bool;
-        }
-        else if (lower.equals("ellipsoid")) {
-            BoolHolder bool = new BoolHolder();
-            NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof EllipsoidTag) { bool.bool = true; } });
-            return bool.bool;
-        }
-        else if (lower.equals("polygon")) {
-            BoolHolder bool = new BoolHolder();
-            NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (a instanceof PolygonTag) { bool.bool = true; } });
-            return bool.bool;
-        }
-        else if (WorldTag.matches(inputText)) {
-            return CoreUtilities.equalsIgnoreCase(location.getWorld().getName(), lower);
+    public boolean runInCheck(ScriptPath path, Location location, String innote) {
+        if (!runLocationFlaggedCheck(path, "location_flagged", location)) {
+            return false;
         }
-        else if (CuboidTag.matches(inputText)) {
-            CuboidTag cuboid = CuboidTag.valueOf(inputText, context);
-            if (cuboid == null || !cuboid.isUnique()) {
-                if (context.showErrors()) {
-                    Debug.echoError("Invalid event 'in:<area>' switch [" + name + "] (invalid cuboid): '" + evtLine + "' for " + containerName);
-                }
-                return false;
-            }
-            return cuboid.isInsideCuboid(location);
+        InAreaCheck check = getInCheck(path, innote);
+        if (check == InAreaCheck.NONE) {
+            return true;
         }
-        else if (EllipsoidTag.matches(inputText)) {
-            EllipsoidTag ellipsoid = EllipsoidTag.valueOf(inputText, context);
-            if (ellipsoid == null || !ellipsoid.isUnique()) {
-                if (context.showErrors()) {
-                    Debug.echoError("Invalid event 'in:<area>' switch [" + name + "] (invalid ellipsoid): '" + evtLine + "' for " + containerName);
-                }
-                return false;
-            }
-            return ellipsoid.contains(location);
+        if (location == null) {
+            return false;
         }
-        else if (PolygonTag.matches(inputText)) {
-            PolygonTag polygon = PolygonTag.valueOf(inputText, context);
-            if (polygon == null || !polygon.isUnique()) {
-                if (context.showErrors()) {
-                    Debug.echoError("Invalid event 'in:<area>' switch [" + name + "] (invalid polygon): '" + evtLine + "' for " + containerName);
-                }
-                return false;
-            }
-            return polygon.doesContainLocation(location);
+        if (!check.memoizable) {
+            return check.test(location);
         }
-        else if (isAdvancedMatchable(lower)) {
-            MatchHelper matcher = createMatcher(lower);
-            BoolHolder bool = new BoolHolder();
-            NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), (a) -> { if (matcher.doesMatch(a.getNoteName())) { bool.bool = true; } });
-            if (bool.bool) {
-                return true;
-            }
-            if (matcher.doesMatch(CoreUtilities.toLowerCase(location.getWorld().getName()))) {
-                return true;
-            }
-            return false;
+        if (inCheckMemoFire != fireCount || inCheckMemoLocation != location || inCheckMemoAreaChanges != NotedAreaTracker.changeCount) {
+            inCheckMemo.clear();
+            inCheckMemoFire = fireCount;
+            inCheckMemoLocation = location;
+            inCheckMemoAreaChanges = NotedAreaTracker.changeCount;
         }
-        else {
-            if (context.showErrors()) {
-                Debug.echoError("Invalid event 'in:<area>' switch [" + name + "] ('in:???') (did you make a typo, or forget to 'note' an object with that name?): '" + evtLine + "' for " + containerName);
-            }
-            return false;
+        Boolean result = inCheckMemo.get(check.inputText);
+        if (result == null) {
+            result = check.test(location);
+            inCheckMemo.put(check.inputText, result);
         }
+        return result;
+    }
+
+    public static boolean inCheckInternal(TagContext context, String name, Location location, String inputText, String evtLine, String containerName) {
+        return InAreaCheck.compile(context, name, inputText, evtLine, containerName).test(location);
     }
 
     public static boolean trySlot(ScriptPath path, String switchName, Entity entity, int slot) {
@@ -0,0 +1,166 @@
+package com.denizenscript.denizen.events;
+
+import com.denizenscript.denizen.objects.*;
+import com.denizenscript.denizen.utilities.NotedAreaTracker;
+import com.denizenscript.denizen.utilities.Utilities;
+import com.denizenscript.denizen.utilities.world.WorldListChangeTracker;
+import com.denizenscript.denizencore.events.ScriptEvent;
+import com.denizenscript.denizencore.flags.FlaggableObject;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import org.bukkit.Location;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A precompiled 'in:<area>' check (see {@link BukkitScriptEvent#runInCheck}), so that the area text is only parsed once rather than every time an event fires.
+ * Parsing can depend on which areas are noted and which worlds are loaded, so a check must be recompiled when {@link #isCurrent()} returns false.
+ */
+public class InAreaCheck {
+
+    /**
+     * Tests whether any noted area containing a location matches a filter, reusing a single consumer rather than allocating one per query.
+     */
+    public static class AreaQuery implements Predicate<Location> {
+
+        public final Predicate<AreaContainmentObject> filter;
+
+        private boolean found;
+
+        private final Consumer<AreaContainmentObject> consumer;
+
+        public AreaQuery(Predicate<AreaContainmentObject> filter) {
+            this.filter = filter;
+            consumer = (area) -> {
+                if (!found && filter.test(area)) {
+                    found = true;
+                }
+            };
+        }
+
+        @Override
+        public boolean test(Location location) {
+            found = false;
+            NotedAreaTracker.forEachAreaThatContains(new LocationTag(location), consumer);
+            return found;
+        }
+    }
+
+    /** Used for paths that don't have any 'in' check. */
+    public static final InAreaCheck NONE = new InAreaCheck("", false, true, (location) -> true);
+
+    public final String inputText;
+
+    public final boolean negate;
+
+    /** False if the result depends on more than the location (like flags), and so can't be reused between paths within a single event fire. */
+    public final boolean memoizable;
+
+    public final Predicate<Location> predicate;
+
+    public final long areaChangeCount = NotedAreaTracker.changeCount;
+
+    public final int worldChangeCount = WorldListChangeTracker.changes;
+
+    public InAreaCheck(String inputText, boolean negate, boolean memoizable, Predicate<Location> predicate) {
+        this.inputText = inputText;
+        this.negate = negate;
+        this.memoizable = memoizable;
+        this.predicate = predicate;
+    }
+
+    public boolean isCurrent() {
+        return this == NONE || (areaChangeCount == NotedAreaTracker.changeCount && worldChangeCount == WorldListChangeTracker.changes);
+    }
+
+    public boolean test(Location location) {
+        return predicate.test(location) != negate;
+    }
+
+    public static Predicate<Location> error(TagContext context, String message) {
+        return (location) -> {
+            if (context.showErrors()) {
+                Debug.echoError(message);
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Compiles area text (optionally with a '!' prefix to negate it) into a check.
+     */
+    public static InAreaCheck compile(TagContext context, String name, String inputText, String evtLine, String containerName) {
+        boolean negate = inputText.startsWith("!");
+        String text = negate ? inputText.substring(1) : inputText;
+        String lower = CoreUtilities.toLowerCase(text);
+        if (lower.contains(":")) {
+            if (lower.startsWith("world_flagged:")) {
+                String flagName = text.substring("world_flagged:".length());
+                return new InAreaCheck(inputText, negate, false, (location) -> ScriptEvent.coreFlaggedCheck(flagName, new WorldTag(location.getWorld()).getFlagTracker()));
+            }
+            else if (lower.startsWith("chunk_flagged:")) {
+                String flagName = text.substring("chunk_flagged:".length());
+                return new InAreaCheck(inputText, negate, false, (location) -> ScriptEvent.coreFlaggedCheck(flagName, new ChunkTag(location).getFlagTracker()));
+            }
+            else if (lower.startsWith("area_flagged:")) {
+                String flagName = text.substring("area_flagged:".length());
+                return new InAreaCheck(inputText, negate, false, new AreaQuery((area) -> area instanceof FlaggableObject && ScriptEvent.coreFlaggedCheck(flagName, ((FlaggableObject) area).getFlagTracker())));
+            }
+            else if (lower.startsWith("biome:")) {
+                String biome = text.substring("biome:".length());
+                return new InAreaCheck(inputText, negate, false, (location) -> ScriptEvent.runGenericCheck(biome, Utilities.namespacedKeyToString(new LocationTag(location).getBiome().getKey())));
+            }
+        }
+        Predicate<Location> predicate;
+        if (lower.equals("cuboid")) {
+            predicate = new AreaQuery((area) -> area instanceof CuboidTag);
+        }
+        else if (lower.equals("ellipsoid")) {
+            predicate = new AreaQuery((area) -> area instanceof EllipsoidTag);
+        }
+        else if (lower.equals("polygon")) {
+            predicate = new AreaQuery((area) -> area instanceof PolygonTag);
+        }
+        else if (WorldTag.matches(text)) {
+            predicate = (location) -> CoreUtilities.equalsIgnoreCase(location.getWorld().getName(), lower);
+        }
+        else if (CuboidTag.matches(text)) {
+            CuboidTag cuboid = CuboidTag.valueOf(text, context);
+            if (cuboid == null || !cuboid.isUnique()) {
+                predicate = error(context, "Invalid event 'in:<area>' switch [" + name + "] (invalid cuboid): '" + evtLine + "' for " + containerName);
+            }
+            else {
+                predicate = cuboid::isInsideCuboid;
+            }
+        }
+        else if (EllipsoidTag.matches(text)) {
+            EllipsoidTag ellipsoid = EllipsoidTag.valueOf(text, context);
+            if (ellipsoid == null || !ellipsoid.isUnique()) {
+                predicate = error(context, "Invalid event 'in:<area>' switch [" + name + "] (invalid ellipsoid): '" + evtLine + "' for " + containerName);
+            }
+            else {
+                predicate = ellipsoid::contains;
+            }
+        }
+        else if (PolygonTag.matches(text)) {
+            PolygonTag polygon = PolygonTag.valueOf(text, context);
+            if (polygon == null || !polygon.isUnique()) {
+                predicate = error(context, "Invalid event 'in:<area>' switch [" + name + "] (invalid polygon): '" + evtLine + "' for " + containerName);
+            }
+            else {
+                predicate = polygon::doesContainLocation;
+            }
+        }
+        else if (ScriptEvent.isAdvancedMatchable(lower)) {
+            ScriptEvent.MatchHelper matcher = ScriptEvent.createMatcher(lower);
+            AreaQuery noteQuery = new AreaQuery((area) -> matcher.doesMatch(area.getNoteName()));
+            predicate = (location) -> noteQuery.test(location) || matcher.doesMatch(CoreUtilities.toLowerCase(location.getWorld().getName()));
+        }
+        else {
+            predicate = error(context, "Invalid event 'in:<area>' switch [" + name + "] ('in:???') (did you make a typo, or forget to 'note' an object with that name?): '" + evtLine + "' for " + containerName);
+        }
+        return new InAreaCheck(inputText, negate, true, predicate);
+    }
+}
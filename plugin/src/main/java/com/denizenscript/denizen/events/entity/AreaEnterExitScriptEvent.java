@@ -14,6 +14,7 @@ import com.denizenscript.denizencore.objects.notable.NoteManager;
 import com.denizenscript.denizencore.scripts.ScriptEntryData;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.event.Event;
 import org.bukkit.event.EventHandler;
@@ -225,7 +226,53 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
         return false;
     }
 
-    public void processSingle(AreaContainmentObject obj, EntityTag entity, HashSet<AreaContainmentObject> inAreas, Location pos, Event eventCause) {
+    /**
+     * Tracks the areas that might contain any location within a single chunk column.
+     * Moves within the same chunk reuse the candidate list rather than querying the area tracker.
+     * Only players get a cached cell (removed when they quit). Other entities get a fresh uncached cell of just the areas containing their position,
+     * so nothing is kept for entities that are removed or unloaded.
+     */
+    public static class CachedCell {
+
+        public String worldName;
+
+        public int chunkX, chunkZ;
+
+        public long changeCount = -1;
+
+        public final LinkedHashSet<AreaContainmentObject> areas = new LinkedHashSet<>();
+    }
+
+    public static HashMap<UUID, CachedCell> cachedCells = new HashMap<>();
+
+    public static CachedCell getCellFor(Entity entity, Location pos) {
+        if (!EntityTag.isPlayer(entity)) {
+            CachedCell cell = new CachedCell();
+            NotedAreaTracker.forEachAreaThatContains(new LocationTag(pos), cell.areas::add);
+            return cell;
+        }
+        World world = pos.getWorld();
+        int chunkX = pos.getBlockX() >> 4, chunkZ = pos.getBlockZ() >> 4;
+        CachedCell cell = cachedCells.get(entity.getUniqueId());
+        if (cell == null) {
+            cell = new CachedCell();
+            cachedCells.put(entity.getUniqueId(), cell);
+        }
+        if (cell.changeCount == NotedAreaTracker.changeCount && cell.chunkX == chunkX && cell.chunkZ == chunkZ && cell.worldName.equals(world.getName())) {
+            return cell;
+        }
+        cell.worldName = world.getName();
+        cell.chunkX = chunkX;
+        cell.chunkZ = chunkZ;
+        cell.changeCount = NotedAreaTracker.changeCount;
+        cell.areas.clear();
+        NotedAreaTracker.forEachAreaThatIntersects(new LocationTag(world, chunkX << 4, world.getMinHeight(), chunkZ << 4),
+                new LocationTag(world, (chunkX << 4) + 15, world.getMaxHeight(), (chunkZ << 4) + 15), cell.areas::add);
+        return cell;
+    }
+
+    public void processSingle(AreaContainmentObject obj, Entity entity, Location pos, Event eventCause) {
+        HashSet<AreaContainmentObject> inAreas = entitiesInArea.get(entity.getUniqueId());
         boolean containedNow = pos != null && obj.doesContainLocation(pos);
         boolean wasContained = inAreas != null && inAreas.contains(obj);
         if (containedNow == wasContained) {
@@ -233,7 +280,7 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
         }
         if (inAreas == null) {
             inAreas = new HashSet<>();
-            entitiesInArea.put(entity.getUUID(), inAreas);
+            entitiesInArea.put(entity.getUniqueId(), inAreas);
         }
         if (containedNow) {
             inAreas.add(obj);
@@ -241,39 +288,61 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
         else {
             inAreas.remove(obj);
         }
-        currentEntity = entity;
+        currentEntity = new EntityTag(entity);
         isEntering = containedNow;
         area = obj;
         to = pos;
         fire(eventCause);
     }
 
-    private final static List<AreaContainmentObject> reusableClearList = new ArrayList<>();
-
-    public void processNewPosition(EntityTag entity, Location pos, Event eventCause) {
-        if (onlyTrackPlayers && !entity.isPlayer()) {
+    public void processNewPosition(Entity entity, Location pos, Event eventCause) {
+        if (onlyTrackPlayers && !EntityTag.isPlayer(entity)) {
             return;
         }
-        HashSet<AreaContainmentObject> inAreas = entitiesInArea.get(entity.getUUID());
+        UUID id = entity.getUniqueId();
+        HashSet<AreaContainmentObject> inAreas = entitiesInArea.get(id);
         if (doTrackAll || matchers != null || flagTracked != null) {
+            // Changes are collected first and fired after, as scripts can alter the area sets (or move the entity again) while handling the event
+            ArrayList<AreaContainmentObject> changed = null;
+            CachedCell cell = null;
             if (pos != null) {
-                NotedAreaTracker.forEachAreaThatContains(new LocationTag(pos), (a) -> {
-                    if (a instanceof FlaggableObject && anyMatch(a.getNoteName(), (FlaggableObject) a)) {
-                        processSingle(a, entity, inAreas, pos, eventCause);
+                cell = getCellFor(entity, pos);
+                for (AreaContainmentObject candidate : cell.areas) {
+                    if ((inAreas == null || !inAreas.contains(candidate)) && candidate.doesContainLocation(pos)
+                            && candidate instanceof FlaggableObject flaggable && anyMatch(candidate.getNoteName(), flaggable)) {
+                        if (changed == null) {
+                            changed = new ArrayList<>();
+                        }
+                        changed.add(candidate);
                     }
-                });
+                }
+            }
+            else {
+                cachedCells.remove(id);
             }
             if (inAreas != null) {
-                reusableClearList.addAll(inAreas);
-                for (AreaContainmentObject area : reusableClearList) {
+                for (AreaContainmentObject area : inAreas) {
+                    // An area that isn't a candidate for the current chunk can't contain the entity, so only areas still nearby need a real check
+                    if (area.getNoteName() == null || cell == null || !cell.areas.contains(area) || !area.doesContainLocation(pos)) {
+                        if (changed == null) {
+                            changed = new ArrayList<>();
+                        }
+                        changed.add(area);
+                    }
+                }
+            }
+            if (changed != null) {
+                for (AreaContainmentObject area : changed) {
                     if (area.getNoteName() == null) {
-                        inAreas.remove(area);
+                        HashSet<AreaContainmentObject> current = entitiesInArea.get(id);
+                        if (current != null) {
+                            current.remove(area);
+                        }
                     }
                     else {
-                        processSingle(area, entity, inAreas, pos, eventCause);
+                        processSingle(area, entity, pos, eventCause);
                     }
                 }
-                reusableClearList.clear();
             }
         }
         else {
@@ -283,11 +352,12 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
                     Debug.echoError("Invalid area enter/exit event area '" + name + "'");
                     continue;
                 }
-                processSingle((AreaContainmentObject) obj, entity, inAreas, pos, eventCause);
+                processSingle((AreaContainmentObject) obj, entity, pos, eventCause);
             }
         }
+        inAreas = entitiesInArea.get(id);
         if (inAreas != null && inAreas.isEmpty()) {
-            entitiesInArea.remove(entity.getUUID());
+            entitiesInArea.remove(id);
         }
     }
 
@@ -295,13 +365,14 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
 
         @EventHandler
         public void onQuit(PlayerQuitEvent event) {
-            processNewPosition(new EntityTag(event.getPlayer()), null, event);
+            processNewPosition(event.getPlayer(), null, event);
             entitiesInArea.remove(event.getPlayer().getUniqueId());
+            cachedCells.remove(event.getPlayer().getUniqueId());
         }
 
         @EventHandler
         public void onJoin(PlayerJoinEvent event) {
-            processNewPosition(new EntityTag(event.getPlayer()), event.getPlayer().getLocation(), event);
+            processNewPosition(event.getPlayer(), event.getPlayer().getLocation(), event);
         }
 
         @EventHandler
@@ -309,24 +380,24 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
             if (LocationTag.isSameBlock(event.getFrom(), event.getTo())) {
                 return;
             }
-            processNewPosition(new EntityTag(event.getPlayer()), event.getTo(), event);
+            processNewPosition(event.getPlayer(), event.getTo(), event);
         }
 
         @EventHandler
         public void onTeleport(PlayerTeleportEvent event) {
-            processNewPosition(new EntityTag(event.getPlayer()), event.getTo(), event);
+            processNewPosition(event.getPlayer(), event.getTo(), event);
         }
 
         @EventHandler
         public void onTeleport(EntityTeleportEvent event) {
             if (!onlyTrackPlayers) {
-                processNewPosition(new EntityTag(event.getEntity()), event.getTo(), event);
+                processNewPosition(event.getEntity(), event.getTo(), event);
             }
         }
 
         @EventHandler
         public void onWorldChange(PlayerChangedWorldEvent event) {
-            processNewPosition(new EntityTag(event.getPlayer()), event.getPlayer().getLocation(), event);
+            processNewPosition(event.getPlayer(), event.getPlayer().getLocation(), event);
         }
 
         @EventHandler
@@ -335,11 +406,11 @@ public class AreaEnterExitScriptEvent extends BukkitScriptEvent implements Liste
                 return;
             }
             if (!onlyTrackPlayers) {
-                processNewPosition(new EntityTag(event.getVehicle()), event.getTo(), event);
+                processNewPosition(event.getVehicle(), event.getTo(), event);
             }
             for (Entity entity : event.getVehicle().getPassengers()) {
                 if (!onlyTrackPlayers || EntityTag.isPlayer(entity)) {
-                    processNewPosition(new EntityTag(entity), event.getTo(), event);
+                    processNewPosition(entity, event.getTo(), event);
                 }
             }
         }
@@ -136,6 +136,11 @@ public abstract class NMSHandler {
 
     public abstract String containerGetString(PersistentDataContainer container, String key);
 
+    /**
+     * Returns the raw NBT tag object stored under a key, or null if none. The returned object is replaced whenever the key's value changes, so it is usable as a version stamp.
+     */
+    public abstract Object containerGetRaw(PersistentDataContainer container, String key);
+
     public UUID getBossbarUUID(BossBar bar) {
         return null;
     }
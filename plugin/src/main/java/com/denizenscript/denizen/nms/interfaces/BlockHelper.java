@@ -3,6 +3,8 @@ package com.denizenscript.denizen.nms.interfaces;
 import com.denizenscript.denizen.nms.util.PlayerProfile;
 import com.denizenscript.denizen.nms.util.jnbt.CompoundTag;
 import com.denizenscript.denizen.objects.EntityTag;
+import it.unimi.dsi.fastutil.longs.LongList;
+import org.bukkit.Chunk;
 import org.bukkit.Color;
 import org.bukkit.Instrument;
 import org.bukkit.Location;
@@ -95,4 +97,22 @@ public interface BlockHelper {
     default void setVanillaTags(Material material, Set<String> tags) {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Writes block states directly into one section of a loaded chunk, with no physics, neighbor updates, lighting or client updates.
+     * Positions are packed within the section as (y << 8) | (z << 4) | x.
+     * Entries that were handled are set to null, any left over (such as blocks involving block entities) must be placed normally by the caller.
+     * Changed positions are added to 'changedPositions' in an internal format, to be passed to {@link #finishDirectWrites} once the chunk is done.
+     * Returns false if direct writes aren't supported on this server version, in which case nothing was written.
+     */
+    default boolean setBlocksDirect(Chunk chunk, int sectionY, short[] positions, BlockData[] states, int count, LongList changedPositions) {
+        return false;
+    }
+
+    /**
+     * Updates heightmaps and queues lighting updates for a chunk after {@link #setBlocksDirect}.
+     * Does not resend the chunk to players, instead 'afterLighting' is run on the main thread once the lighting updates are done.
+     */
+    default void finishDirectWrites(Chunk chunk, LongList changedPositions, Runnable afterLighting) {
+    }
 }
@@ -8,9 +8,11 @@ import com.denizenscript.denizencore.objects.core.ColorTag;
 import org.bukkit.Bukkit;
 import org.bukkit.EntityEffect;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.WorldBorder;
 import org.bukkit.block.Banner;
 import org.bukkit.block.banner.Pattern;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
@@ -63,6 +65,16 @@ public interface PacketHelper {
 
     void showBlockAction(Player player, Location location, int action, int state);
 
+    /**
+     * Sends a set of block changes within one 16x16x16 section. Offsets are section-relative, packed as (x << 8) | (z << 4) | y.
+     */
+    default void sendSectionBlockChanges(Player player, World world, int sectionX, int sectionY, int sectionZ, short[] offsets, BlockData[] states) {
+        for (int i = 0; i < offsets.length; i++) {
+            int offset = offsets[i];
+            player.sendBlockChange(new Location(world, (sectionX << 4) + (offset >> 8 & 15), (sectionY << 4) + (offset & 15), (sectionZ << 4) + (offset >> 4 & 15)), states[i]);
+        }
+    }
+
     default void showBlockCrack(Player player, int id, Location location, int progress) {
         float progressFloat = 0;
         if (progress >= 0 && progress <= 9) {
@@ -1,22 +1,92 @@
 package com.denizenscript.denizen.npc.traits;
 
+import com.denizenscript.denizen.utilities.flags.FlagSnapshotDiff;
 import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 import com.google.common.collect.Iterators;
-import net.citizensnpcs.api.persistence.Persist;
 import net.citizensnpcs.api.persistence.PersistenceLoader;
 import net.citizensnpcs.api.persistence.Persister;
 import net.citizensnpcs.api.trait.Trait;
 import net.citizensnpcs.api.util.DataKey;
 
+import java.util.HashMap;
 import java.util.Map;
 
 public class DenizenFlagsTrait extends Trait {
 
-    @Persist("full_flag_data")
     public SavableMapFlagTracker fullFlagData = new SavableMapFlagTracker();
 
+    /** The flag objects as of the last save, compared by identity to find which flags changed (see {@link FlagSnapshotDiff#collectChanges}). */
+    public HashMap<StringHolder, SavableMapFlagTracker.SaveOptimizedFlag> savedFlags = new HashMap<>();
+
+    /** The data key (see {@link #describeKey}) that holds exactly {@link #savedFlags}, or null if not yet known (in which case the next save checks the key). */
+    public String savedPath;
+
+    @Override
+    public void load(DataKey key) {
+        DataKey flagKey = key.getRelative("full_flag_data");
+        fullFlagData = new MapTagFlagTrackerPersister().create(flagKey);
+        savedFlags.clear();
+        savedFlags.putAll(fullFlagData.map);
+        fullFlagData.modified = false;
+        // Flags dropped by the load-time clean are still in the data key, so the next save needs to check the key
+        savedPath = holdsSavedFlags(flagKey) ? describeKey(flagKey) : null;
+    }
+
+    /**
+     * Saves only the flags that changed since the last save, and nothing at all if none did.
+     * Saving to a different data key than the tracked one (eg as when copying an NPC) writes all flags to it, without changing what's tracked.
+     */
+    @Override
+    public void save(DataKey key) {
+        DataKey flagKey = key.getRelative("full_flag_data");
+        String keyId = describeKey(flagKey);
+        if (!keyId.equals(savedPath)) {
+            if (savedPath != null) {
+                new MapTagFlagTrackerPersister().save(fullFlagData, flagKey);
+                return;
+            }
+            savedPath = keyId;
+            if (!holdsSavedFlags(flagKey)) {
+                new MapTagFlagTrackerPersister().save(fullFlagData, flagKey);
+                savedFlags.clear();
+                savedFlags.putAll(fullFlagData.map);
+                fullFlagData.modified = false;
+                return;
+            }
+        }
+        if (!fullFlagData.modified) {
+            return;
+        }
+        for (FlagSnapshotDiff.FlagChange change : FlagSnapshotDiff.collectChanges(fullFlagData, savedFlags)) {
+            if (change.value == null) {
+                flagKey.removeKey(change.key);
+            }
+            else {
+                flagKey.setString(change.key, change.value);
+            }
+        }
+        fullFlagData.modified = false;
+    }
+
+    /**
+     * Identifies a data key by its type (so a memory key used when copying an NPC never matches the real storage) and path.
+     */
+    public static String describeKey(DataKey key) {
+        return key.getClass().getName() + ":" + key.getPath();
+    }
+
+    public boolean holdsSavedFlags(DataKey flagKey) {
+        int count = 0;
+        for (DataKey subkey : flagKey.getSubKeys()) {
+            if (!savedFlags.containsKey(new StringHolder(subkey.name()))) {
+                return false;
+            }
+            count++;
+        }
+        return count == savedFlags.size();
+    }
 
     public static class MapTagFlagTrackerPersister implements Persister<SavableMapFlagTracker> {
         @Override
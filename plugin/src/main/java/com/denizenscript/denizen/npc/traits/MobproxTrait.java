@@ -1,11 +1,17 @@
 package com.denizenscript.denizen.npc.traits;
 
+import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.objects.EntityTag;
 import com.denizenscript.denizen.objects.NPCTag;
+import com.denizenscript.denizen.scripts.containers.core.AssignmentScriptContainer;
+import com.denizenscript.denizen.utilities.entity.EntityProximityIndex;
 import com.denizenscript.denizencore.objects.ObjectTag;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
 import net.citizensnpcs.api.event.NPCTraitCommandAttachEvent;
 import net.citizensnpcs.api.trait.Trait;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
@@ -13,6 +19,7 @@ import org.bukkit.event.EventHandler;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -24,47 +31,77 @@ public class MobproxTrait extends Trait {
         super("mobprox");
     }
 
-    int checkTimer = 0;
     int timerBounce = 0;
     LivingEntity liveEnt;
     NPCTag dnpc;
-    List<Entity> inrange = new ArrayList<>();
 
-    @Override
-    public void run() {
-        checkTimer++;
-        if (checkTimer == 10) {
-            checkTimer = 0;
-            timerBounce++;
-            if (timerBounce >= getTimer()) {
-                timerBounce = 0;
-                if (getNPC().isSpawned()) {
-                    int range = getRange();
-                    boolean acceptnpc = acceptNpcs();
-                    List<Entity> nearby = liveEnt.getNearbyEntities(range, range, range);
-                    List<Entity> removeme = new ArrayList<>(inrange);
-                    for (Entity ent : nearby) {
-                        if (ent instanceof LivingEntity && (!(ent instanceof Player) || EntityTag.isCitizensNPC(ent))
-                                && (acceptnpc || (!EntityTag.isCitizensNPC(ent)))) {
-                            removeme.remove(ent);
-                            if (!inrange.contains(ent)) {
-                                inrange.add(ent);
-                                callAction("enter", ent);
-                            }
-                            else {
-                                callAction("move", ent);
-                            }
-                        }
-                    }
-                    for (Entity ent : removeme) {
-                        inrange.remove(ent);
-                        callAction("exit", ent);
-                    }
+    /** Entities currently in proximity, keyed by entity ID, in the order they were found. */
+    Int2ObjectLinkedOpenHashMap<Entity> inrange = new Int2ObjectLinkedOpenHashMap<>();
+
+    public static final LinkedHashSet<MobproxTrait> activeTraits = new LinkedHashSet<>();
+
+    public static int taskId = -1;
+
+    public static void subscribe(MobproxTrait trait) {
+        activeTraits.add(trait);
+        if (taskId == -1) {
+            taskId = Bukkit.getScheduler().scheduleSyncRepeatingTask(Denizen.getInstance(), MobproxTrait::processAll, 10, 10);
+        }
+    }
+
+    public static void unsubscribe(MobproxTrait trait) {
+        activeTraits.remove(trait);
+        if (activeTraits.isEmpty() && taskId != -1) {
+            Bukkit.getScheduler().cancelTask(taskId);
+            taskId = -1;
+        }
+    }
+
+    /**
+     * Updates every mobprox NPC that's due for a check (every 'mobprox_timer' half-seconds), sharing one entity index per world between all of them.
+     */
+    public static void processAll() {
+        Map<World, EntityProximityIndex> indexes = new HashMap<>();
+        for (MobproxTrait trait : new ArrayList<>(activeTraits)) {
+            if (!activeTraits.contains(trait)) { // Removed by an earlier NPC's action
+                continue;
+            }
+            trait.timerBounce++;
+            if (trait.timerBounce >= trait.getTimer()) {
+                trait.timerBounce = 0;
+                if (trait.getNPC().isSpawned()) {
+                    trait.update(indexes.computeIfAbsent(trait.liveEnt.getWorld(), EntityProximityIndex::new));
                 }
             }
         }
     }
 
+    public void update(EntityProximityIndex index) {
+        int range = getRange();
+        boolean acceptnpc = acceptNpcs();
+        List<LivingEntity> nearby = new ArrayList<>();
+        index.forEachOverlapping(liveEnt.getBoundingBox().expand(range, range, range), (ent) -> {
+            if (ent != liveEnt && !ent.isDead() && (!(ent instanceof Player) || EntityTag.isCitizensNPC(ent))
+                    && (acceptnpc || (!EntityTag.isCitizensNPC(ent)))) {
+                nearby.add(ent);
+            }
+        });
+        Int2ObjectLinkedOpenHashMap<Entity> previous = inrange;
+        inrange = new Int2ObjectLinkedOpenHashMap<>(nearby.size());
+        for (LivingEntity ent : nearby) {
+            inrange.put(ent.getEntityId(), ent);
+            if (previous.remove(ent.getEntityId()) == null) {
+                callAction("enter", ent);
+            }
+            else {
+                callAction("move", ent);
+            }
+        }
+        for (Entity ent : previous.values()) {
+            callAction("exit", ent);
+        }
+    }
+
     // <--[action]
     // @Actions
     // mob enter proximity
@@ -100,10 +137,31 @@ public class MobproxTrait extends Trait {
     //
     // -->
     private void callAction(String act, Entity ent) {
+        String mobAction = "mob " + act + " proximity";
+        String typeAction = ent.getType().name() + " " + act + " proximity";
+        if (!hasAction(mobAction) && !hasAction(typeAction)) {
+            return;
+        }
         Map<String, ObjectTag> context = new HashMap<>();
         context.put("entity", new EntityTag(ent).getDenizenObject());
-        dnpc.action("mob " + act + " proximity", null, context);
-        dnpc.action(ent.getType().name() + " " + act + " proximity", null, context);
+        dnpc.action(mobAction, null, context);
+        dnpc.action(typeAction, null, context);
+    }
+
+    /**
+     * Returns whether any of the NPC's assignment scripts has the given action, so the context for an action that won't run isn't built.
+     */
+    public boolean hasAction(String actionName) {
+        AssignmentTrait assignment = getNPC().getTraitNullable(AssignmentTrait.class);
+        if (assignment == null) {
+            return false;
+        }
+        for (AssignmentScriptContainer container : assignment.containerCache) {
+            if (container != null && container.shouldEnable() && container.containsScriptSection("actions.on " + actionName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @EventHandler
@@ -149,5 +207,11 @@ public class MobproxTrait extends Trait {
     public void onSpawn() {
         liveEnt = (LivingEntity) getNPC().getEntity();
         dnpc = new NPCTag(getNPC());
+        subscribe(this);
+    }
+
+    @Override
+    public void onRemove() {
+        unsubscribe(this);
     }
 }
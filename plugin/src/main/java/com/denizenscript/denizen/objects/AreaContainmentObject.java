@@ -3,6 +3,7 @@ package com.denizenscript.denizen.objects;
 import com.denizenscript.denizen.events.BukkitScriptEvent;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.utilities.NotedAreaTracker;
+import com.denizenscript.denizen.utilities.blocks.BlockScanner;
 import com.denizenscript.denizen.utilities.blocks.SpawnableHelper;
 import com.denizenscript.denizen.utilities.depends.Depends;
 import com.denizenscript.denizen.utilities.flags.LocationFlagSearchHelper;
@@ -217,6 +218,7 @@ public interface AreaContainmentObject extends ObjectTag {
         // @description
         // Returns each block location within the area.
         // Optionally, specify a material matcher to only return locations with that block type.
+        // For very large searches, consider using <@link command FindBlocks> instead.
         // @example
         // # Spawns a debugblock to highlight every plank-type block in the area.
         // - debugblock <cuboid[my_cuboid].blocks[*planks]>
@@ -225,9 +227,10 @@ public interface AreaContainmentObject extends ObjectTag {
             if (attribute.hasParam()) {
                 NMSHandler.chunkHelper.changeChunkServerThread(area.getWorld().getWorld());
                 try {
-                    String matcher = attribute.getParam();
-                    Predicate<Location> predicate = (l) -> new LocationTag(l).tryAdvancedMatcher(matcher, attribute.context);
-                    return area.getBlocks(predicate);
+                    CuboidTag boundary = area.getCuboidBoundary();
+                    BlockScanner scanner = new BlockScanner(area.getWorld().getWorld(), boundary.getLow(0).getBlockX(), boundary.getLow(0).getBlockY(), boundary.getLow(0).getBlockZ(),
+                            boundary.getHigh(0).getBlockX(), boundary.getHigh(0).getBlockY(), boundary.getHigh(0).getBlockZ(), new BlockScanner.CompiledMatcher(attribute.getParam(), attribute.context));
+                    return area.getBlocks(scanner.asPredicate());
                 }
                 finally {
                     NMSHandler.chunkHelper.restoreServerThread(area.getWorld().getWorld());
@@ -12,6 +12,7 @@ import com.denizenscript.denizen.utilities.PaperAPITools;
 import com.denizenscript.denizen.utilities.depends.Depends;
 import com.denizenscript.denizen.utilities.inventory.InventoryTrackerSystem;
 import com.denizenscript.denizen.utilities.inventory.InventoryViewUtil;
+import com.denizenscript.denizen.utilities.inventory.ItemMatcher;
 import com.denizenscript.denizen.utilities.inventory.RecipeHelper;
 import com.denizenscript.denizen.utilities.inventory.SlotHelper;
 import com.denizenscript.denizen.utilities.nbt.CustomNBT;
@@ -1029,7 +1030,7 @@ public class InventoryTag implements ObjectTag, Notable, Adjustable, FlaggableOb
         int qty = 0;
         for (ItemStack invStack : inventory) {
             if (invStack != null) {
-                if (invStack.getType() == material && !(new ItemTag(invStack).isItemscript())) {
+                if (invStack.getType() == material && !(ItemTag.view(invStack).isItemscript())) {
                     qty += invStack.getAmount();
                 }
             }
@@ -1361,9 +1362,10 @@ public class InventoryTag implements ObjectTag, Notable, Adjustable, FlaggableOb
                 quantity = attribute.getIntContext(2);
                 attribute.fulfill(1);
             }
+            ItemMatcher itemMatcher = ItemMatcher.get(matcher);
             for (int slot = 0; slot < dummyInv.inventory.getSize(); slot++) {
                 ItemStack item = dummyInv.inventory.getItem(slot);
-                if (item != null && new ItemTag(item).tryAdvancedMatcher(matcher, attribute.context)) {
+                if (item != null && itemMatcher.matches(item, attribute.context)) {
                     quantity -= item.getAmount();
                     if (quantity >= 0) {
                         dummyInv.inventory.setItem(slot, null);
@@ -1476,9 +1478,10 @@ public class InventoryTag implements ObjectTag, Notable, Adjustable, FlaggableOb
                 attribute.fulfill(1);
             }
             int found_items = 0;
+            ItemMatcher itemMatcher = ItemMatcher.get(matcher);
             for (ItemStack item : object.getContents()) {
                 if (item != null) {
-                    if (new ItemTag(item).tryAdvancedMatcher(matcher, attribute.context)) {
+                    if (itemMatcher.matches(item, attribute.context)) {
                         found_items += item.getAmount();
                         if (found_items >= qty) {
                             break;
@@ -1688,7 +1691,7 @@ public class InventoryTag implements ObjectTag, Notable, Adjustable, FlaggableOb
                 int found_items = 0;
                 for (ItemStack item : object.getContents()) {
                     if (item != null) {
-                        String itemName = new ItemTag(item).getScriptName();
+                        String itemName = ItemTag.view(item).getScriptName();
                         if (itemName != null && scrNames.contains(CoreUtilities.toLowerCase(itemName))) {
                             found_items += item.getAmount();
                             if (found_items >= qty) {
@@ -1779,7 +1782,7 @@ public class InventoryTag implements ObjectTag, Notable, Adjustable, FlaggableOb
                         continue;
                     }
                     for (MaterialTag material : materials) {
-                        if (item.getType() == material.getMaterial() && !(new ItemTag(item).isItemscript())) {
+                        if (item.getType() == material.getMaterial() && !(ItemTag.view(item).isItemscript())) {
                             found_items += item.getAmount();
                             if (found_items >= qty) {
                                 break mainLoop;
@@ -1872,11 +1875,11 @@ public class InventoryTag implements ObjectTag, Notable, Adjustable, FlaggableOb
             if (!attribute.hasParam()) {
                 return null;
             }
-            String matcher = attribute.getParam();
+            ItemMatcher itemMatcher = ItemMatcher.get(attribute.getParam());
             for (int i = 0; i < object.inventory.getSize(); i++) {
                 ItemStack item = object.inventory.getItem(i);
                 if (item != null) {
-                    if (new ItemTag(item).tryAdvancedMatcher(matcher, attribute.context)) {
+                    if (itemMatcher.matches(item, attribute.context)) {
                         return new ElementTag(i + 1);
                     }
                 }
@@ -1897,11 +1900,11 @@ public class InventoryTag implements ObjectTag, Notable, Adjustable, FlaggableOb
                 return null;
             }
             ListTag result = new ListTag();
-            String matcher = attribute.getParam();
+            ItemMatcher itemMatcher = ItemMatcher.get(attribute.getParam());
             for (int i = 0; i < object.inventory.getSize(); i++) {
                 ItemStack item = object.inventory.getItem(i);
                 if (item != null) {
-                    if (new ItemTag(item).tryAdvancedMatcher(matcher, attribute.context)) {
+                    if (itemMatcher.matches(item, attribute.context)) {
                         result.addObject(new ElementTag(i + 1));
                     }
                 }
@@ -1939,7 +1942,7 @@ public class InventoryTag implements ObjectTag, Notable, Adjustable, FlaggableOb
                 int slot = -1;
                 for (int i = 0; i < object.inventory.getSize(); i++) {
                     if (object.inventory.getItem(i) != null
-                            && scrname.equalsIgnoreCase(new ItemTag(object.inventory.getItem(i)).getScriptName())) {
+                            && scrname.equalsIgnoreCase(ItemTag.view(object.inventory.getItem(i)).getScriptName())) {
                         slot = i + 1;
                         break;
                     }
@@ -2031,11 +2034,11 @@ public class InventoryTag implements ObjectTag, Notable, Adjustable, FlaggableOb
         // Uses the system behind <@link language Advanced Object Matching>.
         // -->
         tagProcessor.registerTag(ElementTag.class, "quantity_item", (attribute, object) -> {
-            String matcher = attribute.hasParam() ? attribute.getParam() : null;
+            ItemMatcher matcher = attribute.hasParam() ? ItemMatcher.get(attribute.getParam()) : null;
             int found_items = 0;
             for (ItemStack item : object.getContents()) {
                 if (item != null) {
-                    if (matcher == null || new ItemTag(item).tryAdvancedMatcher(matcher, attribute.context)) {
+                    if (matcher == null || matcher.matches(item, attribute.context)) {
                         found_items += item.getAmount();
                     }
                 }
@@ -48,6 +48,7 @@ import org.bukkit.map.MapPalette;
 import org.bukkit.map.MapView;
 
 import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -226,6 +227,44 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
         }
     }
 
+    /**
+     * Returns an ItemTag that wraps the given live ItemStack without copying it, for read-only checks (like matchers and flag checks) that don't keep the ItemTag.
+     * The stack is only copied if the ItemTag is changed or its stack is accessed directly, so the original stack is never modified.
+     * A view reflects later changes to the live stack until it's copied, so should not be stored or returned to scripts.
+     */
+    public static ItemTag view(ItemStack item) {
+        if (item == null || item.getType() == Material.AIR) {
+            return new ItemTag(item);
+        }
+        return new ItemTag(item, true);
+    }
+
+    private ItemTag(ItemStack item, boolean isView) {
+        this.item = item;
+        this.isView = isView;
+    }
+
+    public static int maxCachedViewFlags = 256;
+
+    private static final LinkedHashMap<String, MapTagFlagTracker> viewFlagCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MapTagFlagTracker> eldest) {
+            return size() > maxCachedViewFlags;
+        }
+    };
+
+    /**
+     * Gets a shared decoded flag tracker for the given raw flags value, for read-only use by views. Must never be modified.
+     */
+    public static synchronized MapTagFlagTracker getSharedViewFlags(String value) {
+        MapTagFlagTracker tracker = viewFlagCache.get(value);
+        if (tracker == null) {
+            tracker = new MapTagFlagTracker(value, CoreUtilities.noDebugContext);
+            viewFlagCache.put(value, tracker);
+        }
+        return tracker;
+    }
+
     /////////////////////
     //   INSTANCE FIELDS/METHODS
     /////////////////
@@ -233,7 +272,7 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
     @Override
     public AbstractFlagTracker getFlagTracker() {
         if (flagTrackerCache == null) {
-            String value = CustomNBT.getCustomNBT(getItemStack(), "flags", "Denizen");
+            String value = CustomNBT.getCustomNBT(item, "flags", "Denizen");
             if (value == null) {
                 return new MapTagFlagTracker();
             }
@@ -242,6 +281,20 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
         return flagTrackerCache;
     }
 
+    /**
+     * Gets the item's flags for an internal read-only check. For views, this may be a tracker shared between items, so must never be modified or kept.
+     */
+    public AbstractFlagTracker getFlagTrackerForRead() {
+        if (!isView || flagTrackerCache != null) {
+            return getFlagTracker();
+        }
+        String value = CustomNBT.getCustomNBT(item, "flags", "Denizen");
+        if (value == null) {
+            return new MapTagFlagTracker();
+        }
+        return getSharedViewFlags(value);
+    }
+
     @Override
     public void reapplyTracker(AbstractFlagTracker tracker) {
         if (tracker instanceof MapTagFlagTracker && ((MapTagFlagTracker) tracker).map.isEmpty()) {
@@ -255,11 +308,19 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
 
     private ItemStack item;
 
+    /** True if 'item' is a live stack that isn't owned by this ItemTag, see {@link #view}. */
+    private boolean isView;
+
     public ItemMeta metaCache;
 
     public AbstractFlagTracker flagTrackerCache;
 
     public ItemStack getItemStack() {
+        if (isView) {
+            item = item.clone();
+            isView = false;
+            flagTrackerCache = null;
+        }
         return item;
     }
 
@@ -272,11 +333,12 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
 
     public void setItemMeta(ItemMeta meta) {
         this.metaCache = meta;
-        item.setItemMeta(meta);
+        getItemStack().setItemMeta(meta);
     }
 
     public void setItemStack(ItemStack item) {
         this.item = item;
+        isView = false;
         resetCache();
     }
 
@@ -379,7 +441,7 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
     }
 
     public Material getBukkitMaterial() {
-        return getItemStack().getType();
+        return item.getType();
     }
 
     public MaterialTag getMaterial() {
@@ -388,7 +450,7 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
 
     public void setAmount(int value) {
         if (item != null) {
-            item.setAmount(value);
+            getItemStack().setAmount(value);
         }
     }
 
@@ -853,7 +915,7 @@ public class ItemTag implements ObjectTag, Adjustable, FlaggableObject {
                 if (getBukkitMaterial().isAir()) {
                     return false;
                 }
-                return BukkitScriptEvent.coreFlaggedCheck(matcher.substring("item_flagged:".length()), getFlagTracker());
+                return BukkitScriptEvent.coreFlaggedCheck(matcher.substring("item_flagged:".length()), getFlagTrackerForRead());
             }
             else if (matcherLow.startsWith("item_enchanted:")) {
                 String enchMatcher = matcher.substring("item_enchanted:".length());
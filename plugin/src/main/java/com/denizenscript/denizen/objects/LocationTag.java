@@ -13,6 +13,7 @@ import com.denizenscript.denizen.objects.properties.material.MaterialDistance;
 import com.denizenscript.denizen.objects.properties.material.MaterialHalf;
 import com.denizenscript.denizen.scripts.commands.world.SwitchCommand;
 import com.denizenscript.denizen.utilities.*;
+import com.denizenscript.denizen.utilities.blocks.BlockScanner;
 import com.denizenscript.denizen.utilities.blocks.SpawnableHelper;
 import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagTracker;
 import com.denizenscript.denizen.utilities.flags.LocationFlagSearchHelper;
@@ -2695,6 +2696,7 @@ public class LocationTag extends org.bukkit.Location implements VectorObject, Ob
         // Returns a list of blocks within a radius, with an optional search parameter for the block material.
         // Note: current implementation measures the center of nearby block's distance from the exact given location.
         // Result list is sorted by closeness (1 = closest, 2 = next closest, ... last = farthest).
+        // For very large searches, consider using <@link command FindBlocks> instead.
         // -->
         tagProcessor.registerTag(ListTag.class, "find_blocks", (attribute, object) -> {
             String matcher = attribute.hasParam() ? attribute.getParam() : null;
@@ -2704,30 +2706,23 @@ public class LocationTag extends org.bukkit.Location implements VectorObject, Ob
             double radius = attribute.getDoubleContext(2);
             attribute.fulfill(1);
             ListTag found = new ListTag();
-            int max = Settings.blockTagsMaxBlocks();
-            int index = 0;
-            Location tstart = object.getBlockLocation();
-            double tstartY = tstart.getY();
+            World world = object.getWorld();
+            if (world == null) {
+                return found;
+            }
             int radiusInt = (int) Math.ceil(radius);
-            fullloop:
-            for (int y = -radiusInt; y <= radiusInt; y++) {
-                double newY = y + tstartY;
-                if (!Utilities.isLocationYSafe(newY, object.getWorld())) {
-                    continue;
-                }
-                for (int x = -radiusInt; x <= radiusInt; x++) {
-                    for (int z = -radiusInt; z <= radiusInt; z++) {
-                        index++;
-                        if (index > max) {
-                            break fullloop;
-                        }
-                        if (Utilities.checkLocation(object, tstart.clone().add(x + 0.5, y + 0.5, z + 0.5), radius)) {
-                            if (matcher == null || new LocationTag(tstart.clone().add(x, y, z)).tryAdvancedMatcher(matcher, attribute.context)) {
-                                found.addObject(new LocationTag(tstart.clone().add(x, y, z)));
-                            }
-                        }
-                    }
-                }
+            int blockX = object.getBlockX(), blockY = object.getBlockY(), blockZ = object.getBlockZ();
+            double centerX = object.getX() - 0.5, centerY = object.getY() - 0.5, centerZ = object.getZ() - 0.5, radiusSquared = radius * radius;
+            BlockScanner scanner = new BlockScanner(world, blockX - radiusInt, blockY - radiusInt, blockZ - radiusInt, blockX + radiusInt, blockY + radiusInt, blockZ + radiusInt,
+                    new BlockScanner.CompiledMatcher(matcher, attribute.context));
+            scanner.limit = Settings.blockTagsMaxBlocks();
+            scanner.filter = (x, y, z) -> {
+                double xOff = x - centerX, yOff = y - centerY, zOff = z - centerZ;
+                return xOff * xOff + yOff * yOff + zOff * zOff < radiusSquared;
+            };
+            scanner.scan((x, y, z) -> found.addObject(new LocationTag(world, x, y, z)));
+            if (scanner.limitHit) {
+                attribute.echoError("Tag find_blocks.within stopped early, as the search area exceeds the 'Tags.Block tags.Max blocks' config limit.");
             }
             found.objectForms.sort((loc1, loc2) -> object.compare((LocationTag) loc1, (LocationTag) loc2));
             return found;
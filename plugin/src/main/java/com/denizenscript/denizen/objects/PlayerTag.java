@@ -46,6 +46,7 @@ import org.bukkit.block.BlockState;
 import org.bukkit.block.Sign;
 import org.bukkit.block.banner.Pattern;
 import org.bukkit.block.banner.PatternType;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.boss.BossBar;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.entity.*;
@@ -2336,6 +2337,10 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
                 if (block != null) {
                     return block.material;
                 }
+                BlockData regionData = map.getFakeBlockData(input);
+                if (regionData != null) {
+                    return new MaterialTag(regionData);
+                }
             }
             return null;
         });
@@ -3374,7 +3379,7 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
         if (mechanism.matches("hide_entities") && mechanism.hasValue()) {
             HideEntitiesHelper.PlayerHideMap map = HideEntitiesHelper.getPlayerMapFor(getUUID());
             String hideMe = mechanism.getValue().asString();
-            map.matchersHidden.add(hideMe);
+            map.addMatcher(hideMe);
             if (isOnline()) {
                 for (Entity ent : getPlayerEntity().getWorld().getEntities()) {
                     if (new EntityTag(ent).tryAdvancedMatcher(hideMe, mechanism.context) && map.shouldHide(ent)) {
@@ -3394,7 +3399,7 @@ public class PlayerTag implements ObjectTag, Adjustable, EntityFormObject, Flagg
         if (mechanism.matches("unhide_entities") && mechanism.hasValue()) {
             HideEntitiesHelper.PlayerHideMap map = HideEntitiesHelper.getPlayerMapFor(getUUID());
             String unhideMe = mechanism.getValue().asString();
-            map.matchersHidden.remove(unhideMe);
+            map.removeMatcher(unhideMe);
             if (map.matchersHidden.isEmpty() && map.entitiesHidden.isEmpty() && map.overridinglyShow.isEmpty()) {
                 HideEntitiesHelper.playerHides.remove(getUUID());
             }
@@ -155,6 +155,7 @@ public class BukkitCommandRegistry {
         registerCommand(BanCommand.class);
         registerCommand(BossBarCommand.class);
         registerCommand(ExecuteCommand.class);
+        registerCommand(FindPlayersFlaggedCommand.class);
         registerCommand(ScoreboardCommand.class);
         // world
         registerCommand(AdjustBlockCommand.class);
@@ -164,6 +165,7 @@ public class BukkitCommandRegistry {
         registerCommand(CreateWorldCommand.class);
         registerCommand(DropCommand.class);
         registerCommand(ExplodeCommand.class);
+        registerCommand(FindBlocksCommand.class);
         registerCommand(FireworkCommand.class);
         registerCommand(GameRuleCommand.class);
         registerCommand(LightCommand.class);
@@ -1,5 +1,6 @@
 package com.denizenscript.denizen.scripts.commands.entity;
 
+import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.objects.EntityFormObject;
 import com.denizenscript.denizen.objects.EntityTag;
@@ -13,6 +14,7 @@ import com.denizenscript.denizen.utilities.packets.NetworkInterceptHelper;
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsException;
 import com.denizenscript.denizencore.objects.Argument;
 import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.DurationTag;
 import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
@@ -20,29 +22,35 @@ import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
 import com.denizenscript.denizencore.tags.TagManager;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import net.citizensnpcs.api.npc.NPC;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public class RenameCommand extends AbstractCommand {
 
     public RenameCommand() {
         setName("rename");
-        setSyntax("rename [<name>/cancel] (t:<entity>|...) (per_player) (for:<player>|...) (list_name_only)");
-        setRequiredArguments(1, 5);
+        setSyntax("rename [<name>/cancel] (t:<entity>|...) (per_player) (for:<player>|...) (list_name_only) (refresh:<duration>)");
+        setRequiredArguments(1, 6);
         setParseArgs(false);
         isProcedural = false;
     }
 
     // <--[command]
     // @Name Rename
-    // @Syntax rename [<name>/cancel] (t:<entity>|...) (per_player) (for:<player>|...) (list_name_only)
+    // @Syntax rename [<name>/cancel] (t:<entity>|...) (per_player) (for:<player>|...) (list_name_only) (refresh:<duration>)
     // @Required 1
-    // @Maximum 5
+    // @Maximum 6
     // @Short Renames the linked NPC or list of entities.
     // @Group entity
     //
@@ -64,6 +72,10 @@ public class RenameCommand extends AbstractCommand {
     //
     // Optionally specify 'list_name_only' to only change the tab list name for a player. Works with 'per_player'.
     //
+    // Optionally specify 'refresh:' with 'per_player' to only reprocess the tags for each player once per the given duration, rather than every time the entity's data is sent.
+    // The new names will be sent to players automatically each time the duration passes.
+    // This is recommended for per_player renames on many entities, or with slow tags.
+    //
     // @Tags
     // <EntityTag.name>
     // <NPCTag.nickname>
@@ -81,6 +93,10 @@ public class RenameCommand extends AbstractCommand {
     // - rename <green><player.name> t:<[some_entity]> per_player
     // - wait 10s
     // - rename cancel t:<[some_entity]> per_player
+    //
+    // @Usage
+    // Use to show every player their own health above an entity, updated every second.
+    // - rename "<player.health.round> HP" t:<[some_entity]> per_player refresh:1s
     // -->
 
     @Override
@@ -98,6 +114,10 @@ public class RenameCommand extends AbstractCommand {
                     && arg.matches("per_player")) {
                 scriptEntry.addObject("per_player", new ElementTag(true));
             }
+            else if (!scriptEntry.hasObject("refresh")
+                    && arg.matchesPrefix("refresh")) {
+                scriptEntry.addObject("refresh", TagManager.tagObject(arg.getValue(), scriptEntry.getContext()).asType(DurationTag.class, scriptEntry.getContext()));
+            }
             else if (!scriptEntry.hasObject("list_name_only")
                     && arg.matches("list_name_only")) {
                 scriptEntry.addObject("list_name_only", new ElementTag(true));
@@ -125,12 +145,13 @@ public class RenameCommand extends AbstractCommand {
         final ElementTag name = scriptEntry.getElement("name");
         ElementTag perPlayer = scriptEntry.getElement("per_player");
         ElementTag listNameOnly = scriptEntry.getElement("list_name_only");
+        DurationTag refresh = scriptEntry.getObjectTag("refresh");
         ListTag targets = scriptEntry.getObjectTag("targets");
         List<PlayerTag> players = (List<PlayerTag>) scriptEntry.getObject("players");
         if (perPlayer != null && perPlayer.asBoolean()) {
             NetworkInterceptHelper.enable();
             if (scriptEntry.dbCallShouldDebug()) {
-                Debug.report(scriptEntry, getName(), name, targets, perPlayer, listNameOnly, db("for", players));
+                Debug.report(scriptEntry, getName(), name, targets, perPlayer, listNameOnly, refresh, db("for", players));
             }
             for (ObjectTag target : targets.objectForms) {
                 EntityTag entity = target.asType(EntityTag.class, CoreUtilities.noDebugContext);
@@ -169,6 +190,10 @@ public class RenameCommand extends AbstractCommand {
                         RenameData renamer = new RenameData();
                         renamer.nameFunction = nameGetter;
                         renamer.listOnly = listNameOnly != null && listNameOnly.asBoolean();
+                        renamer.refreshTicks = refresh == null ? 0 : Math.max(1, refresh.getTicks());
+                        if (renamer.refreshTicks > 0) {
+                            startRefreshTask();
+                        }
                         if (players == null) {
                             playerToFuncMap.put(null, renamer);
                         }
@@ -240,6 +265,74 @@ public class RenameCommand extends AbstractCommand {
         public Function<Player, String> nameFunction;
 
         public boolean listOnly;
+
+        /** If above 0, names are only re-evaluated (and resent) once per this many ticks, rather than every time they're needed. */
+        public long refreshTicks;
+
+        public long ticksSinceRefresh;
+
+        public final ConcurrentHashMap<UUID, String> evaluatedNames = new ConcurrentHashMap<>();
+
+        public String getName(Player player) {
+            if (refreshTicks <= 0) {
+                return nameFunction.apply(player);
+            }
+            return evaluatedNames.computeIfAbsent(player.getUniqueId(), k -> nameFunction.apply(player));
+        }
+    }
+
+    public static BukkitTask refreshTask;
+
+    public static void startRefreshTask() {
+        if (refreshTask != null) {
+            return;
+        }
+        refreshTask = Bukkit.getScheduler().runTaskTimer(Denizen.getInstance(), RenameCommand::tickRefreshes, 1, 1);
+    }
+
+    /**
+     * Re-evaluates and resends names that are due for a refresh. Refreshing renames of entities that are gone (dead, removed or unloaded) are dropped,
+     * and the task stops once there are no refreshing renames left.
+     */
+    public static void tickRefreshes() {
+        boolean anyRefreshing = false;
+        Iterator<Map.Entry<UUID, HashMap<UUID, RenameData>>> iterator = customNames.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, HashMap<UUID, RenameData>> entry = iterator.next();
+            Entity entity = null;
+            for (RenameData rename : new HashSet<>(entry.getValue().values())) {
+                if (rename.refreshTicks <= 0) {
+                    continue;
+                }
+                if (++rename.ticksSinceRefresh < rename.refreshTicks) {
+                    anyRefreshing = true;
+                    continue;
+                }
+                rename.ticksSinceRefresh = 0;
+                rename.evaluatedNames.clear();
+                if (entity == null) {
+                    entity = EntityTag.getEntityForID(entry.getKey());
+                    if (entity == null || entity.isDead()) {
+                        entry.getValue().values().removeIf(data -> data.refreshTicks > 0);
+                        if (entry.getValue().isEmpty()) {
+                            iterator.remove();
+                        }
+                        break;
+                    }
+                }
+                anyRefreshing = true;
+                if (!entity.isValid()) { // Unloaded or not yet spawned, so keep the rename for when it's back
+                    continue;
+                }
+                for (Player player : NMSHandler.entityHelper.getPlayersThatSee(entity)) {
+                    NMSHandler.packetHelper.sendRename(player, entity, "", rename.listOnly);
+                }
+            }
+        }
+        if (!anyRefreshing) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
     }
 
     public static boolean hasAnyDynamicRenames() {
@@ -248,6 +341,9 @@ public class RenameCommand extends AbstractCommand {
 
     public static void addDynamicRename(Entity bukkitEntity, Player forPlayer, RenameData rename) {
         NetworkInterceptHelper.enable();
+        if (rename.refreshTicks > 0) {
+            startRefreshTask();
+        }
         HashMap<UUID, RenameData> playerToFuncMap = customNames.computeIfAbsent(bukkitEntity.getUniqueId(), k -> new HashMap<>());
         playerToFuncMap.put(forPlayer == null ? null : forPlayer.getUniqueId(), rename);
         if (forPlayer == null) {
@@ -272,6 +368,6 @@ public class RenameCommand extends AbstractCommand {
                 return null;
             }
         }
-        return rename.nameFunction.apply(player);
+        return rename.getName(player);
     }
 }
@@ -8,6 +8,7 @@ import com.denizenscript.denizen.scripts.containers.core.ItemScriptHelper;
 import com.denizenscript.denizen.utilities.BukkitImplDeprecations;
 import com.denizenscript.denizen.utilities.Utilities;
 import com.denizenscript.denizen.utilities.depends.Depends;
+import com.denizenscript.denizen.utilities.inventory.ItemMatcher;
 import com.denizenscript.denizen.utilities.inventory.SlotHelper;
 import com.denizenscript.denizen.utilities.nbt.CustomNBT;
 import com.denizenscript.denizencore.exceptions.InvalidArgumentsException;
@@ -363,7 +364,7 @@ public class TakeCommand extends AbstractCommand {
                     return;
                 }
                 for (String flag : flagList) {
-                    takeByMatcher(inventory, (item) -> new ItemTag(item).getFlagTracker().hasFlag(flag), quantity.asInt());
+                    takeByMatcher(inventory, (item) -> ItemTag.view(item).getFlagTracker().hasFlag(flag), quantity.asInt());
                 }
                 break;
             }
@@ -386,7 +387,7 @@ public class TakeCommand extends AbstractCommand {
                         Debug.echoError(scriptEntry, "Item '" + scriptedItem.debuggable() + "' is not a scripted item, cannot take by scriptname.");
                         continue;
                     }
-                    takeByMatcher(inventory, (item) -> script.equalsIgnoreCase(new ItemTag(item).getScriptName()), quantity.asInt());
+                    takeByMatcher(inventory, (item) -> script.equalsIgnoreCase(ItemTag.view(item).getScriptName()), quantity.asInt());
                 }
                 break;
             }
@@ -396,7 +397,7 @@ public class TakeCommand extends AbstractCommand {
                     return;
                 }
                 for (MaterialTag material : materialList) {
-                    takeByMatcher(inventory, (item) -> item.getType() == material.getMaterial() && !(new ItemTag(item).isItemscript()), quantity.asInt());
+                    takeByMatcher(inventory, (item) -> item.getType() == material.getMaterial() && !ItemScriptHelper.isItemscript(item), quantity.asInt());
                 }
                 break;
             }
@@ -405,7 +406,8 @@ public class TakeCommand extends AbstractCommand {
                     Debug.echoError(scriptEntry, "Must specify an item matcher!");
                     return;
                 }
-                takeByMatcher(inventory, (item) -> new ItemTag(item).tryAdvancedMatcher(matcherText.asString(), scriptEntry.getContext()), quantity.asInt());
+                ItemMatcher itemMatcher = ItemMatcher.get(matcherText.asString());
+                takeByMatcher(inventory, (item) -> itemMatcher.matches(item, scriptEntry.getContext()), quantity.asInt());
                 break;
             }
             case SLOT: {
@@ -0,0 +1,79 @@
+package com.denizenscript.denizen.scripts.commands.server;
+
+import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizen.objects.PlayerTag;
+import com.denizenscript.denizen.utilities.flags.PlayerFlagQuery;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
+import com.denizenscript.denizencore.scripts.commands.Holdable;
+import com.denizenscript.denizencore.scripts.commands.generator.ArgLinear;
+import com.denizenscript.denizencore.scripts.commands.generator.ArgName;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import org.bukkit.Bukkit;
+
+import java.util.UUID;
+
+public class FindPlayersFlaggedCommand extends AbstractCommand implements Holdable {
+
+    public FindPlayersFlaggedCommand() {
+        setName("findplayersflagged");
+        setSyntax("findplayersflagged [<flag_name>]");
+        setRequiredArguments(1, 1);
+        isProcedural = false;
+        autoCompile();
+    }
+
+    // <--[command]
+    // @Name FindPlayersFlagged
+    // @Syntax findplayersflagged [<flag_name>]
+    // @Required 1
+    // @Maximum 1
+    // @Short Searches all players (online or offline) for a flag in the background.
+    // @Group server
+    //
+    // @Description
+    // Searches all players that have ever joined the server for the specified flag, without filling the player flag cache.
+    // Offline player flag files are read in parallel off the main thread.
+    // Can use "!<flag_name>" style to only find players *without* the flag.
+    //
+    // An index of which flags each player file contains is kept to skip files that can't match, refer to the "Saves.Player flag query index" config option.
+    //
+    // This command is ~waitable. Refer to <@link language ~waitable>.
+    // If not waited for, the search will still run in the background, but the result will not be available to the script.
+    //
+    // @Tags
+    // <entry[saveName].players> returns a ListTag of all players found.
+    //
+    // @Usage
+    // Use to find all players who have ever completed a quest.
+    // - ~findplayersflagged quests.dragon_slayer save:found
+    // - narrate "<entry[found].players.size> players have slain the dragon."
+    // -->
+
+    public static void autoExecute(ScriptEntry scriptEntry,
+                                   @ArgName("flag_name") @ArgLinear ElementTag flagName) {
+        String flag = flagName.asString();
+        boolean want = true;
+        if (flag.startsWith("!")) {
+            want = false;
+            flag = flag.substring(1);
+        }
+        PlayerFlagQuery.findPlayersFlagged(flag, want).whenComplete((ids, ex) -> {
+            Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> {
+                if (ex != null) {
+                    Debug.echoError(scriptEntry, ex);
+                }
+                else {
+                    ListTag result = new ListTag();
+                    for (UUID id : ids) {
+                        result.addObject(new PlayerTag(id));
+                    }
+                    scriptEntry.saveObject("players", result);
+                }
+                scriptEntry.setFinished(true);
+            });
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package com.denizenscript.denizen.scripts.commands.world;
+
+import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizen.objects.AreaContainmentObject;
+import com.denizenscript.denizen.objects.CuboidTag;
+import com.denizenscript.denizen.objects.LocationTag;
+import com.denizenscript.denizen.utilities.blocks.BlockScanner;
+import com.denizenscript.denizencore.exceptions.InvalidArgumentsRuntimeException;
+import com.denizenscript.denizencore.objects.ObjectFetcher;
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.commands.AbstractCommand;
+import com.denizenscript.denizencore.scripts.commands.Holdable;
+import com.denizenscript.denizencore.scripts.commands.generator.ArgDefaultNull;
+import com.denizenscript.denizencore.scripts.commands.generator.ArgLinear;
+import com.denizenscript.denizencore.scripts.commands.generator.ArgName;
+import com.denizenscript.denizencore.scripts.commands.generator.ArgPrefixed;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+public class FindBlocksCommand extends AbstractCommand implements Holdable {
+
+    public FindBlocksCommand() {
+        setName("findblocks");
+        setSyntax("findblocks [<area>] (matching:<matcher>)");
+        setRequiredArguments(1, 2);
+        isProcedural = false;
+        autoCompile();
+    }
+
+    // <--[command]
+    // @Name FindBlocks
+    // @Syntax findblocks [<area>] (matching:<matcher>)
+    // @Required 1
+    // @Maximum 2
+    // @Short Searches an area for blocks in the background.
+    // @Group world
+    //
+    // @Description
+    // Searches all blocks within the specified area (any AreaObject, like a CuboidTag or EllipsoidTag) for blocks matching the given LocationTag matcher.
+    // If no matcher is specified, every block in the area is returned.
+    //
+    // Snapshots of the loaded chunks in the area are taken immediately, and the search itself runs in parallel off the main thread.
+    // Only chunks that are loaded when the command runs are searched.
+    // Unlike <@link tag AreaObject.blocks>, this is not limited by the "Tags.Block tags.Max blocks" config option.
+    // Matchers that depend on more than the block itself (like "block_flagged:" or "location_in:"), or that check block properties (like "*_slab[type=top]"), cannot be used, use <@link tag AreaObject.blocks> for those.
+    //
+    // This command is ~waitable. Refer to <@link language ~waitable>.
+    // If not waited for, the search will still run in the background, but the result will not be available to the script.
+    //
+    // @Tags
+    // <entry[saveName].blocks> returns a ListTag of all block locations found.
+    // <AreaObject.blocks[(<matcher>)]>
+    // <LocationTag.find_blocks[(<matcher>)].within[<#.#>]>
+    //
+    // @Usage
+    // Use to find all diamond ore in a large area.
+    // - ~findblocks <cuboid[mine_area]> matching:*diamond_ore save:found
+    // - narrate "There are <entry[found].blocks.size> diamond ores left in the mine."
+    // -->
+
+    public static void autoExecute(ScriptEntry scriptEntry,
+                                   @ArgName("area") @ArgLinear ObjectTag areaObj,
+                                   @ArgName("matching") @ArgPrefixed @ArgDefaultNull String matcher) {
+        AreaContainmentObject area;
+        if (areaObj instanceof AreaContainmentObject) {
+            area = (AreaContainmentObject) areaObj;
+        }
+        else {
+            ObjectTag reparsedArea = ObjectFetcher.pickObjectFor(areaObj.toString(), scriptEntry.context);
+            if (!(reparsedArea instanceof AreaContainmentObject)) {
+                throw new InvalidArgumentsRuntimeException("Area input '" + areaObj + "' is not a valid Area object");
+            }
+            area = (AreaContainmentObject) reparsedArea;
+        }
+        BlockScanner.CompiledMatcher compiled = new BlockScanner.CompiledMatcher(matcher, scriptEntry.context);
+        if (compiled.locationDependent) {
+            throw new InvalidArgumentsRuntimeException("Matcher '" + matcher + "' depends on more than the block itself, and cannot be used with 'findblocks'.");
+        }
+        if (compiled.perState) {
+            throw new InvalidArgumentsRuntimeException("Matcher '" + matcher + "' checks block properties, and cannot be used with 'findblocks'.");
+        }
+        World world = area.getWorld().getWorld();
+        CuboidTag boundary = area.getCuboidBoundary();
+        LocationTag low = boundary.getLow(0), high = boundary.getHigh(0);
+        BlockScanner scanner = new BlockScanner(world, low.getBlockX(), low.getBlockY(), low.getBlockZ(), high.getBlockX(), high.getBlockY(), high.getBlockZ(), compiled);
+        scanner.scanAsync((x, y, z) -> area.doesContainLocation(new Location(world, x, y, z))).whenComplete((found, ex) -> {
+            Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> {
+                if (ex != null) {
+                    Debug.echoError(scriptEntry, ex);
+                }
+                else {
+                    ListTag result = new ListTag();
+                    for (LocationTag location : found) {
+                        result.addObject(location);
+                    }
+                    scriptEntry.saveObject("blocks", result);
+                }
+                scriptEntry.setFinished(true);
+            });
+        });
+    }
+}
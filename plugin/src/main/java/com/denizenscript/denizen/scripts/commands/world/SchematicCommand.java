@@ -27,6 +27,7 @@ import org.bukkit.event.block.BlockPhysicsEvent;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLDecoder;
 import java.util.HashMap;
@@ -88,6 +89,9 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
     // For 'save', 'load', and 'rotate', this processes async to prevent server lockup.
     // For 'paste' and 'create', this delays how many blocks can be processed at once, spread over many ticks.
     // Optionally, specify 'max_delay_ms' to control how many milliseconds the 'delayed' set can run for in any given tick (defaults to 50) (for create/paste only).
+    // Pastes are processed one chunk section at a time, with lighting and block updates sent to players once per chunk as each chunk is finished.
+    // Creating a schematic takes a snapshot of each chunk in the area on the server thread (spread over ticks when delayed), then reads the blocks from those snapshots in parallel.
+    // When delayed, that second step runs async, so blocks changed in the area after their chunk was snapshotted won't be included.
     //
     // The "load" option by default will load '.schem' files. If no '.schem' file is available, will attempt to load a legacy '.schematic' file instead.
     //
@@ -102,6 +106,7 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
     // The "fake_to" option can be specified to cause the schematic paste to be a fake (packet-based, see <@link command showfake>)
     // block set, instead of actually modifying the blocks in the world.
     // This takes an optional duration as "fake_duration" for how long the fake blocks should remain.
+    // Fake pastes are tracked as a single bulk region, so any individual <@link command showfake> blocks at the same locations will show over them.
     //
     // The "create" and "paste" options allow the "entities" argument to be specified - when used, entities will be copied or pasted.
     // At current time, entity types included will be: Paintings, ItemFrames, ArmorStands.
@@ -112,6 +117,9 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
     //
     // To delete a schematic file, use <@link mechanism server.delete_file>.
     //
+    // Loaded schematics are cached in plugins/Denizen/schematics/cache/, which allows later loads of the same (unchanged) file to skip reading the schematic file,
+    // and keeps the block data of cached schematics in a memory-mapped file rather than in memory. This can be configured in the Denizen config.yml.
+    //
     // @Tags
     // <schematic[<name>].height>
     // <schematic[<name>].length>
@@ -186,6 +194,29 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
         }
     }
 
+    public static CuboidBlockSet loadSchematicFile(File schemFile, File cacheFile) throws IOException {
+        if (SchematicCache.enabled) {
+            try {
+                CuboidBlockSet cached = SchematicCache.read(schemFile, cacheFile);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            catch (Exception ex) {
+                Debug.echoError("Schematic cache file " + cacheFile.getName() + " is invalid, and will be rebuilt:");
+                Debug.echoError(ex);
+            }
+        }
+        CuboidBlockSet newSet;
+        try (InputStream fs = new FileInputStream(schemFile)) {
+            newSet = SpongeSchematicHelper.fromSpongeStream(fs);
+        }
+        if (SchematicCache.enabled) {
+            SchematicCache.writeInBackground(newSet, schemFile, cacheFile);
+        }
+        return newSet;
+    }
+
     public static void rotateSchem(CuboidBlockSet schematic, int angle, boolean delayed, Runnable callback) {
         Runnable rotateRunnable = () -> {
             try {
@@ -319,6 +350,10 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
                             }
                             schematics.put(name.asString().toUpperCase(), set);
                             scriptEntry.setFinished(true);
+                        }, (ex) -> {
+                            Debug.echoError(scriptEntry, "Error creating schematic object " + name.asString() + ".");
+                            Debug.echoError(scriptEntry, ex);
+                            scriptEntry.setFinished(true);
                         }, maxDelayMs.asLong(), flags);
                     }
                     else {
@@ -359,12 +394,10 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
                     }
                 }
                 File schemFile = f;
+                File cacheFile = SchematicCache.getCacheFile(fname, f);
                 Runnable loadRunnable = () -> {
                     try {
-                        InputStream fs = new FileInputStream(schemFile);
-                        CuboidBlockSet newSet;
-                        newSet = SpongeSchematicHelper.fromSpongeStream(fs);
-                        fs.close();
+                        CuboidBlockSet newSet = loadSchematicFile(schemFile, cacheFile);
                         Runnable storeSchem = () -> {
                             schematics.put(name.asString().toUpperCase(), newSet);
                             scriptEntry.setFinished(true);
@@ -406,7 +439,8 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
                     scriptEntry.setFinished(true);
                     return;
                 }
-                schematics.remove(name.asString().toUpperCase());
+                CuboidBlockSet removed = schematics.remove(name.asString().toUpperCase());
+                SchematicCache.release(removed.blocks);
                 scriptEntry.setFinished(true);
                 break;
             }
@@ -505,6 +539,7 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
                         parseMask(scriptEntry, maskText, input.mask);
                     }
                     set = schematics.get(name.asString().toUpperCase());
+                    SchematicCache.touch(set.blocks);
                     if (set.isModifying) {
                         Debug.echoError("Cannot paste schematic: schematic is currently processing another instruction.");
                         return;
@@ -714,7 +749,7 @@ public class SchematicCommand extends AbstractCommand implements Holdable, Liste
         // Returns the number of blocks in the schematic.
         // -->
         if (attribute.startsWith("blocks")) {
-            event.setReplacedObject(new ElementTag(set.blocks.length)
+            event.setReplacedObject(new ElementTag(set.blocks.size)
                     .getObjectAttribute(attribute.fulfill(1)));
             return;
         }
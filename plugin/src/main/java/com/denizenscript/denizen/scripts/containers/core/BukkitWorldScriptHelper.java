@@ -7,6 +7,7 @@ import com.denizenscript.denizen.objects.*;
 import com.denizenscript.denizen.utilities.ScoreboardHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizen.utilities.Settings;
+import com.denizenscript.denizen.utilities.flags.ChunkFlagIndex;
 import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagTracker;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import org.bukkit.Bukkit;
@@ -20,7 +21,11 @@ import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.entity.Entity;
 import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.scoreboard.Scoreboard;
 
 import java.util.HashMap;
@@ -111,6 +116,24 @@ public class BukkitWorldScriptHelper implements Listener {
         new DataPersistenceFlagTracker(event.getChunk()).doTotalClean();
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void chunkUnloadEvent(ChunkUnloadEvent event) {
+        ChunkFlagIndex.unload(event.getChunk());
+        DataPersistenceFlagTracker.invalidateDecodedCache(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void entitiesUnloadEvent(EntitiesUnloadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            DataPersistenceFlagTracker.invalidateDecodedCache(entity);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void worldUnloadEvent(WorldUnloadEvent event) {
+        ChunkFlagIndex.unload(event.getWorld());
+    }
+
     public static void cleanAllWorldChunkFlags() {
         for (World world : Bukkit.getWorlds()) {
             for (Chunk chunk : world.getLoadedChunks()) {
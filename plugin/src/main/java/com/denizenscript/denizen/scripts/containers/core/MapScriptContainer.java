@@ -43,6 +43,7 @@ public class MapScriptContainer extends ScriptContainer {
     //     auto update: true
     //
     //     # Whether this map script renders uniquely per-player. Defaults to true.
+    //     # Non-contextual maps are drawn once for all viewers, and with auto update only redraw when a tag result changes.
     //     # | Some map scripts should have this key!
     //     contextual: true
     //
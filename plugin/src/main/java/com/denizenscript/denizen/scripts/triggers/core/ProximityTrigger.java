@@ -8,9 +8,11 @@ import com.denizenscript.denizen.objects.PlayerTag;
 import com.denizenscript.denizen.scripts.triggers.AbstractTrigger;
 import net.citizensnpcs.api.CitizensAPI;
 import net.citizensnpcs.api.npc.NPC;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.citizensnpcs.api.npc.NPCRegistry;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -90,23 +92,101 @@ public class ProximityTrigger extends AbstractTrigger implements Listener {
             if (timesUsed == 0) { // skip if not in use
                 return;
             }
-            Collection<? extends Player> allPlayers = Bukkit.getOnlinePlayers();
-            for (NPCRegistry registry : CitizensAPI.getNPCRegistries()) {
-                for (NPC citizensNPC : registry) {
-                    if (citizensNPC == null || !citizensNPC.isSpawned()) {
-                        continue;
+            processAll();
+        }, 5, 5);
+    }
+
+    /**
+     * A spawned NPC with the proximity trigger enabled, along with the indices (in the online player list) of players that need to be checked against it.
+     */
+    public static class ProximityCandidate {
+
+        public final NPCTag npc;
+
+        public final Location location;
+
+        public final BitSet players = new BitSet();
+
+        public ProximityCandidate(NPCTag npc) {
+            this.npc = npc;
+            this.location = npc.getLocation();
+        }
+    }
+
+    public static long cellKey(double x, double z) {
+        return ((long) Math.floorDiv((int) Math.floor(x), maxProximityDistance) << 32) | (Math.floorDiv((int) Math.floor(z), maxProximityDistance) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Checks every player against the NPCs near them, using a per-world spatial hash of triggered NPCs with cells the size of the max proximity distance.
+     * A pair is only checked if the player is within that distance or hasn't yet exited proximity, which are the only pairs that can do anything in {@link #tryProcessSinglePair}.
+     * Pairs are still processed in the same order as checking every NPC against every player.
+     */
+    public void processAll() {
+        List<ProximityCandidate> candidates = new ArrayList<>();
+        Map<World, Long2ObjectOpenHashMap<List<ProximityCandidate>>> grids = new HashMap<>();
+        Map<UUID, List<ProximityCandidate>> byUUID = new HashMap<>();
+        for (NPCRegistry registry : CitizensAPI.getNPCRegistries()) {
+            for (NPC citizensNPC : registry) {
+                if (citizensNPC == null || !citizensNPC.isSpawned()) {
+                    continue;
+                }
+                if (!citizensNPC.hasTrait(TriggerTrait.class) || !citizensNPC.getOrAddTrait(TriggerTrait.class).isEnabled(name)) {
+                    continue;
+                }
+                ProximityCandidate candidate = new ProximityCandidate(new NPCTag(citizensNPC));
+                candidates.add(candidate);
+                grids.computeIfAbsent(candidate.location.getWorld(), k -> new Long2ObjectOpenHashMap<>())
+                        .computeIfAbsent(cellKey(candidate.location.getX(), candidate.location.getZ()), k -> new ArrayList<>()).add(candidate);
+                byUUID.computeIfAbsent(citizensNPC.getUniqueId(), k -> new ArrayList<>()).add(candidate);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        List<Player> allPlayers = new ArrayList<>(Bukkit.getOnlinePlayers());
+        for (int i = 0; i < allPlayers.size(); i++) {
+            Player player = allPlayers.get(i);
+            Set<UUID> entered = proximityTracker.get(player.getUniqueId());
+            if (entered != null) {
+                for (UUID npcId : entered) {
+                    List<ProximityCandidate> matches = byUUID.get(npcId);
+                    if (matches != null) {
+                        for (ProximityCandidate candidate : matches) {
+                            candidate.players.set(i);
+                        }
                     }
-                    if (!citizensNPC.hasTrait(TriggerTrait.class) || !citizensNPC.getOrAddTrait(TriggerTrait.class).isEnabled(name)) {
+                }
+            }
+            Location location = player.getLocation();
+            Long2ObjectOpenHashMap<List<ProximityCandidate>> grid = grids.get(location.getWorld());
+            if (grid == null) {
+                continue;
+            }
+            int cellX = Math.floorDiv(location.getBlockX(), maxProximityDistance), cellZ = Math.floorDiv(location.getBlockZ(), maxProximityDistance);
+            for (int x = cellX - 1; x <= cellX + 1; x++) {
+                for (int z = cellZ - 1; z <= cellZ + 1; z++) {
+                    List<ProximityCandidate> cell = grid.get(((long) x << 32) | (z & 0xFFFFFFFFL));
+                    if (cell == null) {
                         continue;
                     }
-                    NPCTag npc = new NPCTag(citizensNPC);
-                    TriggerTrait triggerTrait = npc.getTriggerTrait();
-                    for (Player bukkitPlayer : allPlayers) {
-                        tryProcessSinglePair(npc, triggerTrait, bukkitPlayer);
+                    for (ProximityCandidate candidate : cell) {
+                        if (candidate.location.distanceSquared(location) <= maxProximityDistance * maxProximityDistance) {
+                            candidate.players.set(i);
+                        }
                     }
                 }
             }
-        }, 5, 5);
+        }
+        for (ProximityCandidate candidate : candidates) {
+            if (candidate.players.isEmpty()) {
+                continue;
+            }
+            TriggerTrait triggerTrait = candidate.npc.getTriggerTrait();
+            for (int i = candidate.players.nextSetBit(0); i >= 0; i = candidate.players.nextSetBit(i + 1)) {
+                tryProcessSinglePair(candidate.npc, triggerTrait, allPlayers.get(i));
+            }
+        }
     }
 
     public final void tryProcessSinglePair(NPCTag npc, TriggerTrait triggerTrait, Player bukkitPlayer) {
@@ -13,6 +13,7 @@ import com.denizenscript.denizen.scripts.containers.core.CommandScriptHelper;
 import com.denizenscript.denizen.scripts.containers.core.ItemScriptHelper;
 import com.denizenscript.denizen.utilities.*;
 import com.denizenscript.denizen.utilities.depends.Depends;
+import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagTracker;
 import com.denizenscript.denizen.utilities.inventory.SlotHelper;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.events.ScriptEvent;
@@ -1861,18 +1862,41 @@ public class ServerTagBase extends PseudoObjectTagBase<ServerTagBase> {
         // -->
         tagProcessor.registerTag(MapTag.class, "area_notes_debug", (attribute, object) -> {
             MapTag worlds = new MapTag();
-            for (Map.Entry<String, NotedAreaTracker.PerWorldSet> set : NotedAreaTracker.worlds.entrySet()) {
+            for (Map.Entry<String, NotedAreaTracker.AreaIndex> index : NotedAreaTracker.worlds.entrySet()) {
                 MapTag worldData = new MapTag();
-                worldData.putObject("global", new ListTag(set.getValue().globalSet.list, trackedArea -> trackedArea.area));
-                worldData.putObject("x50", areaNotesDebug(set.getValue().sets50));
-                worldData.putObject("x50_offset", areaNotesDebug(set.getValue().sets50_offset));
-                worldData.putObject("x200", areaNotesDebug(set.getValue().sets200));
-                worldData.putObject("x200_offset", areaNotesDebug(set.getValue().sets200_offset));
-                worlds.putObject(set.getKey(), worldData);
+                if (index.getValue() instanceof NotedAreaTracker.PerWorldSet set) {
+                    worldData.putObject("global", new ListTag(set.globalSet.list, trackedArea -> trackedArea.area));
+                    worldData.putObject("x50", areaNotesDebug(set.sets50));
+                    worldData.putObject("x50_offset", areaNotesDebug(set.sets50_offset));
+                    worldData.putObject("x200", areaNotesDebug(set.sets200));
+                    worldData.putObject("x200_offset", areaNotesDebug(set.sets200_offset));
+                }
+                else {
+                    ListTag areas = new ListTag();
+                    index.getValue().forEachTrackedArea(trackedArea -> areas.addObject(trackedArea.area));
+                    worldData.putObject("areas", areas);
+                }
+                worlds.putObject(index.getKey(), worldData);
             }
             return worlds;
         });
 
+        // <--[tag]
+        // @attribute <server.flag_cache_debug>
+        // @returns MapTag
+        // @description
+        // Generates a report about the decoded flag cache used for entity, chunk, and block flags.
+        // Includes keys 'hits', 'misses', and 'containers' (the number of data containers with cached flags).
+        // This tag is strictly for internal debugging reasons.
+        // -->
+        tagProcessor.registerTag(MapTag.class, "flag_cache_debug", (attribute, object) -> {
+            MapTag result = new MapTag();
+            result.putObject("hits", new ElementTag(DataPersistenceFlagTracker.decodedCacheHits));
+            result.putObject("misses", new ElementTag(DataPersistenceFlagTracker.decodedCacheMisses));
+            result.putObject("containers", new ElementTag(DataPersistenceFlagTracker.decodedCache.size()));
+            return result;
+        });
+
         // <--[mechanism]
         // @object server
         // @name clean_flags
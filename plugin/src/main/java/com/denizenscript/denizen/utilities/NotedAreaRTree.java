@@ -0,0 +1,354 @@
+package com.denizenscript.denizen.utilities;
+
+import com.denizenscript.denizen.objects.AreaContainmentObject;
+import com.denizenscript.denizen.objects.LocationTag;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An R-tree based area index, used by NotedAreaTracker.
+ * Unlike the grid index, this handles areas of any size equally well, and prunes by Y bounds as well as X/Z.
+ * Uses Guttman's quadratic split for overflowing nodes, and the standard condense-and-reinsert approach for removals.
+ */
+public class NotedAreaRTree implements NotedAreaTracker.AreaIndex {
+
+    public static final int MAX_CHILDREN = 16, MIN_CHILDREN = 6;
+
+    public static final class Node {
+
+        public int lowX, lowY, lowZ, highX, highY, highZ;
+
+        public Node parent;
+
+        /** Null for entries. */
+        public ArrayList<Node> children;
+
+        /** True if this node's children are entries. */
+        public boolean isLeaf;
+
+        /** Only set for entries. */
+        public NotedAreaTracker.TrackedArea area;
+
+        public static Node entry(NotedAreaTracker.TrackedArea area) {
+            Node node = new Node();
+            node.area = area;
+            node.lowX = area.lowX;
+            node.lowY = area.lowY;
+            node.lowZ = area.lowZ;
+            node.highX = area.highX;
+            node.highY = area.highY;
+            node.highZ = area.highZ;
+            return node;
+        }
+
+        public static Node branch(boolean isLeaf) {
+            Node node = new Node();
+            node.isLeaf = isLeaf;
+            node.children = new ArrayList<>(MAX_CHILDREN + 1);
+            return node;
+        }
+
+        public void addChild(Node child) {
+            if (children.isEmpty()) {
+                copyBounds(child);
+            }
+            else {
+                expandTo(child);
+            }
+            children.add(child);
+            child.parent = this;
+        }
+
+        public void copyBounds(Node other) {
+            lowX = other.lowX;
+            lowY = other.lowY;
+            lowZ = other.lowZ;
+            highX = other.highX;
+            highY = other.highY;
+            highZ = other.highZ;
+        }
+
+        public void expandTo(Node other) {
+            lowX = Math.min(lowX, other.lowX);
+            lowY = Math.min(lowY, other.lowY);
+            lowZ = Math.min(lowZ, other.lowZ);
+            highX = Math.max(highX, other.highX);
+            highY = Math.max(highY, other.highY);
+            highZ = Math.max(highZ, other.highZ);
+        }
+
+        public void recalculateBounds() {
+            copyBounds(children.get(0));
+            for (int i = 1; i < children.size(); i++) {
+                expandTo(children.get(i));
+            }
+        }
+
+        public double volume() {
+            return (highX - lowX + 1.0) * (highY - lowY + 1.0) * (highZ - lowZ + 1.0);
+        }
+
+        public double volumeWith(Node other) {
+            return (Math.max(highX, other.highX) - Math.min(lowX, other.lowX) + 1.0)
+                    * (Math.max(highY, other.highY) - Math.min(lowY, other.lowY) + 1.0)
+                    * (Math.max(highZ, other.highZ) - Math.min(lowZ, other.lowZ) + 1.0);
+        }
+
+        public boolean mightContain(int x, int y, int z) {
+            return x >= lowX && x <= highX && z >= lowZ && z <= highZ && y >= lowY && y <= highY;
+        }
+
+        public boolean mightIntersect(NotedAreaTracker.TrackedArea other) {
+            return other.lowX <= highX && other.highX >= lowX && other.lowZ <= highZ && other.highZ >= lowZ && other.lowY <= highY && other.highY >= lowY;
+        }
+
+        public boolean covers(Node other) {
+            return other.lowX >= lowX && other.highX <= highX && other.lowZ >= lowZ && other.highZ <= highZ && other.lowY >= lowY && other.highY <= highY;
+        }
+    }
+
+    public Node root = Node.branch(true);
+
+    public int size = 0;
+
+    @Override
+    public void add(NotedAreaTracker.TrackedArea area) {
+        insert(Node.entry(area));
+        size++;
+    }
+
+    public void insert(Node entry) {
+        Node target = root;
+        while (!target.isLeaf) {
+            target = chooseChild(target, entry);
+        }
+        target.addChild(entry);
+        for (Node parent = target.parent; parent != null; parent = parent.parent) {
+            parent.expandTo(entry);
+        }
+        while (target != null && target.children.size() > MAX_CHILDREN) {
+            Node sibling = split(target);
+            if (target.parent == null) {
+                Node newRoot = Node.branch(false);
+                newRoot.addChild(target);
+                newRoot.addChild(sibling);
+                root = newRoot;
+                break;
+            }
+            target.parent.addChild(sibling);
+            target = target.parent;
+        }
+    }
+
+    public static Node chooseChild(Node parent, Node node) {
+        Node best = null;
+        double bestEnlargement = 0, bestVolume = 0;
+        for (Node child : parent.children) {
+            double volume = child.volume();
+            double enlargement = child.volumeWith(node) - volume;
+            if (best == null || enlargement < bestEnlargement || (enlargement == bestEnlargement && volume < bestVolume)) {
+                best = child;
+                bestEnlargement = enlargement;
+                bestVolume = volume;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Splits an overflowing node, keeping one group in the node itself and returning a new sibling node with the other group.
+     */
+    public static Node split(Node node) {
+        ArrayList<Node> remaining = new ArrayList<>(node.children);
+        int seedA = 0, seedB = 1;
+        double worstWaste = Double.NEGATIVE_INFINITY;
+        for (int a = 0; a < remaining.size(); a++) {
+            Node nodeA = remaining.get(a);
+            double volumeA = nodeA.volume();
+            for (int b = a + 1; b < remaining.size(); b++) {
+                Node nodeB = remaining.get(b);
+                double waste = nodeA.volumeWith(nodeB) - volumeA - nodeB.volume();
+                if (waste > worstWaste) {
+                    worstWaste = waste;
+                    seedA = a;
+                    seedB = b;
+                }
+            }
+        }
+        Node groupB = Node.branch(node.isLeaf);
+        Node firstB = remaining.remove(seedB);
+        Node firstA = remaining.remove(seedA);
+        node.children.clear();
+        node.addChild(firstA);
+        groupB.addChild(firstB);
+        while (!remaining.isEmpty()) {
+            if (node.children.size() + remaining.size() <= MIN_CHILDREN) {
+                for (Node child : remaining) {
+                    node.addChild(child);
+                }
+                break;
+            }
+            if (groupB.children.size() + remaining.size() <= MIN_CHILDREN) {
+                for (Node child : remaining) {
+                    groupB.addChild(child);
+                }
+                break;
+            }
+            int bestIndex = 0;
+            double bestDifference = -1, bestEnlargeA = 0, bestEnlargeB = 0;
+            double volumeA = node.volume(), volumeB = groupB.volume();
+            for (int i = 0; i < remaining.size(); i++) {
+                Node child = remaining.get(i);
+                double enlargeA = node.volumeWith(child) - volumeA, enlargeB = groupB.volumeWith(child) - volumeB;
+                double difference = Math.abs(enlargeA - enlargeB);
+                if (difference > bestDifference) {
+                    bestDifference = difference;
+                    bestIndex = i;
+                    bestEnlargeA = enlargeA;
+                    bestEnlargeB = enlargeB;
+                }
+            }
+            Node child = remaining.remove(bestIndex);
+            boolean toA;
+            if (bestEnlargeA != bestEnlargeB) {
+                toA = bestEnlargeA < bestEnlargeB;
+            }
+            else if (volumeA != volumeB) {
+                toA = volumeA < volumeB;
+            }
+            else {
+                toA = node.children.size() <= groupB.children.size();
+            }
+            (toA ? node : groupB).addChild(child);
+        }
+        return groupB;
+    }
+
+    @Override
+    public boolean remove(NotedAreaTracker.TrackedArea area) {
+        Node search = Node.entry(area);
+        Node entry = findEntry(root, search);
+        if (entry == null) {
+            return false;
+        }
+        Node leaf = entry.parent;
+        leaf.children.remove(entry);
+        size--;
+        condense(leaf);
+        return true;
+    }
+
+    public static Node findEntry(Node node, Node search) {
+        if (!node.covers(search) && !node.children.isEmpty()) {
+            return null;
+        }
+        for (Node child : node.children) {
+            if (node.isLeaf) {
+                if (child.area.equals(search.area)) {
+                    return child;
+                }
+            }
+            else if (child.covers(search)) {
+                Node result = findEntry(child, search);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes underfull nodes on the path from the given node up to the root, reinserting their entries, and tightens the bounds of the rest.
+     * Orphaned entries are always reinserted individually (rather than as whole subtrees), as the tree may have shrunk in height.
+     */
+    public void condense(Node node) {
+        ArrayList<NotedAreaTracker.TrackedArea> orphans = new ArrayList<>();
+        while (node.parent != null) {
+            Node parent = node.parent;
+            if (node.children.size() < MIN_CHILDREN) {
+                parent.children.remove(node);
+                forEachEntry(node, orphans::add);
+            }
+            else {
+                node.recalculateBounds();
+            }
+            node = parent;
+        }
+        if (!root.children.isEmpty()) {
+            root.recalculateBounds();
+        }
+        while (!root.isLeaf && root.children.size() == 1) {
+            root = root.children.get(0);
+            root.parent = null;
+        }
+        if (!root.isLeaf && root.children.isEmpty()) {
+            root = Node.branch(true);
+        }
+        for (NotedAreaTracker.TrackedArea orphan : orphans) {
+            insert(Node.entry(orphan));
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void forEachAreaThatContains(int x, int y, int z, LocationTag location, Consumer<AreaContainmentObject> action) {
+        forEachThatContains(root, x, y, z, location, action);
+    }
+
+    public static void forEachThatContains(Node node, int x, int y, int z, LocationTag location, Consumer<AreaContainmentObject> action) {
+        for (Node child : node.children) {
+            if (!child.mightContain(x, y, z)) {
+                continue;
+            }
+            if (node.isLeaf) {
+                if (child.area.area.doesContainLocation(location)) {
+                    action.accept(child.area.area);
+                }
+            }
+            else {
+                forEachThatContains(child, x, y, z, location, action);
+            }
+        }
+    }
+
+    @Override
+    public void forEachAreaThatIntersects(NotedAreaTracker.TrackedArea box, Consumer<AreaContainmentObject> action) {
+        forEachThatIntersects(root, box, action);
+    }
+
+    public static void forEachThatIntersects(Node node, NotedAreaTracker.TrackedArea box, Consumer<AreaContainmentObject> action) {
+        for (Node child : node.children) {
+            if (!child.mightIntersect(box)) {
+                continue;
+            }
+            if (node.isLeaf) {
+                action.accept(child.area.area);
+            }
+            else {
+                forEachThatIntersects(child, box, action);
+            }
+        }
+    }
+
+    @Override
+    public void forEachTrackedArea(Consumer<NotedAreaTracker.TrackedArea> action) {
+        forEachEntry(root, action);
+    }
+
+    public static void forEachEntry(Node node, Consumer<NotedAreaTracker.TrackedArea> action) {
+        for (Node child : node.children) {
+            if (node.isLeaf) {
+                action.accept(child.area);
+            }
+            else {
+                forEachEntry(child, action);
+            }
+        }
+    }
+}
@@ -4,24 +4,50 @@ import com.denizenscript.denizen.objects.AreaContainmentObject;
 import com.denizenscript.denizen.objects.CuboidTag;
 import com.denizenscript.denizen.objects.LocationTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 /**
  * Special helper class that tracks noted areas in a way that allows for very rapid "get all areas containing" checks, within the confines of the scales that Minecraft normally operates at.
- * This divides all notes first into one distinct set per world, and then within worlds it will sub-divide into 5 sets:
+ * This divides all notes first into one distinct index per world. The index implementation is selectable (see the "Tags.Area index type" config option):
+ * The default "rtree" index is an R-tree (see NotedAreaRTree), which handles areas of any size and prunes by Y as well.
+ * The "grid" index (PerWorldSet) sub-divides within worlds into 5 sets:
  * The "global" set, a 50x50 set, a 200x200 set, and both those sets again but with a half-width offset.
  * Any area that fits within a 50x50 grid gets added to the 50x50 grid... any area below 50x50 in scale that doesn't fit the grid will likely fit the offset grid instead.
  * If the 50x50 grids can't be fit, the 200x200 grids are tried. If those fail, the global set is used.
- * Note that vertical position (Y coordinate) is entirely ignored.
+ * Note that for the grid index, vertical position (Y coordinate) is entirely ignored.
  * Because most noted areas are likely to fit into one of these grids, any lookups can confine themselves to only looking at the Areas defined within the same grid cell.
  * This uses multiple layers of imperfect checks before doing the final exact-containment check, as the imperfect checks are significantly faster to run, especially for complex area shapes like polygons.
  */
 public class NotedAreaTracker {
 
+    /**
+     * A per-world spatial index of tracked areas.
+     */
+    public interface AreaIndex {
+
+        void add(TrackedArea area);
+
+        /**
+         * Returns true if the area was found and removed.
+         */
+        boolean remove(TrackedArea area);
+
+        boolean isEmpty();
+
+        void forEachAreaThatContains(int x, int y, int z, LocationTag location, Consumer<AreaContainmentObject> action);
+
+        void forEachAreaThatIntersects(TrackedArea box, Consumer<AreaContainmentObject> action);
+
+        void forEachTrackedArea(Consumer<TrackedArea> action);
+    }
+
     public static final class TrackedArea {
 
         public TrackedArea(AreaContainmentObject area, LocationTag low, LocationTag high) {
@@ -92,7 +118,7 @@ public class NotedAreaTracker {
         }
     }
 
-    public static final class PerWorldSet {
+    public static final class PerWorldSet implements AreaIndex {
 
         public final AreaSet globalSet = new AreaSet(0, 0);
 
@@ -135,6 +161,7 @@ public class NotedAreaTracker {
             return globalSet;
         }
 
+        @Override
         public boolean isEmpty() {
             return globalSet.isEmpty() && sets50.isEmpty() && sets50_offset.isEmpty() && sets200.isEmpty() && sets200_offset.isEmpty();
         }
@@ -147,23 +174,131 @@ public class NotedAreaTracker {
                 case 4 -> sets200_offset.remove(set.index);
             }
         }
+
+        @Override
+        public void add(TrackedArea area) {
+            bestSetFor(area, true).list.add(area);
+        }
+
+        @Override
+        public boolean remove(TrackedArea area) {
+            AreaSet areaSet = bestSetFor(area, false);
+            if (areaSet == null || !areaSet.list.remove(area)) {
+                return false;
+            }
+            if (areaSet.isEmpty()) {
+                remove(areaSet);
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachAreaThatContains(int x, int y, int z, LocationTag location, Consumer<AreaContainmentObject> action) {
+            forEachAreaInSetThatContains(x, y, z, location, globalSet, action);
+            forEachAreaInSetThatContains(x, y, z, location, sets50.get(getIndex(x, z, 50, 0)), action);
+            forEachAreaInSetThatContains(x, y, z, location, sets50_offset.get(getIndex(x, z, 50, 25)), action);
+            forEachAreaInSetThatContains(x, y, z, location, sets200.get(getIndex(x, z, 200, 0)), action);
+            forEachAreaInSetThatContains(x, y, z, location, sets200_offset.get(getIndex(x, z, 200, 100)), action);
+        }
+
+        @Override
+        public void forEachAreaThatIntersects(TrackedArea area2, Consumer<AreaContainmentObject> action) {
+            double xDistance = area2.highX - area2.lowX, zDistance = area2.highZ - area2.lowZ;
+            forEachAreaInSetThatIntersects(area2, globalSet, action);
+            // Loose heuristic for when a regional-indexed loop is probably counterproductive - total looped regions exceeds 10x actual total areas available
+            if (xDistance * zDistance / (50 * 50) > (sets50.size() + sets50_offset.size()) * 10) {
+                for (AreaSet areaSet : sets50.values()) {
+                    forEachAreaInSetThatIntersects(area2, areaSet, action);
+                }
+                for (AreaSet areaSet : sets50_offset.values()) {
+                    forEachAreaInSetThatIntersects(area2, areaSet, action);
+                }
+            }
+            else {
+                for (int x = area2.lowX - 50; x <= area2.highX + 50; x += 50) {
+                    for (int z = area2.lowZ - 50; z <= area2.highZ + 50; z += 50) {
+                        forEachAreaInSetThatIntersects(area2, sets50.get(getIndex(x, z, 50, 0)), action);
+                        forEachAreaInSetThatIntersects(area2, sets50_offset.get(getIndex(x, z, 50, 25)), action);
+                    }
+                }
+            }
+            if (xDistance * zDistance / (288 * 200) > (sets200.size() + sets200_offset.size()) * 10) {
+                for (AreaSet areaSet : sets200.values()) {
+                    forEachAreaInSetThatIntersects(area2, areaSet, action);
+                }
+                for (AreaSet areaSet : sets200_offset.values()) {
+                    forEachAreaInSetThatIntersects(area2, areaSet, action);
+                }
+            }
+            else {
+                for (int x = area2.lowX - 200; x <= area2.highX + 200; x += 200) {
+                    for (int z = area2.lowZ - 200; z <= area2.highZ + 200; z += 200) {
+                        forEachAreaInSetThatIntersects(area2, sets200.get(getIndex(x, z, 200, 0)), action);
+                        forEachAreaInSetThatIntersects(area2, sets200_offset.get(getIndex(x, z, 200, 100)), action);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void forEachTrackedArea(Consumer<TrackedArea> action) {
+            globalSet.list.forEach(action);
+            for (Int2ObjectOpenHashMap<AreaSet> sets : List.of(sets50, sets50_offset, sets200, sets200_offset)) {
+                for (AreaSet set : sets.values()) {
+                    set.list.forEach(action);
+                }
+            }
+        }
     }
 
-    public static HashMap<String, PerWorldSet> worlds = new HashMap<>();
+    public static HashMap<String, AreaIndex> worlds = new HashMap<>();
+
+    /**
+     * Incremented whenever any area is added or removed, so that users can tell when cached query results are outdated.
+     */
+    public static long changeCount = 0;
+
+    public static String indexType = "rtree";
+
+    public static AreaIndex createIndex() {
+        if (indexType.equals("grid")) {
+            return new PerWorldSet();
+        }
+        return new NotedAreaRTree();
+    }
+
+    /**
+     * Changes the index type used, rebuilding all existing indices if needed.
+     */
+    public static void setIndexType(String type) {
+        type = CoreUtilities.toLowerCase(type);
+        if (!type.equals("grid") && !type.equals("rtree")) {
+            Debug.echoError("Invalid area index type '" + type + "', must be 'rtree' or 'grid'.");
+            type = "rtree";
+        }
+        if (type.equals(indexType)) {
+            return;
+        }
+        indexType = type;
+        for (Map.Entry<String, AreaIndex> world : worlds.entrySet()) {
+            AreaIndex newIndex = createIndex();
+            world.getValue().forEachTrackedArea(newIndex::add);
+            world.setValue(newIndex);
+        }
+    }
 
     /**
      * Call to add an area into the tracker.
      */
     public static void add(AreaContainmentObject area) {
         String worldName = CoreUtilities.toLowerCase(area.getWorld().getName());
-        PerWorldSet set = worlds.get(worldName);
-        if (set == null) {
-            set = new PerWorldSet();
-            worlds.put(worldName, set);
+        AreaIndex index = worlds.get(worldName);
+        if (index == null) {
+            index = createIndex();
+            worlds.put(worldName, index);
         }
-        TrackedArea tracker = new TrackedArea(area);
-        AreaSet areaSet = set.bestSetFor(tracker, true);
-        areaSet.list.add(tracker);
+        index.add(new TrackedArea(area));
+        changeCount++;
     }
 
     /**
@@ -171,21 +306,13 @@ public class NotedAreaTracker {
      */
     public static void remove(AreaContainmentObject area) {
         String worldName = CoreUtilities.toLowerCase(area.getWorld().getName());
-        PerWorldSet set = worlds.get(worldName);
-        if (set == null) {
+        AreaIndex index = worlds.get(worldName);
+        if (index == null) {
             return;
         }
-        TrackedArea tracker = new TrackedArea(area);
-        AreaSet areaSet = set.bestSetFor(tracker, false);
-        if (areaSet == null) {
-            return;
-        }
-        areaSet.list.remove(tracker);
-        if (areaSet.isEmpty()) {
-            set.remove(areaSet);
-            if (set.isEmpty()) {
-                worlds.remove(worldName);
-            }
+        changeCount++;
+        if (index.remove(new TrackedArea(area)) && index.isEmpty()) {
+            worlds.remove(worldName);
         }
     }
 
@@ -204,16 +331,11 @@ public class NotedAreaTracker {
      * Call to run an action over every Area that contains a given location.
      */
     public static void forEachAreaThatContains(LocationTag location, Consumer<AreaContainmentObject> action) {
-        int x = location.getBlockX(), y = location.getBlockY(), z = location.getBlockZ();
-        PerWorldSet set = worlds.get(CoreUtilities.toLowerCase(location.getWorldName()));
-        if (set == null) {
+        AreaIndex index = worlds.get(CoreUtilities.toLowerCase(location.getWorldName()));
+        if (index == null) {
             return;
         }
-        forEachAreaInSetThatContains(x, y, z, location, set.globalSet, action);
-        forEachAreaInSetThatContains(x, y, z, location, set.sets50.get(PerWorldSet.getIndex(x, z, 50, 0)), action);
-        forEachAreaInSetThatContains(x, y, z, location, set.sets50_offset.get(PerWorldSet.getIndex(x, z, 50, 25)), action);
-        forEachAreaInSetThatContains(x, y, z, location, set.sets200.get(PerWorldSet.getIndex(x, z, 200, 0)), action);
-        forEachAreaInSetThatContains(x, y, z, location, set.sets200_offset.get(PerWorldSet.getIndex(x, z, 200, 100)), action);
+        index.forEachAreaThatContains(location.getBlockX(), location.getBlockY(), location.getBlockZ(), location, action);
     }
 
     public static void forEachAreaInSetThatIntersects(TrackedArea area2, AreaSet set, Consumer<AreaContainmentObject> action) {
@@ -232,43 +354,10 @@ public class NotedAreaTracker {
         min = pair.low;
         max = pair.high;
         TrackedArea area2 = new TrackedArea(null, min, max);
-        PerWorldSet set = worlds.get(CoreUtilities.toLowerCase(min.getWorldName()));
-        if (set == null) {
+        AreaIndex index = worlds.get(CoreUtilities.toLowerCase(min.getWorldName()));
+        if (index == null) {
             return;
         }
-        forEachAreaInSetThatIntersects(area2, set.globalSet, action);
-        // Loose heuristic for when a regional-indexed loop is probably counterproductive - total looped regions exceeds 10x actual total areas available
-        if (pair.xDistance() * pair.zDistance() / (50 * 50) > (set.sets50.size() + set.sets50_offset.size()) * 10) {
-            for (AreaSet areaSet : set.sets50.values()) {
-                forEachAreaInSetThatIntersects(area2, areaSet, action);
-            }
-            for (AreaSet areaSet : set.sets50_offset.values()) {
-                forEachAreaInSetThatIntersects(area2, areaSet, action);
-            }
-        }
-        else {
-            for (int x = area2.lowX - 50; x <= area2.highX + 50; x += 50) {
-                for (int z = area2.lowZ - 50; z <= area2.highZ + 50; z += 50) {
-                    forEachAreaInSetThatIntersects(area2, set.sets50.get(PerWorldSet.getIndex(x, z, 50, 0)), action);
-                    forEachAreaInSetThatIntersects(area2, set.sets50_offset.get(PerWorldSet.getIndex(x, z, 50, 25)), action);
-                }
-            }
-        }
-        if (pair.xDistance() * pair.zDistance() / (288 * 200) > (set.sets200.size() + set.sets200_offset.size()) * 10) {
-            for (AreaSet areaSet : set.sets200.values()) {
-                forEachAreaInSetThatIntersects(area2, areaSet, action);
-            }
-            for (AreaSet areaSet : set.sets200_offset.values()) {
-                forEachAreaInSetThatIntersects(area2, areaSet, action);
-            }
-        }
-        else {
-            for (int x = area2.lowX - 200; x <= area2.highX + 200; x += 200) {
-                for (int z = area2.lowZ - 200; z <= area2.highZ + 200; z += 200) {
-                    forEachAreaInSetThatIntersects(area2, set.sets200.get(PerWorldSet.getIndex(x, z, 200, 0)), action);
-                    forEachAreaInSetThatIntersects(area2, set.sets200_offset.get(PerWorldSet.getIndex(x, z, 200, 100)), action);
-                }
-            }
-        }
+        index.forEachAreaThatIntersects(area2, action);
     }
 }
@@ -4,7 +4,9 @@ import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.objects.PolygonTag;
 import com.denizenscript.denizen.scripts.commands.entity.RemoveCommand;
 import com.denizenscript.denizen.tags.core.CustomColorTagBase;
+import com.denizenscript.denizen.utilities.blocks.SchematicCache;
 import com.denizenscript.denizen.utilities.flags.PlayerFlagHandler;
+import com.denizenscript.denizen.utilities.flags.PlayerFlagQuery;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.objects.core.DurationTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
@@ -82,6 +84,7 @@ public class Settings {
         }
         // Spigot
         PolygonTag.preferInclusive = config.getBoolean("Tags.Polygon default inclusive", false);
+        NotedAreaTracker.setIndexType(config.getString("Tags.Area index type", "rtree"));
         allowAsyncPassThrough = config.getBoolean("Scripts.Economy.Pass async to main thread", false);
         skipChunkFlagCleaning = config.getBoolean("Saves.Skip chunk flag cleaning", false);
         nullifySkullSkinIds = config.getBoolean("Tags.Nullify skull skin ids", false);
@@ -133,7 +136,12 @@ public class Settings {
         PlayerFlagHandler.cacheTimeoutSeconds = config.getLong("Saves.Offline player cache timeout", 300);
         PlayerFlagHandler.asyncPreload = config.getBoolean("Saves.Load async on login", true);
         PlayerFlagHandler.saveOnlyWhenWorldSaveOn = config.getBoolean("Saves.Only save if world save is on", false);
+        PlayerFlagHandler.binaryFormat = config.getBoolean("Saves.Binary player flags", false);
+        PlayerFlagHandler.secondaryCacheSize = config.getInt("Saves.Offline player secondary cache size", 1000);
+        PlayerFlagQuery.useIndex = config.getBoolean("Saves.Player flag query index", true);
         RemoveCommand.alwaysWarnOnMassRemove = config.getBoolean("Commands.Remove.Always warn on mass delete", false);
+        SchematicCache.enabled = config.getBoolean("Commands.Schematic.Cache.Enabled", true);
+        SchematicCache.maxMappedBytes = config.getLong("Commands.Schematic.Cache.Max mapped megabytes", 1024) * 1024L * 1024L;
         ConfigurationSection colorSection = config.getConfigurationSection("Colors");
         if (colorSection != null) {
             CustomColorTagBase.customColors.clear();
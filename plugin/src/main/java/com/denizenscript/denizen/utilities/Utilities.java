@@ -39,12 +39,32 @@ import org.bukkit.util.Vector;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class has utility methods for various tasks.
  */
 public class Utilities {
 
+    private static ForkJoinPool workerPool;
+
+    /**
+     * Gets the pool used for parallel background work, like large block scans and offline flag queries.
+     */
+    public static synchronized ForkJoinPool getWorkerPool() {
+        if (workerPool == null) {
+            workerPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        }
+        return workerPool;
+    }
+
+    public static synchronized void shutdownWorkerPool() {
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+            workerPool = null;
+        }
+    }
+
     public static NamespacedKey parseNamespacedKey(String input) {
         input = CoreUtilities.toLowerCase(input);
         int colonIndex = input.indexOf(':');
@@ -0,0 +1,330 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import com.denizenscript.denizen.objects.LocationTag;
+import com.denizenscript.denizen.objects.MaterialTag;
+import com.denizenscript.denizen.utilities.Utilities;
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Scans a box of blocks against a material matcher, using chunk snapshots for large boxes rather than live per-block world access.
+ * The matcher is compiled once per scan, with results cached per material (or per block state for property matchers),
+ * and all-air sections are skipped entirely when the matcher can't match air.
+ */
+public class BlockScanner {
+
+    public interface PositionFilter {
+        boolean test(int x, int y, int z);
+    }
+
+    public interface BlockConsumer {
+        void accept(int x, int y, int z);
+    }
+
+    public static class CompiledMatcher {
+
+        public final String matcher;
+
+        public final TagContext context;
+
+        /** True if the matcher checks block properties, and so must be cached per block state rather than per material. */
+        public final boolean perState;
+
+        /** True if the matcher depends on more than the block itself (like "block_flagged:"), and so must be checked against the live world on the main thread. */
+        public final boolean locationDependent;
+
+        public final boolean matchesAir;
+
+        /** 0 for not yet checked, 1 for match, 2 for no match. */
+        private final byte[] materialResults = new byte[Material.values().length];
+
+        private final ConcurrentHashMap<BlockData, Boolean> stateResults = new ConcurrentHashMap<>();
+
+        /**
+         * Compiles a LocationTag matcher for scanning. A null matcher matches every block.
+         */
+        public CompiledMatcher(String matcher, TagContext context) {
+            this.matcher = matcher;
+            this.context = context;
+            if (matcher == null) {
+                perState = false;
+                locationDependent = false;
+                matchesAir = true;
+                return;
+            }
+            String matcherLow = CoreUtilities.toLowerCase(matcher);
+            perState = matcherLow.contains("[");
+            boolean dependent = matcherLow.contains("block_flagged:") || matcherLow.contains("location_in:");
+            if (!dependent) {
+                for (String part : CoreUtilities.split(matcherLow.replace('&', '|'), '|')) {
+                    String trimmed = part.trim();
+                    if (trimmed.startsWith("!")) {
+                        trimmed = trimmed.substring(1);
+                    }
+                    if (trimmed.equals("location")) {
+                        dependent = true;
+                        break;
+                    }
+                }
+            }
+            locationDependent = dependent;
+            matchesAir = locationDependent || matchesAirType(Material.AIR) || matchesAirType(Material.CAVE_AIR) || matchesAirType(Material.VOID_AIR);
+        }
+
+        private boolean matchesAirType(Material material) {
+            return perState ? matchesState(material.createBlockData()) : matchesMaterial(material);
+        }
+
+        /**
+         * Fills the per-material cache for every block material, so that non-property matchers can be safely used from other threads.
+         */
+        public void precomputeMaterials() {
+            if (matcher == null || perState || locationDependent) {
+                return;
+            }
+            for (Material material : Material.values()) {
+                if (material.isBlock() && !material.isLegacy()) {
+                    matchesMaterial(material);
+                }
+            }
+        }
+
+        public boolean matchesMaterial(Material material) {
+            int ordinal = material.ordinal();
+            byte result = materialResults[ordinal];
+            if (result == 0) {
+                result = new MaterialTag(material).tryAdvancedMatcher(matcher, context) ? (byte) 1 : (byte) 2;
+                materialResults[ordinal] = result;
+            }
+            return result == 1;
+        }
+
+        public boolean matchesState(BlockData data) {
+            return stateResults.computeIfAbsent(data, (d) -> new MaterialTag(d).tryAdvancedMatcher(matcher, context));
+        }
+
+        public boolean matches(ChunkSnapshot snapshot, World world, int x, int y, int z) {
+            if (matcher == null) {
+                return true;
+            }
+            if (locationDependent) {
+                return new LocationTag(world, x, y, z).tryAdvancedMatcher(matcher, context);
+            }
+            if (perState) {
+                return matchesState(snapshot.getBlockData(x & 15, y, z & 15));
+            }
+            return matchesMaterial(snapshot.getBlockType(x & 15, y, z & 15));
+        }
+    }
+
+    /** Boxes with fewer blocks than this are read live from the world, as snapshotting whole chunks would cost more than the reads themselves. */
+    public static final long SNAPSHOT_MIN_VOLUME = 16 * 16 * 16 * 4;
+
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Packs a block (or section) position into a long, with 26 bits each for X and Z, and 12 bits for Y.
+     */
+    public static long packPosition(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    public static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    public final World world;
+
+    public final int minX, minY, minZ, maxX, maxY, maxZ;
+
+    public final CompiledMatcher matcher;
+
+    public final boolean useSnapshots;
+
+    public PositionFilter filter;
+
+    /** The maximum number of block positions to check in {@link #scan}, or 0 for no limit. */
+    public int limit;
+
+    public int blocksRead;
+
+    public boolean limitHit;
+
+    public final Long2ObjectOpenHashMap<ChunkSnapshot> snapshots = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Prepares a scan of the given block box (inclusive), clamped to the world's height range.
+     */
+    public BlockScanner(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, CompiledMatcher matcher) {
+        this.world = world;
+        this.minX = minX;
+        this.minY = Math.max(minY, world.getMinHeight());
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = Math.min(maxY, world.getMaxHeight() - 1);
+        this.maxZ = maxZ;
+        this.matcher = matcher;
+        long volume = (long) (maxX - minX + 1) * (this.maxY - this.minY + 1) * (maxZ - minZ + 1);
+        useSnapshots = volume >= SNAPSHOT_MIN_VOLUME;
+    }
+
+    /**
+     * Gets a snapshot of the given chunk, or null if the chunk isn't loaded. Never loads chunks. Must be called on the main thread.
+     */
+    public ChunkSnapshot getSnapshot(int chunkX, int chunkZ) {
+        long key = chunkKey(chunkX, chunkZ);
+        ChunkSnapshot snapshot = snapshots.get(key);
+        if (snapshot == null && !snapshots.containsKey(key)) {
+            if (world.isChunkLoaded(chunkX, chunkZ)) {
+                snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false);
+            }
+            snapshots.put(key, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Checks a single block against the matcher. Blocks in unloaded chunks never match, unless the matcher doesn't need to read the block.
+     * Must be called on the main thread.
+     */
+    public boolean matchesBlock(int x, int y, int z) {
+        if (matcher.matcher == null) {
+            return true;
+        }
+        if (matcher.locationDependent) {
+            return new LocationTag(world, x, y, z).tryAdvancedMatcher(matcher.matcher, matcher.context);
+        }
+        if (!useSnapshots) {
+            if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+                return false;
+            }
+            Block block = world.getBlockAt(x, y, z);
+            return matcher.perState ? matcher.matchesState(block.getBlockData()) : matcher.matchesMaterial(block.getType());
+        }
+        ChunkSnapshot snapshot = getSnapshot(x >> 4, z >> 4);
+        return snapshot != null && matcher.matches(snapshot, world, x, y, z);
+    }
+
+    /**
+     * Returns a predicate that checks a block location against the matcher, for use with existing per-location block loops.
+     * Must only be used on the main thread.
+     */
+    public Predicate<Location> asPredicate() {
+        return (loc) -> {
+            int y = loc.getBlockY();
+            if (y < world.getMinHeight() || y >= world.getMaxHeight()) {
+                return false;
+            }
+            return matchesBlock(loc.getBlockX(), y, loc.getBlockZ());
+        };
+    }
+
+    /**
+     * Scans the part of the box within the given chunk snapshot. Safe to call from any thread if the filter is, and the matcher's materials were precomputed.
+     */
+    public void scanChunk(ChunkSnapshot snapshot, BlockConsumer output) {
+        int chunkMinX = snapshot.getX() << 4, chunkMinZ = snapshot.getZ() << 4;
+        int startX = Math.max(minX, chunkMinX), endX = Math.min(maxX, chunkMinX + 15);
+        int startZ = Math.max(minZ, chunkMinZ), endZ = Math.min(maxZ, chunkMinZ + 15);
+        int worldMinSection = world.getMinHeight() >> 4;
+        for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+            if (!matcher.matchesAir && snapshot.isSectionEmpty(sectionY - worldMinSection)) {
+                continue;
+            }
+            int startY = Math.max(minY, sectionY << 4), endY = Math.min(maxY, (sectionY << 4) + 15);
+            for (int y = startY; y <= endY; y++) {
+                for (int x = startX; x <= endX; x++) {
+                    for (int z = startZ; z <= endZ; z++) {
+                        if ((filter == null || filter.test(x, y, z)) && matcher.matches(snapshot, world, x, y, z)) {
+                            output.accept(x, y, z);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans the full box on the current thread, in Y, X, Z order, stopping once the limit is hit. Never loads chunks. Must be called on the main thread.
+     */
+    public void scan(BlockConsumer output) {
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    if (limit > 0 && ++blocksRead > limit) {
+                        limitHit = true;
+                        return;
+                    }
+                    if ((filter == null || filter.test(x, y, z)) && matchesBlock(x, y, z)) {
+                        output.accept(x, y, z);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Snapshots all currently loaded chunks in the box, then scans them in parallel on the shared worker pool.
+     * Must be called on the main thread. The matcher must not be location dependent or check block properties, as those can't be safely checked off-thread.
+     * The read limit and filter are not used. The filter given here must be safe to call from any thread.
+     */
+    public CompletableFuture<List<LocationTag>> scanAsync(PositionFilter threadSafeFilter) {
+        if (matcher.locationDependent || matcher.perState) {
+            throw new IllegalStateException("Matcher '" + matcher.matcher + "' cannot be checked off the main thread.");
+        }
+        matcher.precomputeMaterials();
+        List<ChunkSnapshot> chunks = new ArrayList<>();
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                if (world.isChunkLoaded(chunkX, chunkZ)) {
+                    chunks.add(getSnapshot(chunkX, chunkZ));
+                }
+            }
+        }
+        CompletableFuture<List<LocationTag>> future = new CompletableFuture<>();
+        DenizenCore.runAsync(() -> {
+            try {
+                List<List<LocationTag>> perChunk = Utilities.getWorkerPool().submit(() -> chunks.parallelStream().map(snapshot -> {
+                    List<LocationTag> found = new ArrayList<>();
+                    BlockScanner worker = new BlockScanner(world, minX, minY, minZ, maxX, maxY, maxZ, matcher);
+                    worker.filter = threadSafeFilter;
+                    worker.scanChunk(snapshot, (x, y, z) -> found.add(new LocationTag(world, x, y, z)));
+                    return found;
+                }).toList()).get();
+                List<LocationTag> result = new ArrayList<>();
+                for (List<LocationTag> found : perChunk) {
+                    result.addAll(found);
+                }
+                future.complete(result);
+            }
+            catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+}
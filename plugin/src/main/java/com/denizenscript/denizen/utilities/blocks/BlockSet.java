@@ -21,9 +21,11 @@ public interface BlockSet {
         public List<PlayerTag> fakeTo;
 
         public DurationTag fakeDuration;
+
+        public FakeBlockRegion fakeRegion;
     }
 
-    FullBlockData[] getBlocks();
+    PaletteBlockStorage getBlocks();
 
     void setBlocksDelayed(final Runnable runme, final InputParams input, long maxDelayMs);
 
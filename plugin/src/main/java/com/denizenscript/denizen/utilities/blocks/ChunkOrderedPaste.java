@@ -0,0 +1,145 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import com.denizenscript.denizen.nms.NMSHandler;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+/**
+ * Pastes a CuboidBlockSet one chunk section at a time, going through the target area chunk by chunk.
+ * When pasting real blocks, plain block states are written directly into chunk sections (where the server version supports it),
+ * with heightmaps and lighting updated once per chunk after all of its sections are written, and the chunk resent to players once its lighting is done.
+ */
+public class ChunkOrderedPaste {
+
+    public final CuboidBlockSet set;
+
+    public final BlockSet.InputParams input;
+
+    public final World world;
+
+    /** World coordinates of the schematic's minimum corner. */
+    public final int originX, originY, originZ;
+
+    /** The world block range to paste, with Y clamped to the world's height range. */
+    public final int minX, minY, minZ, maxX, maxY, maxZ;
+
+    public final int minChunkX, minChunkZ, chunkCountX, chunkCount;
+
+    public int chunkIndex = 0;
+
+    public int sectionY;
+
+    public boolean directWrites;
+
+    private final short[] positions = new short[4096];
+
+    private final BlockData[] states = new BlockData[4096];
+
+    private final LongArrayList changedPositions = new LongArrayList();
+
+    public ChunkOrderedPaste(CuboidBlockSet set, BlockSet.InputParams input) {
+        this.set = set;
+        this.input = input;
+        world = input.centerLocation.getWorld();
+        originX = input.centerLocation.getBlockX() - set.center_x;
+        originY = input.centerLocation.getBlockY() - set.center_y;
+        originZ = input.centerLocation.getBlockZ() - set.center_z;
+        minX = originX;
+        minY = Math.max(originY, world.getMinHeight());
+        minZ = originZ;
+        maxX = originX + set.x_width - 1;
+        maxY = Math.min(originY + set.y_length - 1, world.getMaxHeight() - 1);
+        maxZ = originZ + set.z_height - 1;
+        minChunkX = minX >> 4;
+        minChunkZ = minZ >> 4;
+        chunkCountX = (maxX >> 4) - minChunkX + 1;
+        chunkCount = minY > maxY ? 0 : chunkCountX * ((maxZ >> 4) - minChunkZ + 1);
+        sectionY = minY >> 4;
+        directWrites = input.fakeTo == null;
+    }
+
+    public boolean isDone() {
+        return chunkIndex >= chunkCount;
+    }
+
+    /**
+     * Pastes sections until the paste is done, or until the given number of milliseconds have passed (0 for no limit).
+     * Returns true if the paste is done.
+     */
+    public boolean pasteFor(long maxDelayMs) {
+        long start = CoreUtilities.monotonicMillis();
+        while (chunkIndex < chunkCount) {
+            Chunk chunk = world.getChunkAt(minChunkX + chunkIndex % chunkCountX, minChunkZ + chunkIndex / chunkCountX);
+            pasteSection(chunk, sectionY++);
+            if (sectionY > maxY >> 4) {
+                finishChunk(chunk);
+                chunkIndex++;
+                sectionY = minY >> 4;
+            }
+            if (maxDelayMs > 0 && CoreUtilities.monotonicMillis() - start > maxDelayMs) {
+                break;
+            }
+        }
+        return isDone();
+    }
+
+    public void pasteSection(Chunk chunk, int section) {
+        int chunkMinX = chunk.getX() << 4, chunkMinZ = chunk.getZ() << 4;
+        int startX = Math.max(minX, chunkMinX), endX = Math.min(maxX, chunkMinX + 15);
+        int startZ = Math.max(minZ, chunkMinZ), endZ = Math.min(maxZ, chunkMinZ + 15);
+        int startY = Math.max(minY, section << 4), endY = Math.min(maxY, (section << 4) + 15);
+        PaletteBlockStorage blocks = set.blocks;
+        int count = 0;
+        for (int y = startY; y <= endY; y++) {
+            for (int z = startZ; z <= endZ; z++) {
+                for (int x = startX; x <= endX; x++) {
+                    int index = set.indexOf(x - originX, y - originY, z - originZ);
+                    BlockData data = blocks.getData(index);
+                    Material material = data.getMaterial();
+                    if (material == Material.STRUCTURE_VOID || (input.noAir && material == Material.AIR)) {
+                        continue;
+                    }
+                    if (input.mask != null && !input.mask.contains(chunk.getBlock(x & 15, y, z & 15).getType())) {
+                        continue;
+                    }
+                    if (input.fakeTo != null) {
+                        input.fakeRegion.setBlock(x, y, z, data);
+                    }
+                    else if (directWrites && !blocks.tileEntities.containsKey(index) && !blocks.flags.containsKey(index)) {
+                        positions[count] = (short) (((y & 15) << 8) | ((z & 15) << 4) | (x & 15));
+                        states[count++] = data;
+                    }
+                    else {
+                        blocks.get(index).set(chunk.getBlock(x & 15, y, z & 15), false);
+                    }
+                }
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        if (!NMSHandler.blockHelper.setBlocksDirect(chunk, section, positions, states, count, changedPositions)) {
+            directWrites = false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (states[i] != null) {
+                int position = positions[i];
+                chunk.getBlock(position & 15, (section << 4) + ((position >> 8) & 15), (position >> 4) & 15).setBlockData(states[i], false);
+                states[i] = null;
+            }
+        }
+    }
+
+    public void finishChunk(Chunk chunk) {
+        if (changedPositions.isEmpty()) {
+            return;
+        }
+        int chunkX = chunk.getX(), chunkZ = chunk.getZ();
+        NMSHandler.blockHelper.finishDirectWrites(chunk, changedPositions, () -> world.refreshChunk(chunkX, chunkZ));
+        changedPositions.clear();
+    }
+}
@@ -0,0 +1,242 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import com.denizenscript.denizen.nms.NMSHandler;
+import com.denizenscript.denizen.nms.util.jnbt.CompoundTag;
+import com.denizenscript.denizen.objects.AreaContainmentObject;
+import com.denizenscript.denizen.utilities.Utilities;
+import com.denizenscript.denizen.utilities.flags.ChunkFlagIndex;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Captures an area of the world into a CuboidBlockSet using chunk snapshots, rather than live per-block world access.
+ * Only taking the snapshots (along with tile entity data and flags, collected once per chunk) happens on the main thread.
+ * Converting the snapshots into the block set is thread-safe, and is done in parallel on the block scanner worker pool.
+ */
+public class ChunkSnapshotCapture {
+
+    public static class CapturedChunk {
+
+        public final ChunkSnapshot snapshot;
+
+        /** Keyed by world position, packed via {@link BlockScanner#packPosition}. */
+        public final Long2ObjectOpenHashMap<CompoundTag> tileEntities = new Long2ObjectOpenHashMap<>();
+
+        public final Long2ObjectOpenHashMap<MapTag> flags = new Long2ObjectOpenHashMap<>();
+
+        public CapturedChunk(ChunkSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    public static class ConvertedChunk {
+
+        public final CapturedChunk source;
+
+        public final ArrayList<BlockData> palette = new ArrayList<>();
+
+        /** Local palette IDs, in x/y/z order over the part of the area within the chunk. */
+        public int[] ids;
+
+        public ConvertedChunk(CapturedChunk source) {
+            this.source = source;
+        }
+    }
+
+    public static final BlockData VOID_AIR = Material.VOID_AIR.createBlockData();
+
+    public final CuboidBlockSet set;
+
+    public final World world;
+
+    public final int lowX, lowY, lowZ;
+
+    public final HashSet<Material> mask;
+
+    public final boolean copyFlags;
+
+    public final int minChunkX, minChunkZ, chunkCountX, chunkCount;
+
+    public final List<CapturedChunk> captured = new ArrayList<>();
+
+    /**
+     * Prepares a capture into a set whose size, constraint, and block storage are already set up, with the given world location as its minimum corner.
+     */
+    public ChunkSnapshotCapture(CuboidBlockSet set, Location low, HashSet<Material> mask, boolean copyFlags) {
+        this.set = set;
+        this.mask = mask;
+        this.copyFlags = copyFlags;
+        world = low.getWorld();
+        lowX = low.getBlockX();
+        lowY = low.getBlockY();
+        lowZ = low.getBlockZ();
+        minChunkX = lowX >> 4;
+        minChunkZ = lowZ >> 4;
+        chunkCountX = ((lowX + set.x_width - 1) >> 4) - minChunkX + 1;
+        chunkCount = chunkCountX * (((lowZ + set.z_height - 1) >> 4) - minChunkZ + 1);
+    }
+
+    public boolean isCaptured() {
+        return captured.size() >= chunkCount;
+    }
+
+    /**
+     * Captures chunks until all are captured, or until the given number of milliseconds have passed (0 for no limit). Must be called on the main thread.
+     * Returns true if all chunks are captured.
+     */
+    public boolean captureFor(long maxDelayMs) {
+        long start = CoreUtilities.monotonicMillis();
+        while (!isCaptured()) {
+            int index = captured.size();
+            captured.add(captureChunk(world.getChunkAt(minChunkX + index % chunkCountX, minChunkZ + index / chunkCountX)));
+            if (maxDelayMs > 0 && CoreUtilities.monotonicMillis() - start > maxDelayMs) {
+                break;
+            }
+        }
+        return isCaptured();
+    }
+
+    public boolean isInArea(int x, int y, int z) {
+        return x >= lowX && y >= lowY && z >= lowZ && x < lowX + set.x_width && y < lowY + set.y_length && z < lowZ + set.z_height;
+    }
+
+    public CapturedChunk captureChunk(Chunk chunk) {
+        CapturedChunk result = new CapturedChunk(chunk.getChunkSnapshot(false, false, false));
+        for (BlockState state : chunk.getTileEntities()) {
+            if (isInArea(state.getX(), state.getY(), state.getZ())) {
+                CompoundTag tileEntity = NMSHandler.blockHelper.getNbtData(state.getBlock());
+                if (tileEntity != null) {
+                    result.tileEntities.put(BlockScanner.packPosition(state.getX(), state.getY(), state.getZ()), tileEntity);
+                }
+            }
+        }
+        if (copyFlags) {
+            Location ref = new Location(world, 0, 0, 0);
+            for (long packed : ChunkFlagIndex.getAllPositions(chunk)) {
+                int x = BlockScanner.unpackX(packed), y = BlockScanner.unpackY(packed), z = BlockScanner.unpackZ(packed);
+                if (isInArea(x, y, z)) {
+                    ref.setX(x);
+                    ref.setY(y);
+                    ref.setZ(z);
+                    MapTag flags = FullBlockData.readFlags(ref);
+                    if (flags != null) {
+                        result.flags.put(packed, flags);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts one captured chunk into a local palette and IDs. Safe to call from any thread, so long as the set's constraint is.
+     */
+    public ConvertedChunk convertChunk(CapturedChunk chunk) {
+        ConvertedChunk result = new ConvertedChunk(chunk);
+        Object2IntOpenHashMap<BlockData> paletteIds = new Object2IntOpenHashMap<>();
+        paletteIds.defaultReturnValue(-1);
+        ChunkSnapshot snapshot = chunk.snapshot;
+        int chunkMinX = snapshot.getX() << 4, chunkMinZ = snapshot.getZ() << 4;
+        int startX = Math.max(lowX, chunkMinX), endX = Math.min(lowX + set.x_width - 1, chunkMinX + 15);
+        int startZ = Math.max(lowZ, chunkMinZ), endZ = Math.min(lowZ + set.z_height - 1, chunkMinZ + 15);
+        int minHeight = world.getMinHeight(), maxHeight = world.getMaxHeight();
+        AreaContainmentObject constraint = set.constraint;
+        Location refLoc = constraint == null ? null : new Location(world, 0, 0, 0);
+        result.ids = new int[(endX - startX + 1) * set.y_length * (endZ - startZ + 1)];
+        int index = 0;
+        for (int x = startX; x <= endX; x++) {
+            for (int y = lowY; y < lowY + set.y_length; y++) {
+                for (int z = startZ; z <= endZ; z++) {
+                    BlockData data;
+                    if (constraint != null) {
+                        refLoc.setX(x + 0.5);
+                        refLoc.setY(y + 0.5);
+                        refLoc.setZ(z + 0.5);
+                    }
+                    if (constraint != null && !constraint.doesContainLocation(refLoc)) {
+                        data = CuboidBlockSet.STRUCTURE_VOID.data;
+                    }
+                    else {
+                        data = y < minHeight || y >= maxHeight ? VOID_AIR : snapshot.getBlockData(x & 15, y, z & 15);
+                        if (mask != null && !mask.contains(data.getMaterial())) {
+                            data = CuboidBlockSet.STRUCTURE_VOID.data;
+                        }
+                    }
+                    int id = paletteIds.getInt(data);
+                    if (id == -1) {
+                        id = result.palette.size();
+                        result.palette.add(data);
+                        paletteIds.put(data, id);
+                    }
+                    result.ids[index++] = id;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes a converted chunk into the block set. Must not be called for two chunks of the same set at once.
+     */
+    public void store(ConvertedChunk chunk) {
+        PaletteBlockStorage blocks = set.blocks;
+        int[] storageIds = new int[chunk.palette.size()];
+        for (int i = 0; i < storageIds.length; i++) {
+            storageIds[i] = blocks.getOrAddPaletteId(chunk.palette.get(i));
+        }
+        int chunkMinX = chunk.source.snapshot.getX() << 4, chunkMinZ = chunk.source.snapshot.getZ() << 4;
+        int startX = Math.max(lowX, chunkMinX), endX = Math.min(lowX + set.x_width - 1, chunkMinX + 15);
+        int startZ = Math.max(lowZ, chunkMinZ), endZ = Math.min(lowZ + set.z_height - 1, chunkMinZ + 15);
+        int index = 0;
+        for (int x = startX; x <= endX; x++) {
+            for (int y = 0; y < set.y_length; y++) {
+                for (int z = startZ; z <= endZ; z++) {
+                    blocks.setPaletteId(set.indexOf(x - lowX, y, z - lowZ), storageIds[chunk.ids[index++]]);
+                }
+            }
+        }
+        // Blocks excluded by the mask or constraint are structure voids, and don't keep their tile entity data or flags
+        for (Long2ObjectMap.Entry<CompoundTag> entry : chunk.source.tileEntities.long2ObjectEntrySet()) {
+            int tileIndex = toIndex(entry.getLongKey());
+            if (blocks.getData(tileIndex).getMaterial() != Material.STRUCTURE_VOID) {
+                blocks.setTileEntity(tileIndex, entry.getValue());
+            }
+        }
+        for (Long2ObjectMap.Entry<MapTag> entry : chunk.source.flags.long2ObjectEntrySet()) {
+            int flagIndex = toIndex(entry.getLongKey());
+            if (blocks.getData(flagIndex).getMaterial() != Material.STRUCTURE_VOID) {
+                blocks.setFlags(flagIndex, entry.getValue());
+            }
+        }
+    }
+
+    private int toIndex(long packed) {
+        return set.indexOf(BlockScanner.unpackX(packed) - lowX, BlockScanner.unpackY(packed) - lowY, BlockScanner.unpackZ(packed) - lowZ);
+    }
+
+    /**
+     * Converts all captured chunks in parallel on the worker pool, storing each into the block set as it's done.
+     * Blocks the calling thread until finished.
+     */
+    public void convert() throws Exception {
+        Utilities.getWorkerPool().submit(() -> captured.parallelStream().map(this::convertChunk).forEach(converted -> {
+            synchronized (this) {
+                store(converted);
+            }
+        })).get();
+    }
+}
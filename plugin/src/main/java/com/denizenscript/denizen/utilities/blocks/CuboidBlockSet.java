@@ -5,16 +5,15 @@ import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.nms.NMSVersion;
 import com.denizenscript.denizen.objects.*;
 import com.denizenscript.denizen.scripts.commands.world.SchematicCommand;
-import com.denizenscript.denizen.utilities.Utilities;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.objects.Mechanism;
 import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
@@ -24,6 +23,7 @@ import org.bukkit.util.Vector;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.function.Consumer;
 
 public class CuboidBlockSet implements BlockSet {
 
@@ -32,7 +32,10 @@ public class CuboidBlockSet implements BlockSet {
     public CuboidBlockSet() {
     }
 
-    public void buildImmediate(AreaContainmentObject area, Location center, HashSet<Material> mask, boolean copyFlags) {
+    /**
+     * Sets up the size, center, and block storage of this set for the given area, returning the area's minimum corner.
+     */
+    public Location initArea(AreaContainmentObject area, Location center, boolean copyFlags) {
         hasFlags = copyFlags;
         CuboidTag boundary;
         if (area instanceof CuboidTag && ((CuboidTag) area).pairs.size() == 1) {
@@ -50,82 +53,53 @@ public class CuboidBlockSet implements BlockSet {
         center_x = (int) (center.getX() - low.getX());
         center_y = (int) (center.getY() - low.getY());
         center_z = (int) (center.getZ() - low.getZ());
-        blocks = new FullBlockData[x_width * y_length * z_height];
-        int index = 0;
-        double lowX = low.getBlockX() + 0.5, lowY = low.getBlockY() + 0.5, lowZ = low.getBlockZ() + 0.5;
-        Location refLoc = low.clone();
-        for (int x = 0; x < x_width; x++) {
-            for (int y = 0; y < y_length; y++) {
-                for (int z = 0; z < z_height; z++) {
-                    refLoc.setX(lowX + x);
-                    refLoc.setY(lowY + y);
-                    refLoc.setZ(lowZ + z);
-                    FullBlockData block = (constraint == null || constraint.doesContainLocation(refLoc)) ? new FullBlockData(refLoc.getBlock(), copyFlags) : STRUCTURE_VOID;
-                    if (block != STRUCTURE_VOID && mask != null && !mask.contains(block.data.getMaterial())) {
-                        block = STRUCTURE_VOID;
-                    }
-                    blocks[index++] = block;
-                }
-            }
-        }
+        blocks = new PaletteBlockStorage(x_width * y_length * z_height);
+        return low;
     }
 
-    public void buildDelayed(AreaContainmentObject area, Location center, HashSet<Material> mask, Runnable runme, long maxDelayMs, boolean copyFlags) {
-        hasFlags = copyFlags;
-        CuboidTag boundary;
-        if (area instanceof CuboidTag && ((CuboidTag) area).pairs.size() == 1) {
-            boundary = (CuboidTag) area;
+    public void buildImmediate(AreaContainmentObject area, Location center, HashSet<Material> mask, boolean copyFlags) {
+        ChunkSnapshotCapture capture = new ChunkSnapshotCapture(this, initArea(area, center, copyFlags), mask, copyFlags);
+        capture.captureFor(0);
+        try {
+            capture.convert();
         }
-        else {
-            constraint = area;
-            boundary = area.getCuboidBoundary();
+        catch (Exception ex) {
+            throw new RuntimeException("Failed to convert captured chunks", ex);
         }
-        Location low = boundary.pairs.get(0).low;
-        Location high = boundary.pairs.get(0).high;
-        x_width = (int) ((high.getX() - low.getX()) + 1);
-        y_length = (int) ((high.getY() - low.getY()) + 1);
-        z_height = (int) ((high.getZ() - low.getZ()) + 1);
-        center_x = (int) (center.getX() - low.getX());
-        center_y = (int) (center.getY() - low.getY());
-        center_z = (int) (center.getZ() - low.getZ());
-        final long goal = (long)x_width * y_length * z_height;
-        blocks = new FullBlockData[x_width * y_length * z_height];
-        double lowX = low.getBlockX() + 0.5, lowY = low.getBlockY() + 0.5, lowZ = low.getBlockZ() + 0.5;
-        Location refLoc = low.clone();
+    }
+
+    /**
+     * Builds the set over multiple ticks, then runs 'runme' on the main thread.
+     * If converting the captured chunks fails, 'onError' is run on the main thread instead, and the set must not be used.
+     */
+    public void buildDelayed(AreaContainmentObject area, Location center, HashSet<Material> mask, Runnable runme, Consumer<Throwable> onError, long maxDelayMs, boolean copyFlags) {
+        ChunkSnapshotCapture capture = new ChunkSnapshotCapture(this, initArea(area, center, copyFlags), mask, copyFlags);
         new BukkitRunnable() {
-            int index = 0;
             @Override
             public void run() {
-                long start = CoreUtilities.monotonicMillis();
-                while (index < goal) {
-                    long z = index % ((long) z_height);
-                    long y = ((index - z) % ((long)y_length * z_height)) / ((long) z_height);
-                    long x = (index - y - z) / ((long)y_length * z_height);
-                    refLoc.setX(lowX + x);
-                    refLoc.setY(lowY + y);
-                    refLoc.setZ(lowZ + z);
-                    FullBlockData block = (constraint == null || constraint.doesContainLocation(refLoc)) ? new FullBlockData(refLoc.getBlock(), copyFlags) : STRUCTURE_VOID;
-                    if (block != STRUCTURE_VOID && mask != null && !mask.contains(block.data.getMaterial())) {
-                        block = STRUCTURE_VOID;
+                if (!capture.captureFor(maxDelayMs)) {
+                    return;
+                }
+                cancel();
+                Bukkit.getScheduler().runTaskAsynchronously(Denizen.getInstance(), () -> {
+                    try {
+                        capture.convert();
                     }
-                    blocks[index] = block;
-                    index++;
-                    if (CoreUtilities.monotonicMillis() - start > maxDelayMs) {
+                    catch (Throwable ex) {
+                        Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> onError.accept(ex));
                         return;
                     }
-                }
-                if (runme != null) {
-                    runme.run();
-                }
-                cancel();
-
+                    if (runme != null) {
+                        Bukkit.getScheduler().runTask(Denizen.getInstance(), runme);
+                    }
+                });
             }
         }.runTaskTimer(Denizen.getInstance(), 1, 1);
     }
 
     public AreaContainmentObject constraint = null;
 
-    public FullBlockData[] blocks = null;
+    public PaletteBlockStorage blocks = null;
 
     public boolean hasFlags = false;
 
@@ -149,7 +123,7 @@ public class CuboidBlockSet implements BlockSet {
 
     public CuboidBlockSet duplicate() {
         CuboidBlockSet result = new CuboidBlockSet();
-        result.blocks = blocks.clone();
+        result.blocks = blocks.duplicate();
         result.hasFlags = hasFlags;
         result.x_width = x_width;
         result.y_length = y_length;
@@ -164,7 +138,7 @@ public class CuboidBlockSet implements BlockSet {
     }
 
     @Override
-    public FullBlockData[] getBlocks() {
+    public PaletteBlockStorage getBlocks() {
         return blocks;
     }
 
@@ -275,50 +249,34 @@ public class CuboidBlockSet implements BlockSet {
         }
     }
 
-    public void setBlockSingle(FullBlockData block, int x, int y, int z, InputParams input) {
-        if (input.noAir && block.data.getMaterial() == Material.AIR) {
-            return;
-        }
-        if (block.data.getMaterial() == Material.STRUCTURE_VOID) {
-            return;
-        }
-        int finalY = input.centerLocation.getBlockY() + y - center_y;
-        if (!Utilities.isLocationYSafe(finalY, input.centerLocation.getWorld())) {
-            return;
-        }
-        Block destBlock = input.centerLocation.clone().add(x - center_x, y - center_y, z - center_z).getBlock();
-        if (input.mask != null && !input.mask.contains(destBlock.getType())) {
-            return;
-        }
-        if (input.fakeTo == null) {
-            block.set(destBlock, false);
-        }
-        else {
-            FakeBlock.showFakeBlockTo(input.fakeTo, new LocationTag(destBlock.getLocation()), new MaterialTag(block.data), input.fakeDuration, false);
+    public void startFakeRegion(InputParams input) {
+        if (input.fakeTo != null && input.fakeRegion == null) {
+            input.fakeRegion = new FakeBlockRegion(input.centerLocation.getWorld());
+            input.fakeRegion.show(input.fakeTo, input.fakeDuration);
         }
     }
 
     @Override
     public void setBlocksDelayed(final Runnable runme, final InputParams input, long maxDelayMs) {
-        final long goal = (long)x_width * y_length * z_height;
+        startFakeRegion(input);
+        ChunkOrderedPaste paste = new ChunkOrderedPaste(this, input);
         new BukkitRunnable() {
-            int index = 0;
             @Override
             public void run() {
                 SchematicCommand.noPhys = true;
-                long start = CoreUtilities.monotonicMillis();
-                while (index < goal) {
-                    int z = index % (z_height);
-                    int y = ((index - z) % (y_length * z_height)) / z_height;
-                    int x = (index - y - z) / (y_length * z_height);
-                    setBlockSingle(blocks[index], x, y, z, input);
-                    index++;
-                    if (CoreUtilities.monotonicMillis() - start > maxDelayMs) {
-                        SchematicCommand.noPhys = false;
-                        return;
-                    }
+                boolean done;
+                try {
+                    done = paste.pasteFor(maxDelayMs);
+                }
+                finally {
+                    SchematicCommand.noPhys = false;
+                }
+                if (input.fakeRegion != null) {
+                    input.fakeRegion.sendUpdates();
+                }
+                if (!done) {
+                    return;
                 }
-                SchematicCommand.noPhys = false;
                 cancel();
                 if (runme != null) {
                     runme.run();
@@ -329,17 +287,17 @@ public class CuboidBlockSet implements BlockSet {
 
     @Override
     public void setBlocks(InputParams input) {
+        startFakeRegion(input);
         SchematicCommand.noPhys = true;
-        int index = 0;
-        for (int x = 0; x < x_width; x++) {
-            for (int y = 0; y < y_length; y++) {
-                for (int z = 0; z < z_height; z++) {
-                    setBlockSingle(blocks[index], x, y, z, input);
-                    index++;
-                }
-            }
+        try {
+            new ChunkOrderedPaste(this, input).pasteFor(0);
+        }
+        finally {
+            SchematicCommand.noPhys = false;
+        }
+        if (input.fakeRegion != null) {
+            input.fakeRegion.sendUpdates();
         }
-        SchematicCommand.noPhys = false;
     }
 
     public void rotateEntitiesOne() {
@@ -365,7 +323,7 @@ public class CuboidBlockSet implements BlockSet {
 
     public void rotateOne() {
         rotateEntitiesOne();
-        FullBlockData[] bd = new FullBlockData[blocks.length];
+        PaletteBlockStorage bd = blocks.emptyWithPalette(data -> new FullBlockData(data).rotateOne().data);
         int index = 0;
         int cx = center_x;
         center_x = center_z;
@@ -373,7 +331,7 @@ public class CuboidBlockSet implements BlockSet {
         for (int x = 0; x < z_height; x++) {
             for (int y = 0; y < y_length; y++) {
                 for (int z = x_width - 1; z >= 0; z--) {
-                    bd[index++] = blockAt(z, y, x).rotateOne();
+                    bd.copyEntry(blocks, indexOf(z, y, x), index++);
                 }
             }
         }
@@ -416,13 +374,13 @@ public class CuboidBlockSet implements BlockSet {
 
     public void flipX() {
         flipEntities(-1, 1);
-        FullBlockData[] bd = new FullBlockData[blocks.length];
+        PaletteBlockStorage bd = blocks.emptyWithPalette(data -> new FullBlockData(data).flipX().data);
         int index = 0;
         center_x = x_width - center_x - 1;
         for (int x = x_width - 1; x >= 0; x--) {
             for (int y = 0; y < y_length; y++) {
                 for (int z = 0; z < z_height; z++) {
-                    bd[index++] = blockAt(x, y, z).flipX();
+                    bd.copyEntry(blocks, indexOf(x, y, z), index++);
                 }
             }
         }
@@ -430,13 +388,13 @@ public class CuboidBlockSet implements BlockSet {
     }
 
     public void flipY() {
-        FullBlockData[] bd = new FullBlockData[blocks.length];
+        PaletteBlockStorage bd = blocks.emptyWithPalette(data -> new FullBlockData(data).flipY().data);
         int index = 0;
         center_y = y_length - center_y - 1;
         for (int x = 0; x < x_width; x++) {
             for (int y = y_length - 1; y >= 0; y--) {
                 for (int z = 0; z < z_height; z++) {
-                    bd[index++] = blockAt(x, y, z).flipY();
+                    bd.copyEntry(blocks, indexOf(x, y, z), index++);
                 }
             }
         }
@@ -445,20 +403,24 @@ public class CuboidBlockSet implements BlockSet {
 
     public void flipZ() {
         flipEntities(1, -1);
-        FullBlockData[] bd = new FullBlockData[blocks.length];
+        PaletteBlockStorage bd = blocks.emptyWithPalette(data -> new FullBlockData(data).flipZ().data);
         int index = 0;
         center_z = z_height - center_z - 1;
         for (int x = 0; x < x_width; x++) {
             for (int y = 0; y < y_length; y++) {
                 for (int z = z_height - 1; z >= 0; z--) {
-                    bd[index++] = blockAt(x, y, z).flipZ();
+                    bd.copyEntry(blocks, indexOf(x, y, z), index++);
                 }
             }
         }
         blocks = bd;
     }
 
+    public int indexOf(int x, int y, int z) {
+        return z + y * z_height + x * z_height * y_length;
+    }
+
     public FullBlockData blockAt(double X, double Y, double Z) {
-        return blocks[(int) (Z + Y * z_height + X * z_height * y_length)];
+        return blocks.get((int) (Z + Y * z_height + X * z_height * y_length));
     }
 }
@@ -10,6 +10,7 @@ import com.denizenscript.denizen.utilities.packets.NetworkInterceptHelper;
 import com.denizenscript.denizencore.objects.core.DurationTag;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 
@@ -26,7 +27,96 @@ public class FakeBlock {
 
         public Map<ChunkCoordinate, List<FakeBlock>> byChunk = new HashMap<>();
 
-        public FakeBlock getOrAdd(PlayerTag player, LocationTag location) {
+        public List<FakeBlockRegion> regions = new ArrayList<>();
+
+        private final Map<ChunkCoordinate, FakeBlockChunkView> views = new HashMap<>();
+
+        /**
+         * Returns a snapshot view of the fake blocks in the given chunk, or null if there are none. Safe to call from network threads.
+         */
+        public synchronized FakeBlockChunkView getChunkView(ChunkCoordinate chunkCoord) {
+            FakeBlockChunkView view = views.get(chunkCoord);
+            if (view == null) {
+                if (!hasAnyInChunk(chunkCoord)) {
+                    return null;
+                }
+                view = new FakeBlockChunkView(byChunk.get(chunkCoord), regions, chunkCoord);
+                views.put(chunkCoord, view);
+            }
+            return view.isEmpty() ? null : view;
+        }
+
+        public synchronized void invalidateView(ChunkCoordinate chunkCoord) {
+            views.remove(chunkCoord);
+        }
+
+        public synchronized boolean hasAnyInChunk(ChunkCoordinate chunkCoord) {
+            if (byChunk.containsKey(chunkCoord)) {
+                return true;
+            }
+            for (FakeBlockRegion region : regions) {
+                if (region.getSectionsInChunk(chunkCoord) != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns the fake block data shown at the given block location, or null if none. Safe to call from network threads.
+         */
+        public synchronized BlockData getFakeBlockData(LocationTag location) {
+            FakeBlock block = byLocation.get(location);
+            if (block != null && block.material != null) {
+                return block.material.getModernData();
+            }
+            for (int i = regions.size() - 1; i >= 0; i--) {
+                FakeBlockRegion region = regions.get(i);
+                if (region.world.getName().equals(location.getWorldName())) {
+                    BlockData data = region.getBlockData(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+                    if (data != null) {
+                        return data;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns true if the region was newly added.
+         */
+        public synchronized boolean addRegion(FakeBlockRegion region) {
+            if (regions.contains(region)) {
+                return false;
+            }
+            regions.add(region);
+            views.keySet().removeIf(region::coversChunk);
+            return true;
+        }
+
+        public synchronized void removeRegion(FakeBlockRegion region) {
+            if (regions.remove(region)) {
+                views.keySet().removeIf(region::coversChunk);
+            }
+        }
+
+        /**
+         * Swaps a region for a copy of it, keeping its priority relative to other regions.
+         */
+        public synchronized void replaceRegion(FakeBlockRegion region, FakeBlockRegion replacement) {
+            int index = regions.indexOf(region);
+            if (index == -1) {
+                return;
+            }
+            regions.set(index, replacement);
+            views.keySet().removeIf(region::coversChunk);
+        }
+
+        public synchronized boolean isEmpty() {
+            return byChunk.isEmpty() && regions.isEmpty();
+        }
+
+        public synchronized FakeBlock getOrAdd(PlayerTag player, LocationTag location) {
             location = new LocationTag(location.getBlockX(), location.getBlockY(), location.getBlockZ(), location.getWorldName());
             FakeBlock block = byLocation.get(location);
             if (block != null) {
@@ -36,10 +126,11 @@ public class FakeBlock {
             byLocation.put(location, block);
             List<FakeBlock> chunkBlocks = byChunk.computeIfAbsent(block.chunkCoord, k -> new ArrayList<>());
             chunkBlocks.add(block);
+            invalidateView(block.chunkCoord);
             return block;
         }
 
-        public void remove(FakeBlock block) {
+        public synchronized void remove(FakeBlock block) {
             if (byLocation.remove(block.location) != null) {
                 List<FakeBlock> chunkBlocks = byChunk.get(block.chunkCoord);
                 if (chunkBlocks != null) {
@@ -48,6 +139,7 @@ public class FakeBlock {
                         byChunk.remove(block.chunkCoord);
                     }
                 }
+                invalidateView(block.chunkCoord);
             }
         }
     }
@@ -62,6 +154,17 @@ public class FakeBlock {
         return map.byLocation.get(location);
     }
 
+    /**
+     * Returns the fake block data shown to the player at the location, from either an individual fake block or a fake region, or null if none.
+     */
+    public static BlockData getFakeBlockDataFor(UUID id, LocationTag location) {
+        FakeBlockMap map = blocks.get(id);
+        if (map == null) {
+            return null;
+        }
+        return map.getFakeBlockData(location);
+    }
+
     public static List<FakeBlock> getFakeBlocksFor(UUID id, ChunkCoordinate chunkCoord) {
         FakeBlockMap map = blocks.get(id);
         if (map == null) {
@@ -107,6 +210,15 @@ public class FakeBlock {
                 if (block != null) {
                     block.cancelBlock();
                 }
+                List<FakeBlockRegion> regions;
+                synchronized (playerBlocks) {
+                    regions = new ArrayList<>(playerBlocks.regions);
+                }
+                for (FakeBlockRegion region : regions) {
+                    if (region.world.getName().equals(location.getWorldName())) {
+                        region.cancelBlockFor(player, location.getBlockX(), location.getBlockY(), location.getBlockZ());
+                    }
+                }
             }
         }
     }
@@ -132,7 +244,7 @@ public class FakeBlock {
         material = null;
         FakeBlockMap mapping = blocks.get(player.getUUID());
         mapping.remove(this);
-        if (mapping.byChunk.isEmpty()) {
+        if (mapping.isEmpty()) {
             blocks.remove(player.getUUID());
         }
         if (player.isOnline()) {
@@ -148,6 +260,7 @@ public class FakeBlock {
             currentTask.cancel();
         }
         this.material = material;
+        blocks.get(player.getUUID()).invalidateView(chunkCoord);
         if (player.hasChunkLoaded(location.getChunk())) {
             if (sendNow || !NMSHandler.getVersion().isAtLeast(NMSVersion.v1_18)) {
                 player.getPlayerEntity().sendBlockChange(location, material.getModernData());
@@ -0,0 +1,118 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the fake blocks (including fake regions) one player sees within a single chunk, sorted and indexed by section.
+ * Views with equal content are equal regardless of which player or chunk they came from, which allows chunk packet rewrites to be shared.
+ */
+public class FakeBlockChunkView {
+
+    /**
+     * Packed as (y << 8) | (localX << 4) | localZ, matching the packed XZ format of chunk packet block entities. Sorted ascending.
+     */
+    public final long[] positions;
+
+    public final BlockData[] states;
+
+    public final int hash;
+
+    /**
+     * Builds a view of the given individual fake blocks and fake regions within a chunk. Individual blocks take priority, then later regions over earlier ones.
+     */
+    public FakeBlockChunkView(List<FakeBlock> blocks, List<FakeBlockRegion> regions, ChunkCoordinate coord) {
+        Long2ObjectOpenHashMap<BlockData> merged = new Long2ObjectOpenHashMap<>();
+        for (FakeBlockRegion region : regions) {
+            FakeBlockRegion.Snapshot snapshot = region.snapshot;
+            List<FakeBlockRegion.SectionSnapshot> sections = snapshot.byChunk.get(coord);
+            if (sections == null) {
+                continue;
+            }
+            for (FakeBlockRegion.SectionSnapshot section : sections) {
+                for (int i = 0; i < 4096; i++) {
+                    int id = section.data[i];
+                    if (id != 0) {
+                        merged.put(pack(i >> 8, (section.y << 4) | (i & 15), (i >> 4) & 15), snapshot.palette[id - 1]);
+                    }
+                }
+            }
+        }
+        if (blocks != null) {
+            for (FakeBlock block : blocks) {
+                if (block.material != null) {
+                    merged.put(pack(block.location.getBlockX() & 15, block.location.getBlockY(), block.location.getBlockZ() & 15), block.material.getModernData());
+                }
+            }
+        }
+        positions = merged.keySet().toLongArray();
+        Arrays.sort(positions);
+        states = new BlockData[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            states[i] = merged.get(positions[i]);
+        }
+        hash = Arrays.hashCode(positions) * 31 + Arrays.hashCode(states);
+    }
+
+    public static long pack(int localX, int y, int localZ) {
+        return ((long) y << 8) | (localX << 4) | localZ;
+    }
+
+    public boolean isEmpty() {
+        return positions.length == 0;
+    }
+
+    public int getX(int index) {
+        return (int) (positions[index] >> 4) & 15;
+    }
+
+    public int getY(int index) {
+        return (int) (positions[index] >> 8);
+    }
+
+    public int getZ(int index) {
+        return (int) positions[index] & 15;
+    }
+
+    /**
+     * Returns the index of the fake block at the given Y and packed XZ, or a negative value if there is none.
+     */
+    public int indexOf(int y, int packedXZ) {
+        return Arrays.binarySearch(positions, ((long) y << 8) | packedXZ);
+    }
+
+    /**
+     * Returns the first index of a block within the given section (or later), for use with {@link #sectionEnd(int)}.
+     */
+    public int sectionStart(int sectionY) {
+        return lowerBound((long) sectionY << 12);
+    }
+
+    public int sectionEnd(int sectionY) {
+        return lowerBound((long) (sectionY + 1) << 12);
+    }
+
+    private int lowerBound(long value) {
+        int index = Arrays.binarySearch(positions, value);
+        return index < 0 ? -(index + 1) : index;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FakeBlockChunkView view)) {
+            return false;
+        }
+        return hash == view.hash && Arrays.equals(positions, view.positions) && Arrays.equals(states, view.states);
+    }
+}
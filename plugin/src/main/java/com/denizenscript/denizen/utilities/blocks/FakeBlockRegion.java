@@ -0,0 +1,429 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizen.nms.NMSHandler;
+import com.denizenscript.denizen.objects.PlayerTag;
+import com.denizenscript.denizen.utilities.packets.NetworkInterceptHelper;
+import com.denizenscript.denizencore.objects.core.DurationTag;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+
+/**
+ * A bulk set of fake blocks shown to a group of players, for large fake structures (like a fake schematic paste).
+ * Unlike individual FakeBlocks, blocks are stored as one compact array per 16x16x16 section, updates are sent as one packet per section,
+ * and the whole region expires with a single timer.
+ * Individual fake blocks at the same location take priority over a region.
+ * Blocks are only changed on the main thread, and network threads only ever read the immutable {@link Snapshot} published by {@link #sendUpdates()}.
+ */
+public class FakeBlockRegion {
+
+    public static class Section {
+
+        public final int x, y, z;
+
+        /** Palette index + 1 for each block, or 0 for no fake block. Indexed as (x << 8) | (z << 4) | y, matching section-relative packet positions. */
+        public final short[] data = new short[4096];
+
+        public int count;
+
+        public boolean dirty;
+
+        public SectionSnapshot published;
+
+        public Section(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    /**
+     * A copy of a section's blocks as of the last publish. Never modified after creation.
+     */
+    public static class SectionSnapshot {
+
+        public final int x, y, z;
+
+        public final short[] data;
+
+        public SectionSnapshot(Section section) {
+            this.x = section.x;
+            this.y = section.y;
+            this.z = section.z;
+            this.data = section.data.clone();
+        }
+    }
+
+    /**
+     * The published state of a region, safe to read from any thread. Never modified after creation.
+     */
+    public static class Snapshot {
+
+        public static final Snapshot EMPTY = new Snapshot(new Long2ObjectOpenHashMap<>(), new HashMap<>(), new BlockData[0]);
+
+        public final Long2ObjectOpenHashMap<SectionSnapshot> sections;
+
+        public final Map<ChunkCoordinate, List<SectionSnapshot>> byChunk;
+
+        public final BlockData[] palette;
+
+        public Snapshot(Long2ObjectOpenHashMap<SectionSnapshot> sections, Map<ChunkCoordinate, List<SectionSnapshot>> byChunk, BlockData[] palette) {
+            this.sections = sections;
+            this.byChunk = byChunk;
+            this.palette = palette;
+        }
+    }
+
+    public static long sectionKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFF) << 42) | ((long) (z & 0x3FFFFF) << 20) | (y & 0xFFFFF);
+    }
+
+    public static int indexInSection(int x, int y, int z) {
+        return ((x & 15) << 8) | ((z & 15) << 4) | (y & 15);
+    }
+
+    public final World world;
+
+    public final Long2ObjectOpenHashMap<Section> sections = new Long2ObjectOpenHashMap<>();
+
+    public final HashMap<ChunkCoordinate, List<Section>> byChunk = new HashMap<>();
+
+    public final ArrayList<BlockData> palette = new ArrayList<>();
+
+    public final HashMap<BlockData, Integer> paletteIds = new HashMap<>();
+
+    public final List<PlayerTag> viewers = new ArrayList<>();
+
+    public BukkitTask expireTask;
+
+    public boolean removed = false;
+
+    public volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /** Regions split off from this one by {@link #cancelBlockFor}, which expire along with it. */
+    public final List<FakeBlockRegion> splitRegions = new ArrayList<>();
+
+    public final HashSet<ChunkCoordinate> clearedChunks = new HashSet<>();
+
+    public BukkitTask updateTask;
+
+    public FakeBlockRegion(World world) {
+        this.world = world;
+    }
+
+    public Section getSection(int sectionX, int sectionY, int sectionZ) {
+        return sections.get(sectionKey(sectionX, sectionY, sectionZ));
+    }
+
+    /**
+     * Returns the published fake block at the given location, or null if none. Safe to call from network threads.
+     */
+    public BlockData getBlockData(int x, int y, int z) {
+        Snapshot current = snapshot;
+        SectionSnapshot section = current.sections.get(sectionKey(x >> 4, y >> 4, z >> 4));
+        if (section == null) {
+            return null;
+        }
+        int id = section.data[indexInSection(x, y, z)];
+        return id == 0 ? null : current.palette[id - 1];
+    }
+
+    /**
+     * Sets a fake block in the region. Changes are not sent to viewers until the next call to {@link #sendUpdates()}.
+     */
+    public void setBlock(int x, int y, int z, BlockData data) {
+        Integer id = paletteIds.get(data);
+        if (id == null) {
+            if (palette.size() >= Short.MAX_VALUE) {
+                Debug.echoError("Fake block region has too many distinct block types, cannot add '" + data.getAsString() + "'.");
+                return;
+            }
+            palette.add(data);
+            id = palette.size();
+            paletteIds.put(data, id);
+        }
+        int sectionX = x >> 4, sectionY = y >> 4, sectionZ = z >> 4;
+        long key = sectionKey(sectionX, sectionY, sectionZ);
+        Section section = sections.get(key);
+        if (section == null) {
+            section = new Section(sectionX, sectionY, sectionZ);
+            sections.put(key, section);
+            byChunk.computeIfAbsent(new ChunkCoordinate(sectionX, sectionZ, world.getName()), k -> new ArrayList<>()).add(section);
+        }
+        int index = indexInSection(x, y, z);
+        if (section.data[index] == 0) {
+            section.count++;
+        }
+        section.data[index] = id.shortValue();
+        section.dirty = true;
+    }
+
+    /**
+     * Removes the fake block at the given location, if any. Like {@link #setBlock}, viewers don't see the change until it's published.
+     */
+    public void clearBlock(int x, int y, int z) {
+        Section section = getSection(x >> 4, y >> 4, z >> 4);
+        if (section == null) {
+            return;
+        }
+        int index = indexInSection(x, y, z);
+        if (section.data[index] == 0) {
+            return;
+        }
+        section.data[index] = 0;
+        section.count--;
+        ChunkCoordinate coord = new ChunkCoordinate(section.x, section.z, world.getName());
+        if (section.count == 0) {
+            sections.remove(sectionKey(section.x, section.y, section.z));
+            List<Section> chunkSections = byChunk.get(coord);
+            chunkSections.remove(section);
+            if (chunkSections.isEmpty()) {
+                byChunk.remove(coord);
+            }
+        }
+        else {
+            section.dirty = true;
+        }
+        clearedChunks.add(coord);
+    }
+
+    /**
+     * Returns true if the region has (or had, as of the last publish) any fake blocks in the given chunk. Must be called on the main thread.
+     */
+    public boolean coversChunk(ChunkCoordinate coord) {
+        return byChunk.containsKey(coord) || snapshot.byChunk.containsKey(coord);
+    }
+
+    /**
+     * Returns the published sections in the given chunk, or null if none. Safe to call from network threads.
+     */
+    public List<SectionSnapshot> getSectionsInChunk(ChunkCoordinate coord) {
+        return snapshot.byChunk.get(coord);
+    }
+
+    /**
+     * Publishes the current blocks for network threads to read. Sections that haven't changed since the last publish are reused.
+     */
+    public void publish() {
+        Snapshot previous = snapshot;
+        Long2ObjectOpenHashMap<SectionSnapshot> newSections = new Long2ObjectOpenHashMap<>(sections.size());
+        HashMap<ChunkCoordinate, List<SectionSnapshot>> newByChunk = new HashMap<>();
+        for (Map.Entry<ChunkCoordinate, List<Section>> entry : byChunk.entrySet()) {
+            ArrayList<SectionSnapshot> chunkSections = new ArrayList<>(entry.getValue().size());
+            for (Section section : entry.getValue()) {
+                if (section.published == null || section.dirty) {
+                    section.published = new SectionSnapshot(section);
+                }
+                chunkSections.add(section.published);
+                newSections.put(sectionKey(section.x, section.y, section.z), section.published);
+            }
+            newByChunk.put(entry.getKey(), Collections.unmodifiableList(chunkSections));
+        }
+        BlockData[] newPalette = previous.palette.length == palette.size() ? previous.palette : palette.toArray(new BlockData[0]);
+        snapshot = new Snapshot(newSections, Collections.unmodifiableMap(newByChunk), newPalette);
+    }
+
+    /**
+     * Stops showing the fake block at the given location to the given viewer.
+     * If other players also view this region, the player is first moved to a copy of it, so the block is only removed for them.
+     */
+    public void cancelBlockFor(PlayerTag player, int x, int y, int z) {
+        if (removed || !viewers.contains(player)) {
+            return;
+        }
+        Section section = getSection(x >> 4, y >> 4, z >> 4);
+        if (section == null || section.data[indexInSection(x, y, z)] == 0) {
+            return;
+        }
+        FakeBlockRegion target = this;
+        if (viewers.size() > 1) {
+            target = splitFor(player);
+        }
+        target.clearBlock(x, y, z);
+        target.scheduleUpdate();
+    }
+
+    /**
+     * Moves the given viewer to a new copy of this region, and returns the copy.
+     */
+    public FakeBlockRegion splitFor(PlayerTag player) {
+        FakeBlockRegion copy = new FakeBlockRegion(world);
+        copy.palette.addAll(palette);
+        copy.paletteIds.putAll(paletteIds);
+        for (Map.Entry<ChunkCoordinate, List<Section>> entry : byChunk.entrySet()) {
+            ArrayList<Section> chunkSections = new ArrayList<>(entry.getValue().size());
+            for (Section section : entry.getValue()) {
+                Section sectionCopy = new Section(section.x, section.y, section.z);
+                System.arraycopy(section.data, 0, sectionCopy.data, 0, 4096);
+                sectionCopy.count = section.count;
+                sectionCopy.published = section.published;
+                sectionCopy.dirty = section.dirty;
+                chunkSections.add(sectionCopy);
+                copy.sections.put(sectionKey(section.x, section.y, section.z), sectionCopy);
+            }
+            copy.byChunk.put(entry.getKey(), chunkSections);
+        }
+        copy.snapshot = snapshot;
+        viewers.remove(player);
+        copy.viewers.add(player);
+        FakeBlock.FakeBlockMap map = FakeBlock.blocks.get(player.getUUID());
+        if (map != null) {
+            map.replaceRegion(this, copy);
+        }
+        splitRegions.add(copy);
+        return copy;
+    }
+
+    /**
+     * Publishes changes made outside of a paste (like cancelled blocks) on the next tick, and refreshes the chunks that lost fake blocks.
+     */
+    public void scheduleUpdate() {
+        if (updateTask != null) {
+            return;
+        }
+        updateTask = Bukkit.getScheduler().runTaskLater(Denizen.getInstance(), () -> {
+            updateTask = null;
+            sendUpdates();
+        }, 1);
+    }
+
+    /**
+     * Shows the region to the given players, and schedules it to be removed after the given duration (if any).
+     */
+    public void show(List<PlayerTag> players, DurationTag duration) {
+        NetworkInterceptHelper.enable();
+        for (PlayerTag player : players) {
+            if (!player.isOnline() || !player.isValid()) {
+                continue;
+            }
+            UUID uuid = player.getUUID();
+            FakeBlock.FakeBlockMap map = FakeBlock.blocks.get(uuid);
+            if (map == null) {
+                map = new FakeBlock.FakeBlockMap();
+                FakeBlock.blocks.put(uuid, map);
+            }
+            if (map.addRegion(this)) {
+                viewers.add(player);
+            }
+        }
+        for (Section section : sections.values()) {
+            section.dirty = true;
+        }
+        sendUpdates();
+        if (expireTask != null) {
+            expireTask.cancel();
+            expireTask = null;
+        }
+        if (duration != null && duration.getTicks() > 0) {
+            expireTask = Bukkit.getScheduler().runTaskLater(Denizen.getInstance(), () -> {
+                expireTask = null;
+                remove();
+            }, duration.getTicks());
+        }
+    }
+
+    /**
+     * Sends all changed sections to the viewers, as one multi-block update per section.
+     */
+    public void sendUpdates() {
+        if (removed) {
+            return;
+        }
+        if (sections.isEmpty() && !clearedChunks.isEmpty()) {
+            remove();
+            return;
+        }
+        HashSet<ChunkCoordinate> changedChunks = new HashSet<>(clearedChunks);
+        ArrayList<Section> changed = new ArrayList<>();
+        for (Section section : sections.values()) {
+            if (section.dirty) {
+                changed.add(section);
+                changedChunks.add(new ChunkCoordinate(section.x, section.z, world.getName()));
+            }
+        }
+        if (changedChunks.isEmpty()) {
+            return;
+        }
+        publish();
+        for (Section section : changed) {
+            section.dirty = false;
+        }
+        for (PlayerTag player : viewers) {
+            FakeBlock.FakeBlockMap map = FakeBlock.blocks.get(player.getUUID());
+            if (map != null) {
+                for (ChunkCoordinate coord : changedChunks) {
+                    map.invalidateView(coord);
+                }
+            }
+        }
+        for (Section section : changed) {
+            if (!world.isChunkLoaded(section.x, section.z)) {
+                continue;
+            }
+            short[] offsets = new short[section.count];
+            BlockData[] states = new BlockData[section.count];
+            int count = 0;
+            for (int i = 0; i < 4096 && count < offsets.length; i++) {
+                if (section.data[i] != 0) {
+                    offsets[count] = (short) i;
+                    states[count++] = palette.get(section.data[i] - 1);
+                }
+            }
+            for (PlayerTag player : viewers) {
+                if (player.isOnline() && player.getPlayerEntity().getWorld().equals(world)) {
+                    NMSHandler.packetHelper.sendSectionBlockChanges(player.getPlayerEntity(), world, section.x, section.y, section.z, offsets, states);
+                }
+            }
+        }
+        for (ChunkCoordinate coord : clearedChunks) {
+            FakeBlock.scheduleChunkRefresh(world, coord);
+        }
+        clearedChunks.clear();
+    }
+
+    /**
+     * Stops showing the region to all viewers, and refreshes the chunks it covered.
+     */
+    public void remove() {
+        if (removed) {
+            return;
+        }
+        removed = true;
+        if (expireTask != null) {
+            expireTask.cancel();
+            expireTask = null;
+        }
+        if (updateTask != null) {
+            updateTask.cancel();
+            updateTask = null;
+        }
+        for (FakeBlockRegion split : splitRegions) {
+            split.remove();
+        }
+        splitRegions.clear();
+        for (PlayerTag player : viewers) {
+            UUID uuid = player.getUUID();
+            FakeBlock.FakeBlockMap map = FakeBlock.blocks.get(uuid);
+            if (map != null) {
+                map.removeRegion(this);
+                if (map.isEmpty()) {
+                    FakeBlock.blocks.remove(uuid);
+                }
+            }
+        }
+        viewers.clear();
+        for (ChunkCoordinate coord : byChunk.keySet()) {
+            FakeBlock.scheduleChunkRefresh(world, coord);
+        }
+        for (ChunkCoordinate coord : clearedChunks) {
+            FakeBlock.scheduleChunkRefresh(world, coord);
+        }
+        clearedChunks.clear();
+    }
+}
@@ -0,0 +1,49 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches rewritten chunk packet data for fake blocks, keyed by the fake block view and the original chunk data.
+ * When many players see the same fake blocks in the same chunk, the rewrite is done once and shared.
+ * Only the section data is cached: block entities aren't part of the key, so they're rewritten for each packet.
+ * Accessed from network threads, so all access is synchronized.
+ */
+public class FakeBlockRewriteCache {
+
+    public static class Rewrite {
+
+        public byte[] originalData;
+
+        public byte[] data;
+    }
+
+    public record Key(FakeBlockChunkView view, int dataHash, int dataLength) {
+    }
+
+    public static int maxSize = 128;
+
+    private static final LinkedHashMap<Key, Rewrite> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Rewrite> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    public static Key keyFor(FakeBlockChunkView view, byte[] originalData) {
+        return new Key(view, Arrays.hashCode(originalData), originalData.length);
+    }
+
+    public static synchronized Rewrite get(Key key, byte[] originalData) {
+        Rewrite rewrite = cache.get(key);
+        if (rewrite == null || !Arrays.equals(rewrite.originalData, originalData)) {
+            return null;
+        }
+        return rewrite;
+    }
+
+    public static synchronized void put(Key key, Rewrite rewrite) {
+        cache.put(key, rewrite);
+    }
+}
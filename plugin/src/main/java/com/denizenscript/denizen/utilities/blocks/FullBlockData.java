@@ -10,6 +10,7 @@ import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 import org.bukkit.Axis;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
@@ -71,17 +72,22 @@ public class FullBlockData {
     public FullBlockData(Block block, boolean copyFlags) {
         this(block);
         if (copyFlags) {
-            MapTagBasedFlagTracker flagMap = (MapTagBasedFlagTracker) new LocationTag(block.getLocation()).getFlagTracker();
-            flags = new MapTag();
-            for (String flag : flagMap.listAllFlags()) {
-                flags.putObject(flag, flagMap.getRootMap(flag));
-            }
-            if (flags.isEmpty()) {
-                flags = null;
-            }
+            flags = readFlags(block.getLocation());
         }
     }
 
+    /**
+     * Returns a copy of the location flags at the given block location, or null if there are none.
+     */
+    public static MapTag readFlags(Location location) {
+        MapTagBasedFlagTracker flagMap = (MapTagBasedFlagTracker) new LocationTag(location).getFlagTracker();
+        MapTag flags = new MapTag();
+        for (String flag : flagMap.listAllFlags()) {
+            flags.putObject(flag, flagMap.getRootMap(flag));
+        }
+        return flags.isEmpty() ? null : flags;
+    }
+
     public FullBlockData(Block block) {
         this(block.getBlockData());
         tileEntityData = NMSHandler.blockHelper.getNbtData(block);
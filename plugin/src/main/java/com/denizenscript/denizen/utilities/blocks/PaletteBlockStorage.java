@@ -0,0 +1,209 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import com.denizenscript.denizen.nms.util.jnbt.CompoundTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compact storage for a large number of blocks, as a palette of distinct block states plus bit-packed palette indices (the same layout Minecraft uses for chunk sections).
+ * Tile entity data and flags are rare, so they're kept in sparse maps keyed by block index.
+ * The packed data may instead be read from a memory-mapped schematic cache file, in which case it's only copied onto the heap if changed.
+ */
+public class PaletteBlockStorage {
+
+    public final int size;
+
+    public final ArrayList<BlockData> palette;
+
+    public final Object2IntOpenHashMap<BlockData> paletteIds;
+
+    public int bitsPerEntry;
+
+    public int entriesPerLong;
+
+    public long mask;
+
+    /** The packed palette indices, or null if read from 'mapped' instead. */
+    public long[] data;
+
+    public SchematicCache.MappedBlockData mapped;
+
+    public final Int2ObjectOpenHashMap<CompoundTag> tileEntities;
+
+    public final Int2ObjectOpenHashMap<MapTag> flags;
+
+    public PaletteBlockStorage(int size) {
+        this.size = size;
+        palette = new ArrayList<>();
+        paletteIds = new Object2IntOpenHashMap<>();
+        paletteIds.defaultReturnValue(-1);
+        tileEntities = new Int2ObjectOpenHashMap<>();
+        flags = new Int2ObjectOpenHashMap<>();
+        setBits(4);
+        data = new long[longsFor(size)];
+    }
+
+    private PaletteBlockStorage(PaletteBlockStorage copyFrom, ArrayList<BlockData> palette, boolean copyContents) {
+        this.size = copyFrom.size;
+        this.palette = palette;
+        paletteIds = new Object2IntOpenHashMap<>(palette.size());
+        paletteIds.defaultReturnValue(-1);
+        for (int i = 0; i < palette.size(); i++) {
+            paletteIds.putIfAbsent(palette.get(i), i);
+        }
+        setBits(copyFrom.bitsPerEntry);
+        if (copyContents) {
+            data = copyFrom.data == null ? null : copyFrom.data.clone();
+            mapped = copyFrom.mapped;
+            if (mapped != null) {
+                SchematicCache.setLiveFile(this, mapped.file);
+            }
+            tileEntities = new Int2ObjectOpenHashMap<>(copyFrom.tileEntities);
+            flags = new Int2ObjectOpenHashMap<>(copyFrom.flags);
+        }
+        else {
+            data = new long[longsFor(size)];
+            tileEntities = new Int2ObjectOpenHashMap<>();
+            flags = new Int2ObjectOpenHashMap<>();
+        }
+    }
+
+    private void setBits(int bits) {
+        bitsPerEntry = bits;
+        entriesPerLong = 64 / bits;
+        mask = (1L << bits) - 1;
+    }
+
+    public int longsFor(int entries) {
+        return (entries + entriesPerLong - 1) / entriesPerLong;
+    }
+
+    public PaletteBlockStorage duplicate() {
+        return new PaletteBlockStorage(this, new ArrayList<>(palette), true);
+    }
+
+    /**
+     * Returns an empty storage of the same size and bit width, whose palette is this storage's palette passed through the given transform.
+     * Palette IDs are preserved, so entries can be moved over with {@link #copyEntry}.
+     */
+    public PaletteBlockStorage emptyWithPalette(UnaryOperator<BlockData> transform) {
+        ArrayList<BlockData> newPalette = new ArrayList<>(palette.size());
+        for (BlockData entry : palette) {
+            newPalette.add(transform.apply(entry));
+        }
+        return new PaletteBlockStorage(this, newPalette, false);
+    }
+
+    /**
+     * Copies a block from a storage created by {@link #emptyWithPalette} (or vice versa) into this storage.
+     */
+    public void copyEntry(PaletteBlockStorage source, int sourceIndex, int targetIndex) {
+        setPaletteId(targetIndex, source.getPaletteId(sourceIndex));
+        CompoundTag tileEntity = source.tileEntities.get(sourceIndex);
+        if (tileEntity != null) {
+            tileEntities.put(targetIndex, tileEntity);
+        }
+        MapTag flagMap = source.flags.get(sourceIndex);
+        if (flagMap != null) {
+            flags.put(targetIndex, flagMap);
+        }
+    }
+
+    public int getOrAddPaletteId(BlockData blockData) {
+        int id = paletteIds.getInt(blockData);
+        if (id != -1) {
+            return id;
+        }
+        id = palette.size();
+        palette.add(blockData);
+        paletteIds.put(blockData, id);
+        if (id > mask) {
+            resize(bitsPerEntry + 1);
+        }
+        return id;
+    }
+
+    /**
+     * Makes sure the packed data is held on the heap (rather than in a mapped cache file), so that it can be changed.
+     */
+    public void makeWritable() {
+        if (data == null) {
+            data = mapped.readAll();
+            mapped = null;
+            SchematicCache.setLiveFile(this, null);
+        }
+    }
+
+    public long getLong(int longIndex) {
+        long[] heapData = data;
+        return heapData != null ? heapData[longIndex] : mapped.getLong(longIndex);
+    }
+
+    private void resize(int newBits) {
+        makeWritable();
+        long[] oldData = data;
+        int oldBits = bitsPerEntry, oldPerLong = entriesPerLong;
+        long oldMask = mask;
+        setBits(newBits);
+        data = new long[longsFor(size)];
+        for (int i = 0; i < size; i++) {
+            int id = (int) ((oldData[i / oldPerLong] >>> ((i % oldPerLong) * oldBits)) & oldMask);
+            if (id != 0) {
+                setPaletteId(i, id);
+            }
+        }
+    }
+
+    public int getPaletteId(int index) {
+        return (int) ((getLong(index / entriesPerLong) >>> ((index % entriesPerLong) * bitsPerEntry)) & mask);
+    }
+
+    public void setPaletteId(int index, int id) {
+        if (data == null) {
+            makeWritable();
+        }
+        int longIndex = index / entriesPerLong;
+        int shift = (index % entriesPerLong) * bitsPerEntry;
+        data[longIndex] = (data[longIndex] & ~(mask << shift)) | ((long) id << shift);
+    }
+
+    public BlockData getData(int index) {
+        return palette.get(getPaletteId(index));
+    }
+
+    /**
+     * Gets the full block at the given index. This creates a new object for every call, so prefer {@link #getData} where only the block state is needed.
+     */
+    public FullBlockData get(int index) {
+        return new FullBlockData(getData(index), tileEntities.get(index), flags.get(index));
+    }
+
+    public void set(int index, FullBlockData block) {
+        setPaletteId(index, getOrAddPaletteId(block.data));
+        setTileEntity(index, block.tileEntityData);
+        setFlags(index, block.flags);
+    }
+
+    public void setTileEntity(int index, CompoundTag tileEntity) {
+        if (tileEntity == null) {
+            tileEntities.remove(index);
+        }
+        else {
+            tileEntities.put(index, tileEntity);
+        }
+    }
+
+    public void setFlags(int index, MapTag flagMap) {
+        if (flagMap == null) {
+            flags.remove(index);
+        }
+        else {
+            flags.put(index, flagMap);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.denizenscript.denizen.utilities.blocks;
+
+import com.denizenscript.denizen.Denizen;
+import com.denizenscript.denizen.nms.NMSHandler;
+import com.denizenscript.denizen.nms.util.jnbt.CompoundTag;
+import com.denizenscript.denizen.nms.util.jnbt.NBTInputStream;
+import com.denizenscript.denizen.nms.util.jnbt.NBTOutputStream;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import org.bukkit.Bukkit;
+import org.bukkit.block.data.BlockData;
+
+import java.io.*;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * On-disk cache of loaded schematics, in a format that can be read back without decompressing or re-parsing the source file.
+ * The header (sizes, palette, tile entities, flags, entities) is read into memory on load, while the packed block data is memory-mapped and paged in by the OS as it's used.
+ * Mappings are unmapped least-recently-used first when the total mapped size goes over the configured budget, and are remapped automatically on next use.
+ * Java can only release a mapping once its buffer is garbage collected, so the budget is a soft limit.
+ * Cache files are named by the size and modified time of their source file, so a file that's in use is never replaced with different contents,
+ * and old cache files are only deleted once no loaded schematic is using them.
+ */
+public class SchematicCache {
+
+    public static boolean enabled = true;
+
+    public static long maxMappedBytes = 1024L * 1024L * 1024L;
+
+    public static final int MAGIC = 0x44534348;
+
+    public static final int VERSION = 1;
+
+    public static File getCacheFile(String fname, File source) {
+        return new File(Denizen.getInstance().getDataFolder(), "schematics/cache/" + fname + "." + Long.toHexString(source.length()) + "-" + Long.toHexString(source.lastModified()) + ".dcache");
+    }
+
+    /**
+     * The cache file each block storage reads from (and so may remap), which must not be deleted while in use. Guarded by the class lock.
+     * Weakly keyed, so a storage that's dropped without being released (like a temporary copy) stops holding its file once collected.
+     */
+    private static final WeakHashMap<PaletteBlockStorage, File> liveFiles = new WeakHashMap<>();
+
+    /**
+     * Sets the cache file the given storage reads from, or null once it no longer does.
+     */
+    static synchronized void setLiveFile(PaletteBlockStorage storage, File file) {
+        if (file == null) {
+            liveFiles.remove(storage);
+        }
+        else {
+            liveFiles.put(storage, file);
+        }
+    }
+
+    public static synchronized boolean isLiveFile(File file) {
+        return liveFiles.containsValue(file);
+    }
+
+    /**
+     * Deletes cache files for the same schematic as the given cache file, left over from older versions of its source file, that aren't in use.
+     */
+    public static synchronized void deleteStaleFiles(File cacheFile) {
+        File folder = cacheFile.getParentFile();
+        String name = cacheFile.getName();
+        String baseName = name.substring(0, name.lastIndexOf('.', name.length() - ".dcache".length() - 1));
+        Pattern stalePattern = Pattern.compile(Pattern.quote(baseName) + "\\.[0-9a-f]+-[0-9a-f]+\\.dcache");
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.equals(cacheFile) && !isLiveFile(file) && stalePattern.matcher(file.getName()).matches()) {
+                file.delete();
+            }
+        }
+    }
+
+    public static class MappedBlockData {
+
+        public final File file;
+
+        public final long offset;
+
+        public final int longCount;
+
+        private volatile LongBuffer buffer;
+
+        public MappedBlockData(File file, long offset, int longCount) {
+            this.file = file;
+            this.offset = offset;
+            this.longCount = longCount;
+        }
+
+        public long byteSize() {
+            return longCount * 8L;
+        }
+
+        public LongBuffer getBuffer() {
+            LongBuffer result = buffer;
+            if (result == null) {
+                result = map();
+            }
+            return result;
+        }
+
+        public long getLong(int index) {
+            return getBuffer().get(index);
+        }
+
+        public long[] readAll() {
+            long[] result = new long[longCount];
+            getBuffer().duplicate().get(result);
+            return result;
+        }
+
+        /**
+         * Maps the block data, under the same (class) lock as the resident list, so mapping and eviction can't deadlock against each other.
+         */
+        private LongBuffer map() {
+            synchronized (SchematicCache.class) {
+                if (buffer != null) {
+                    return buffer;
+                }
+                if (file.length() != offset + byteSize()) {
+                    throw new IllegalStateException("Schematic cache file " + file.getName() + " was changed or removed while in use");
+                }
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, byteSize()).asLongBuffer();
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException("Failed to map schematic cache file " + file.getName(), ex);
+                }
+                markResident(this);
+                return buffer;
+            }
+        }
+
+        /**
+         * Drops this reference to the mapping. The mapping itself is only released once the buffer is garbage collected.
+         * Must only be called while holding the class lock.
+         */
+        private void unmap() {
+            buffer = null;
+        }
+    }
+
+    private static final LinkedHashMap<MappedBlockData, Boolean> residentMappings = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long residentBytes = 0;
+
+    private static synchronized void markResident(MappedBlockData mapped) {
+        if (residentMappings.put(mapped, Boolean.TRUE) == null) {
+            residentBytes += mapped.byteSize();
+        }
+        Iterator<MappedBlockData> iterator = residentMappings.keySet().iterator();
+        while (residentBytes > maxMappedBytes && iterator.hasNext()) {
+            MappedBlockData eldest = iterator.next();
+            if (eldest == mapped) {
+                break;
+            }
+            iterator.remove();
+            residentBytes -= eldest.byteSize();
+            eldest.unmap();
+        }
+    }
+
+    /**
+     * Marks a schematic's block data as recently used, so it's the last to be unmapped.
+     */
+    public static synchronized void touch(PaletteBlockStorage storage) {
+        if (storage != null && storage.mapped != null) {
+            residentMappings.get(storage.mapped);
+        }
+    }
+
+    /**
+     * Unmaps a schematic's block data immediately, eg when the schematic is unloaded.
+     */
+    public static synchronized void release(PaletteBlockStorage storage) {
+        if (storage == null) {
+            return;
+        }
+        setLiveFile(storage, null);
+        if (storage.mapped != null && residentMappings.remove(storage.mapped) != null) {
+            residentBytes -= storage.mapped.byteSize();
+            storage.mapped.unmap();
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a cache file for the given schematic, tied to the current size and modified time of its source file.
+     * The file is written under a temporary name then moved into place, so a partially written cache is never read.
+     * Returns the file offset of the packed block data.
+     */
+    public static long write(CuboidBlockSet set, File source, File cacheFile) throws IOException {
+        PaletteBlockStorage blocks = set.blocks;
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeLong(source.length());
+        header.writeLong(source.lastModified());
+        header.writeInt(set.x_width);
+        header.writeInt(set.y_length);
+        header.writeInt(set.z_height);
+        header.writeInt(set.center_x);
+        header.writeInt(set.center_y);
+        header.writeInt(set.center_z);
+        header.writeBoolean(set.hasFlags);
+        header.writeInt(blocks.palette.size());
+        for (BlockData entry : blocks.palette) {
+            writeString(header, entry.getAsString());
+        }
+        header.writeInt(blocks.bitsPerEntry);
+        header.writeInt(blocks.longsFor(blocks.size));
+        header.writeBoolean(set.entities != null);
+        if (set.entities != null) {
+            writeString(header, set.entities.toString());
+        }
+        header.writeInt(blocks.tileEntities.size());
+        for (Int2ObjectMap.Entry<CompoundTag> entry : blocks.tileEntities.int2ObjectEntrySet()) {
+            header.writeInt(entry.getIntKey());
+            ByteArrayOutputStream nbtBytes = new ByteArrayOutputStream();
+            NBTOutputStream nbtStream = new NBTOutputStream(nbtBytes);
+            nbtStream.writeNamedTag("", entry.getValue());
+            nbtStream.close();
+            header.writeInt(nbtBytes.size());
+            nbtBytes.writeTo(header);
+        }
+        header.writeInt(blocks.flags.size());
+        for (Int2ObjectMap.Entry<MapTag> entry : blocks.flags.int2ObjectEntrySet()) {
+            header.writeInt(entry.getIntKey());
+            writeString(header, entry.getValue().toString());
+        }
+        header.flush();
+        cacheFile.getParentFile().mkdirs();
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 65536))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(headerBytes.size());
+            headerBytes.writeTo(output);
+            int longCount = blocks.longsFor(blocks.size);
+            for (int i = 0; i < longCount; i++) {
+                output.writeLong(blocks.getLong(i));
+            }
+        }
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        deleteStaleFiles(cacheFile);
+        return 16 + headerBytes.size();
+    }
+
+    /**
+     * Reads a schematic from its cache file, with the block data memory-mapped rather than loaded.
+     * Returns null if there's no cache file, or if it's outdated compared to the source file.
+     */
+    public static CuboidBlockSet read(File source, File cacheFile) throws IOException {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        CuboidBlockSet set = new CuboidBlockSet();
+        List<String> paletteStrings;
+        int bitsPerEntry, longCount;
+        long dataOffset;
+        ArrayList<Object[]> tileEntities = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 65536))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return null;
+            }
+            long headerLength = input.readLong();
+            dataOffset = 16 + headerLength;
+            if (input.readLong() != source.length() || input.readLong() != source.lastModified()) {
+                return null;
+            }
+            set.x_width = input.readInt();
+            set.y_length = input.readInt();
+            set.z_height = input.readInt();
+            set.center_x = input.readInt();
+            set.center_y = input.readInt();
+            set.center_z = input.readInt();
+            set.hasFlags = input.readBoolean();
+            int paletteSize = input.readInt();
+            paletteStrings = new ArrayList<>(paletteSize);
+            for (int i = 0; i < paletteSize; i++) {
+                paletteStrings.add(readString(input));
+            }
+            bitsPerEntry = input.readInt();
+            longCount = input.readInt();
+            if (input.readBoolean()) {
+                set.entities = ListTag.valueOf(readString(input), CoreUtilities.errorButNoDebugContext);
+            }
+            set.blocks = new PaletteBlockStorage(set.x_width * set.y_length * set.z_height);
+            int tileEntityCount = input.readInt();
+            for (int i = 0; i < tileEntityCount; i++) {
+                int index = input.readInt();
+                byte[] nbt = new byte[input.readInt()];
+                input.readFully(nbt);
+                NBTInputStream nbtStream = new NBTInputStream(new ByteArrayInputStream(nbt));
+                CompoundTag tag = (CompoundTag) nbtStream.readNamedTag().getTag();
+                nbtStream.close();
+                tileEntities.add(new Object[] {index, tag});
+            }
+            int flagCount = input.readInt();
+            for (int i = 0; i < flagCount; i++) {
+                int index = input.readInt();
+                set.blocks.setFlags(index, MapTag.valueOf(readString(input), CoreUtilities.noDebugContext));
+            }
+        }
+        if (dataOffset + longCount * 8L != cacheFile.length()) {
+            return null;
+        }
+        for (Object[] tileEntity : tileEntities) {
+            set.blocks.setTileEntity((Integer) tileEntity[0], NMSHandler.instance.createCompoundTag(((CompoundTag) tileEntity[1]).getValue()));
+        }
+        for (BlockData entry : parsePalette(paletteStrings)) {
+            set.blocks.palette.add(entry);
+            set.blocks.paletteIds.putIfAbsent(entry, set.blocks.palette.size() - 1);
+        }
+        useMapped(set.blocks, new MappedBlockData(cacheFile, dataOffset, longCount), bitsPerEntry);
+        return set;
+    }
+
+    private static void useMapped(PaletteBlockStorage blocks, MappedBlockData mapped, int bitsPerEntry) {
+        blocks.bitsPerEntry = bitsPerEntry;
+        blocks.entriesPerLong = 64 / bitsPerEntry;
+        blocks.mask = (1L << bitsPerEntry) - 1;
+        blocks.mapped = mapped;
+        blocks.data = null;
+        setLiveFile(blocks, mapped.file);
+    }
+
+    private static List<BlockData> parsePalette(List<String> paletteStrings) {
+        BlockData[] result = new BlockData[paletteStrings.size()];
+        if (Bukkit.isPrimaryThread()) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = SpongeSchematicHelper.blockDataCache.computeIfAbsent(paletteStrings.get(i), SpongeSchematicHelper::unstableParseMaterial);
+            }
+            return List.of(result);
+        }
+        boolean anyMissing = false;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = SpongeSchematicHelper.blockDataCache.get(paletteStrings.get(i));
+            anyMissing |= result[i] == null;
+        }
+        if (anyMissing) {
+            SpongeSchematicHelper.BoolHolder bool = new SpongeSchematicHelper.BoolHolder();
+            Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> {
+                for (int i = 0; i < result.length; i++) {
+                    if (result[i] == null) {
+                        result[i] = SpongeSchematicHelper.blockDataCache.computeIfAbsent(paletteStrings.get(i), SpongeSchematicHelper::unstableParseMaterial);
+                    }
+                }
+                bool.bool = true;
+            });
+            try {
+                for (int i = 0; i < 1000; i++) {
+                    Thread.sleep(50);
+                    if (bool.bool) {
+                        break;
+                    }
+                }
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return List.of(result);
+    }
+
+    /**
+     * Writes a cache file for a freshly loaded schematic in the background.
+     * Once written, if the schematic hasn't been changed in the meantime, its block data is swapped over to the mapped file to free up the heap copy.
+     */
+    public static void writeInBackground(CuboidBlockSet set, File source, File cacheFile) {
+        PaletteBlockStorage blocks = set.blocks;
+        long[] data = blocks.data;
+        int bitsPerEntry = blocks.bitsPerEntry;
+        if (isLiveFile(cacheFile)) {
+            // Already mapped by another loaded copy of the same source version, so can't be replaced
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(Denizen.getInstance(), () -> {
+            long dataOffset;
+            try {
+                dataOffset = write(set, source, cacheFile);
+            }
+            catch (Throwable ex) {
+                Debug.echoError("Failed to write schematic cache file " + cacheFile.getName() + ":");
+                Debug.echoError(ex);
+                return;
+            }
+            MappedBlockData mapped = new MappedBlockData(cacheFile, dataOffset, blocks.longsFor(blocks.size));
+            Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> {
+                if (set.blocks == blocks && blocks.data == data && blocks.bitsPerEntry == bitsPerEntry && !set.isModifying) {
+                    useMapped(blocks, mapped, bitsPerEntry);
+                }
+            });
+        });
+    }
+}
@@ -9,10 +9,10 @@ import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.block.data.BlockData;
-import org.bukkit.util.BlockVector;
 
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
@@ -91,7 +91,7 @@ public class SpongeSchematicHelper {
             cbs.center_x = originX;
             cbs.center_y = originY;
             cbs.center_z = originZ;
-            cbs.blocks = new FullBlockData[width * length * height];
+            cbs.blocks = new PaletteBlockStorage(width * length * height);
             Map<String, Tag> paletteMap = getChildTag(schematic, "Palette", CompoundTag.class).getValue();
             HashMap<Integer, BlockData> palette = new HashMap<>(256);
             List<Map.Entry<Integer, String>> latePairs = isPrimary ? null : new ArrayList<>();
@@ -125,21 +125,13 @@ public class SpongeSchematicHelper {
                     }
                 }
             }
-            Map<BlockVector, Map<String, Tag>> tileEntitiesMap = new HashMap<>();
-            if (schematic.containsKey("BlockEntities")) {
-                List<Tag> tileEntities = getChildTag(schematic, "BlockEntities", JNBTListTag.class).getValue();
-                for (Tag tag : tileEntities) {
-                    if (!(tag instanceof CompoundTag)) {
-                        continue;
-                    }
-                    CompoundTag t = (CompoundTag) tag;
-                    int[] pos = getChildTag(t.getValue(), "Pos", IntArrayTag.class).getValue();
-                    int x = pos[0];
-                    int y = pos[1];
-                    int z = pos[2];
-                    BlockVector vec = new BlockVector(x, y, z);
-                    tileEntitiesMap.put(vec, t.getValue());
-                }
+            int paletteMax = 0;
+            for (int id : palette.keySet()) {
+                paletteMax = Math.max(paletteMax, id + 1);
+            }
+            int[] storageIds = new int[paletteMax];
+            for (Map.Entry<Integer, BlockData> entry : palette.entrySet()) {
+                storageIds[entry.getKey()] = cbs.blocks.getOrAddPaletteId(entry.getValue());
             }
             byte[] blocks = getChildTag(schematic, "BlockData", ByteArrayTag.class).getValue();
             int i = 0;
@@ -158,23 +150,37 @@ public class SpongeSchematicHelper {
                     }
                     i++;
                 }
-                FullBlockData block = new FullBlockData(palette.get(value));
+                if (value >= storageIds.length) {
+                    throw new Exception("Schem file blocks tag data references missing palette entry " + value);
+                }
                 int y = index / (width * length);
                 int z = (index % (width * length)) / width;
                 int x = (index % (width * length)) % width;
-                int cbsIndex = z + y * cbs.z_height + x * cbs.z_height * cbs.y_length;
-                BlockVector pt = new BlockVector(x, y, z);
-                if (tileEntitiesMap.containsKey(pt)) {
-                    block.tileEntityData = NMSHandler.instance.createCompoundTag(tileEntitiesMap.get(pt));
-                }
-                cbs.blocks[cbsIndex] = block;
+                cbs.blocks.setPaletteId(cbs.indexOf(x, y, z), storageIds[value]);
                 index++;
             }
+            if (schematic.containsKey("BlockEntities")) {
+                List<Tag> tileEntities = getChildTag(schematic, "BlockEntities", JNBTListTag.class).getValue();
+                for (Tag tag : tileEntities) {
+                    if (!(tag instanceof CompoundTag)) {
+                        continue;
+                    }
+                    CompoundTag t = (CompoundTag) tag;
+                    int[] pos = getChildTag(t.getValue(), "Pos", IntArrayTag.class).getValue();
+                    int x = pos[0];
+                    int y = pos[1];
+                    int z = pos[2];
+                    if (x < 0 || y < 0 || z < 0 || x >= width || y >= height || z >= length) {
+                        continue;
+                    }
+                    cbs.blocks.setTileEntity(cbs.indexOf(x, y, z), NMSHandler.instance.createCompoundTag(t.getValue()));
+                }
+            }
             if (schematic.containsKey("DenizenFlags")) {
                 Map<String, Tag> flags = getChildTag(schematic, "DenizenFlags", CompoundTag.class).getValue();
                 for (Map.Entry<String, Tag> flagData : flags.entrySet()) {
                     int flagIndex = Integer.parseInt(flagData.getKey());
-                    cbs.blocks[flagIndex].flags = MapTag.valueOf(stringifyTag(flagData.getValue()), CoreUtilities.noDebugContext);
+                    cbs.blocks.setFlags(flagIndex, MapTag.valueOf(stringifyTag(flagData.getValue()), CoreUtilities.noDebugContext));
                 }
             }
         }
@@ -209,12 +215,17 @@ public class SpongeSchematicHelper {
             ByteArrayOutputStream blocksBuffer = new ByteArrayOutputStream((blockSet.x_width) * (blockSet.y_length) * (blockSet.z_height));
             ArrayList<Tag> tileEntities = new ArrayList<>();
             int paletteMax = 0;
+            String[] paletteStrings = new String[blockSet.blocks.palette.size()];
             for (int y = 0; y < blockSet.y_length; y++) {
                 for (int z = 0; z < blockSet.z_height; z++) {
                     for (int x = 0; x < blockSet.x_width; x++) {
                         int cbsIndex = z + y * blockSet.z_height + x * blockSet.z_height * blockSet.y_length;
-                        FullBlockData bd = blockSet.blocks[cbsIndex];
-                        String dataStr = bd.data.getAsString();
+                        int storageId = blockSet.blocks.getPaletteId(cbsIndex);
+                        String dataStr = paletteStrings[storageId];
+                        if (dataStr == null) {
+                            dataStr = blockSet.blocks.palette.get(storageId).getAsString();
+                            paletteStrings[storageId] = dataStr;
+                        }
                         Tag blockIdTag = palette.get(dataStr);
                         if (blockIdTag == null) {
                             blockIdTag = new IntTag(paletteMax++);
@@ -226,7 +237,7 @@ public class SpongeSchematicHelper {
                             blockId >>>= 7;
                         }
                         blocksBuffer.write(blockId);
-                        CompoundTag rawTag = bd.tileEntityData;
+                        CompoundTag rawTag = blockSet.blocks.tileEntities.get(cbsIndex);
                         if (rawTag != null) {
                             HashMap<String, Tag> values = new HashMap<>(rawTag.getValue());
                             values.put("Pos", new IntArrayTag(new int[] { x, y, z }));
@@ -242,10 +253,8 @@ public class SpongeSchematicHelper {
             schematic.put("BlockEntities", new JNBTListTag(CompoundTag.class, tileEntities));
             if (blockSet.hasFlags) {
                 Map<String, Tag> flagMap = new HashMap<>();
-                for (int i = 0; i < blockSet.blocks.length; i++) {
-                    if (blockSet.blocks[i].flags != null) {
-                        flagMap.put(String.valueOf(i), new ByteArrayTag(blockSet.blocks[i].flags.toString().getBytes(StandardCharsets.UTF_8)));
-                    }
+                for (Int2ObjectMap.Entry<MapTag> entry : blockSet.blocks.flags.int2ObjectEntrySet()) {
+                    flagMap.put(String.valueOf(entry.getIntKey()), new ByteArrayTag(entry.getValue().toString().getBytes(StandardCharsets.UTF_8)));
                 }
                 if (!flagMap.isEmpty()) {
                     schematic.put("DenizenFlags", NMSHandler.instance.createCompoundTag(flagMap));
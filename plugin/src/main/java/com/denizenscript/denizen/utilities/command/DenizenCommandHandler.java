@@ -9,6 +9,7 @@ import com.denizenscript.denizen.utilities.command.manager.exceptions.CommandExc
 import com.denizenscript.denizen.utilities.command.manager.messaging.Messaging;
 import com.denizenscript.denizen.utilities.debugging.DebugConsoleSender;
 import com.denizenscript.denizen.utilities.packets.NetworkInterceptHelper;
+import com.denizenscript.denizen.utilities.packets.PacketHandlerTimings;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.objects.notable.NoteManager;
 import com.denizenscript.denizencore.scripts.ScriptHelper;
@@ -119,6 +120,7 @@ public class DenizenCommandHandler {
     // '-i' enables/disables source information. When enabled, debug will show where it came from (when possible).
     // '-p' enables/disables packet debug logging. When enabled, all packets sent to players (from anywhere) will be logged to console.
     // or, '--pfilter (filter)' to enable packet debug logging with a string contain filter.
+    // '-t' enables/disables packet handler timings. When disabled, a report of how long each of Denizen's outgoing packet handlers took is shown.
     // '-f' enables/disables showing of future warnings. When enabled, future warnings (such as upcoming deprecations) will be displayed in console logs.
     // '-e' enables/disables extra output. This will spam more information about various internal things.
     // '-v' enables/disables advanced ultra-verbose log output. This will *flood* your console super hard.
@@ -133,7 +135,7 @@ public class DenizenCommandHandler {
     @Command(
             aliases = {"denizen"}, usage = "debug (--verbose on) (--ultraverbose on)",
             desc = "Toggles debug mode for Denizen.", modifiers = {"debug", "de", "db", "dbug"},
-            min = 1, max = 5, permission = "denizen.debug", flags = "scbroevnipfl")
+            min = 1, max = 5, permission = "denizen.debug", flags = "scbroevnipflt")
     public void debug(CommandContext args, CommandSender sender) throws CommandException {
         if (args.getFlags().isEmpty() && args.getValueFlags().isEmpty()) {
             CoreConfiguration.shouldShowDebug = !CoreConfiguration.shouldShowDebug;
@@ -210,6 +212,20 @@ public class DenizenCommandHandler {
             Messaging.sendInfo(sender, (NMSHandler.debugPackets ? "Denizen debugger is now showing unfiltered packet logs."
                     : "Denizen debugger is no longer showing packet logs."));
         }
+        if (args.hasFlag('t')) {
+            NetworkInterceptHelper.enable();
+            PacketHandlerTimings.enabled = !PacketHandlerTimings.enabled;
+            if (PacketHandlerTimings.enabled) {
+                PacketHandlerTimings.reset();
+                Messaging.sendInfo(sender, "Denizen is now timing packet handlers.");
+            }
+            else {
+                Messaging.sendInfo(sender, "Denizen is no longer timing packet handlers. Results:");
+                for (String line : PacketHandlerTimings.report()) {
+                    Messaging.send(sender, line);
+                }
+            }
+        }
         if (args.hasValueFlag("pfilter")) {
             NetworkInterceptHelper.enable();
             NMSHandler.debugPackets = true;
@@ -0,0 +1,78 @@
+package com.denizenscript.denizen.utilities.entity;
+
+import com.denizenscript.denizen.utilities.blocks.BlockScanner;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.util.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A snapshot of the living entities in one world, bucketed by chunk section, for many proximity queries within a single tick.
+ * Chunks are only read when a query first reaches them (and never loaded), so overlapping queries share the work of collecting entities.
+ * Must only be used on the main thread, and should not be kept past the tick it was made in.
+ */
+public class EntityProximityIndex {
+
+    public final World world;
+
+    private final Long2ObjectOpenHashMap<List<LivingEntity>> sections = new Long2ObjectOpenHashMap<>();
+
+    private final LongOpenHashSet readChunks = new LongOpenHashSet();
+
+    private final Location locationHolder = new Location(null, 0, 0, 0);
+
+    public EntityProximityIndex(World world) {
+        this.world = world;
+    }
+
+    private void readChunk(int chunkX, int chunkZ) {
+        if (!readChunks.add(BlockScanner.chunkKey(chunkX, chunkZ)) || !world.isChunkLoaded(chunkX, chunkZ)) {
+            return;
+        }
+        for (Entity entity : world.getChunkAt(chunkX, chunkZ).getEntities()) {
+            if (entity instanceof LivingEntity living) {
+                Location location = entity.getLocation(locationHolder);
+                long key = BlockScanner.packPosition(location.getBlockX() >> 4, location.getBlockY() >> 4, location.getBlockZ() >> 4);
+                List<LivingEntity> section = sections.get(key);
+                if (section == null) {
+                    section = new ArrayList<>();
+                    sections.put(key, section);
+                }
+                section.add(living);
+            }
+        }
+    }
+
+    /**
+     * Calls the consumer for every living entity whose bounding box overlaps the given box (the same check as {@link Entity#getNearbyEntities}).
+     * Entities are bucketed by their position, so the surrounding sections are checked too, to find larger entities that reach into the box.
+     */
+    public void forEachOverlapping(BoundingBox box, Consumer<LivingEntity> consumer) {
+        int minX = ((int) Math.floor(box.getMinX()) >> 4) - 1, maxX = ((int) Math.floor(box.getMaxX()) >> 4) + 1;
+        int minY = ((int) Math.floor(box.getMinY()) >> 4) - 1, maxY = ((int) Math.floor(box.getMaxY()) >> 4) + 1;
+        int minZ = ((int) Math.floor(box.getMinZ()) >> 4) - 1, maxZ = ((int) Math.floor(box.getMaxZ()) >> 4) + 1;
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                readChunk(x, z);
+                for (int y = minY; y <= maxY; y++) {
+                    List<LivingEntity> section = sections.get(BlockScanner.packPosition(x, y, z));
+                    if (section == null) {
+                        continue;
+                    }
+                    for (LivingEntity entity : section) {
+                        if (entity.getBoundingBox().overlaps(box)) {
+                            consumer.accept(entity);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -3,14 +3,17 @@ package com.denizenscript.denizen.utilities.entity;
 import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.objects.EntityTag;
+import com.denizenscript.denizen.utilities.flags.DataPersistenceFlagTracker;
 import com.denizenscript.denizen.utilities.packets.NetworkInterceptHelper;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.ints.Int2BooleanOpenHashMap;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
@@ -27,6 +30,83 @@ public class HideEntitiesHelper {
 
         public HashSet<String> matchersHidden = new HashSet<>();
 
+        /**
+         * Cached results of checking the hide matchers against an entity, by entity ID, so packets don't need to re-run matchers.
+         * Accessed from network threads, so synchronize on the map itself.
+         */
+        public final Int2BooleanOpenHashMap matcherVerdicts = new Int2BooleanOpenHashMap();
+
+        public int verdictGeneration = 0;
+
+        /**
+         * Only entity flag changes made through {@link DataPersistenceFlagTracker} invalidate verdicts.
+         * Player and NPC flags are stored elsewhere, and expiring flags vanish without a change, so those entities' verdicts aren't cached while a matcher checks flags.
+         */
+        public boolean matchersCheckFlags = false;
+
+        public void addMatcher(String matcher) {
+            matchersHidden.add(matcher);
+            matchersChanged();
+        }
+
+        public void removeMatcher(String matcher) {
+            matchersHidden.remove(matcher);
+            matchersChanged();
+        }
+
+        public void matchersChanged() {
+            matchersCheckFlags = false;
+            for (String matcher : matchersHidden) {
+                if (CoreUtilities.toLowerCase(matcher).contains("flagged:")) {
+                    matchersCheckFlags = true;
+                }
+            }
+            clearVerdicts();
+        }
+
+        public void clearVerdicts() {
+            synchronized (matcherVerdicts) {
+                verdictGeneration++;
+                matcherVerdicts.clear();
+            }
+        }
+
+        public void forgetVerdict(int entityId) {
+            synchronized (matcherVerdicts) {
+                verdictGeneration++;
+                matcherVerdicts.remove(entityId);
+            }
+        }
+
+        public boolean getMatcherVerdict(Entity entity) {
+            boolean canCache = !matchersCheckFlags || !(entity instanceof Player || EntityTag.isCitizensNPC(entity)
+                    || entity.getPersistentDataContainer().has(DataPersistenceFlagTracker.expireNeededKey, PersistentDataType.STRING));
+            int id = entity.getEntityId();
+            int generation;
+            synchronized (matcherVerdicts) {
+                if (canCache && matcherVerdicts.containsKey(id)) {
+                    return matcherVerdicts.get(id);
+                }
+                generation = verdictGeneration;
+            }
+            boolean verdict = false;
+            EntityTag entityTag = new EntityTag(entity);
+            for (String matchable : matchersHidden) {
+                if (entityTag.tryAdvancedMatcher(matchable, CoreUtilities.noDebugContext)) {
+                    verdict = true;
+                    break;
+                }
+            }
+            if (canCache) {
+                synchronized (matcherVerdicts) {
+                    if (generation == verdictGeneration) {
+                        matcherVerdicts.put(id, verdict);
+                    }
+                }
+            }
+            return verdict;
+        }
+
         public boolean shouldHideViaMatcher(Entity entity) {
             if (entity == null) {
                 return false;
@@ -35,17 +115,14 @@ public class HideEntitiesHelper {
                 if (overridinglyShow.contains(entity.getUniqueId())) {
                     return false;
                 }
-                EntityTag entityTag = new EntityTag(entity);
-                for (String matchable : matchersHidden) {
-                    if (entityTag.tryAdvancedMatcher(matchable, CoreUtilities.noDebugContext)) {
-                        if (entity instanceof Player) {
-                            Player thisPlayer = Bukkit.getPlayer(player);
-                            if (thisPlayer != null && thisPlayer.canSee((Player) entity)) {
-                                thisPlayer.hidePlayer(Denizen.getInstance(), (Player) entity);
-                            }
+                if (getMatcherVerdict(entity)) {
+                    if (entity instanceof Player) {
+                        Player thisPlayer = Bukkit.getPlayer(player);
+                        if (thisPlayer != null && thisPlayer.canSee((Player) entity)) {
+                            thisPlayer.hidePlayer(Denizen.getInstance(), (Player) entity);
                         }
-                        return true;
                     }
+                    return true;
                 }
             }
             return false;
@@ -94,6 +171,25 @@ public class HideEntitiesHelper {
         return map.shouldHide(ent);
     }
 
+    /**
+     * Forgets the cached matcher verdict for an entity being (re)sent to or removed from a player's view.
+     */
+    public static void forgetVerdict(UUID player, int entityId) {
+        PlayerHideMap map = playerHides.get(player);
+        if (map != null) {
+            map.forgetVerdict(entityId);
+        }
+    }
+
+    /**
+     * Forgets all cached matcher verdicts for an entity, for when it changes in a way that could change matcher results (like its flags).
+     */
+    public static void forgetVerdicts(int entityId) {
+        for (PlayerHideMap map : playerHides.values()) {
+            map.forgetVerdict(entityId);
+        }
+    }
+
     public static boolean addHide(UUID player, UUID entity) {
         NetworkInterceptHelper.enable();
         ensurePlayerHiding();
@@ -0,0 +1,114 @@
+package com.denizenscript.denizen.utilities.flags;
+
+import com.denizenscript.denizen.utilities.blocks.BlockScanner;
+import com.denizenscript.denizen.utilities.blocks.ChunkCoordinate;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of which blocks in a chunk have which (root) flags, to avoid scanning every key in the chunk's persistent data container on flag searches.
+ * Indices are built the first time a chunk is searched, kept up to date by DataPersistenceFlagTracker, and dropped when the chunk unloads.
+ * Entries may be stale in the 'has flag' direction (eg after a flag expires), so searches must still verify each result.
+ * Cached indices are only used and updated on the main thread. Off-thread searches build an uncached index, and off-thread flag changes drop the chunk's cached index.
+ */
+public class ChunkFlagIndex {
+
+    public static final String BLOCK_FLAG_PREFIX = "flag_tracker_";
+
+    /** Cached indices per chunk. The per-chunk maps must only be read or changed on the main thread. */
+    public static ConcurrentHashMap<ChunkCoordinate, HashMap<String, LongOpenHashSet>> indices = new ConcurrentHashMap<>();
+
+    private static HashMap<String, LongOpenHashSet> getIndex(Chunk chunk) {
+        if (!Bukkit.isPrimaryThread()) {
+            return buildIndex(chunk);
+        }
+        return indices.computeIfAbsent(new ChunkCoordinate(chunk), (k) -> buildIndex(chunk));
+    }
+
+    /**
+     * Returns the packed positions (see {@link BlockScanner#packPosition}) of all blocks in the chunk that (probably) have the given cleaned root flag name, or null if none.
+     */
+    public static LongOpenHashSet getPositions(Chunk chunk, String cleanFlagName) {
+        return getIndex(chunk).get(cleanFlagName);
+    }
+
+    /**
+     * Returns the packed positions of all blocks in the chunk that (probably) have any flags.
+     */
+    public static LongOpenHashSet getAllPositions(Chunk chunk) {
+        HashMap<String, LongOpenHashSet> index = getIndex(chunk);
+        LongOpenHashSet result = new LongOpenHashSet();
+        for (LongOpenHashSet positions : index.values()) {
+            result.addAll(positions);
+        }
+        return result;
+    }
+
+    public static HashMap<String, LongOpenHashSet> buildIndex(Chunk chunk) {
+        HashMap<String, LongOpenHashSet> index = new HashMap<>();
+        for (NamespacedKey key : chunk.getPersistentDataContainer().getKeys()) {
+            if (key.getNamespace().equals("denizen") && key.getKey().startsWith(BLOCK_FLAG_PREFIX)) {
+                List<String> split = CoreUtilities.split(key.getKey(), '_', 6);
+                if (split.size() == 6) {
+                    try {
+                        long packed = BlockScanner.packPosition(Integer.parseInt(split.get(2)), Integer.parseInt(split.get(3)), Integer.parseInt(split.get(4)));
+                        index.computeIfAbsent(split.get(5), (k) -> new LongOpenHashSet()).add(packed);
+                    }
+                    catch (NumberFormatException ex) {
+                        // Not a valid block flag key, ignore
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Called when a block flag is set or removed. 'keyPrefix' is the block's flag tracker prefix, like "flag_tracker_1_2_3_".
+     */
+    public static void update(Chunk chunk, String keyPrefix, String cleanFlagName, boolean isSet) {
+        ChunkCoordinate coord = new ChunkCoordinate(chunk);
+        if (!Bukkit.isPrimaryThread()) {
+            indices.remove(coord);
+            return;
+        }
+        HashMap<String, LongOpenHashSet> index = indices.get(coord);
+        if (index == null) {
+            return;
+        }
+        List<String> split = CoreUtilities.split(keyPrefix, '_', 6);
+        if (split.size() != 6) {
+            return;
+        }
+        long packed = BlockScanner.packPosition(Integer.parseInt(split.get(2)), Integer.parseInt(split.get(3)), Integer.parseInt(split.get(4)));
+        if (isSet) {
+            index.computeIfAbsent(cleanFlagName, (k) -> new LongOpenHashSet()).add(packed);
+        }
+        else {
+            LongOpenHashSet positions = index.get(cleanFlagName);
+            if (positions != null) {
+                positions.remove(packed);
+                if (positions.isEmpty()) {
+                    index.remove(cleanFlagName);
+                }
+            }
+        }
+    }
+
+    public static void unload(Chunk chunk) {
+        indices.remove(new ChunkCoordinate(chunk));
+    }
+
+    public static void unload(World world) {
+        String name = world.getName();
+        indices.keySet().removeIf(coord -> coord.worldName.equals(name));
+    }
+}
@@ -3,16 +3,23 @@ package com.denizenscript.denizen.utilities.flags;
 import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.utilities.DataPersistenceHelper;
+import com.denizenscript.denizen.utilities.entity.HideEntitiesHelper;
 import com.denizenscript.denizencore.flags.MapTagBasedFlagTracker;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.utilities.AsciiMatcher;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.google.common.collect.MapMaker;
+import org.bukkit.Chunk;
 import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Entity;
+import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataHolder;
 import org.bukkit.persistence.PersistentDataType;
 
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DataPersistenceFlagTracker extends MapTagBasedFlagTracker {
 
@@ -35,21 +42,77 @@ public class DataPersistenceFlagTracker extends MapTagBasedFlagTracker {
         return allowedKeyText.trimToMatches(CoreUtilities.toLowerCase(input));
     }
 
+    public static class DecodedRootMap {
+
+        public Object rawTag;
+
+        public MapTag map;
+    }
+
+    /**
+     * Cache of decoded root maps, per data container (weak, identity-compared keys), per full key name.
+     * Each entry is stamped with the raw NBT tag it was decoded from, which is replaced whenever the stored value changes,
+     * so changes to the container made without going through this class are still detected.
+     */
+    public static ConcurrentMap<PersistentDataContainer, ConcurrentHashMap<String, DecodedRootMap>> decodedCache = new MapMaker().weakKeys().makeMap();
+
+    public static long decodedCacheHits = 0, decodedCacheMisses = 0;
+
+    public static void invalidateDecodedCache(PersistentDataHolder holder) {
+        decodedCache.remove(holder.getPersistentDataContainer());
+    }
+
     @Override
     public MapTag getRootMap(String key) {
-        return (MapTag) DataPersistenceHelper.getDenizenKey(holder, keyPrefix + cleanKeyName(key));
+        String fullKey = keyPrefix + cleanKeyName(key);
+        PersistentDataContainer container = holder.getPersistentDataContainer();
+        Object rawTag = NMSHandler.instance.containerGetRaw(container, "denizen:" + fullKey);
+        if (rawTag == null) {
+            return null;
+        }
+        ConcurrentHashMap<String, DecodedRootMap> holderCache = decodedCache.get(container);
+        if (holderCache != null) {
+            DecodedRootMap decoded = holderCache.get(fullKey);
+            if (decoded != null && decoded.rawTag == rawTag) {
+                decodedCacheHits++;
+                return decoded.map;
+            }
+        }
+        decodedCacheMisses++;
+        MapTag map = (MapTag) DataPersistenceHelper.getDenizenKey(holder, fullKey);
+        if (map != null) {
+            if (holderCache == null) {
+                holderCache = decodedCache.computeIfAbsent(container, (k) -> new ConcurrentHashMap<>());
+            }
+            DecodedRootMap decoded = new DecodedRootMap();
+            decoded.rawTag = rawTag;
+            decoded.map = map;
+            holderCache.put(fullKey, decoded);
+        }
+        return map;
     }
 
     @Override
     public void setRootMap(String key, MapTag map) {
+        String cleanKey = cleanKeyName(key);
+        ConcurrentHashMap<String, DecodedRootMap> holderCache = decodedCache.get(holder.getPersistentDataContainer());
+        if (holderCache != null) {
+            holderCache.remove(keyPrefix + cleanKey);
+        }
+        if (holder instanceof Chunk && keyPrefix.startsWith(ChunkFlagIndex.BLOCK_FLAG_PREFIX)) {
+            ChunkFlagIndex.update((Chunk) holder, keyPrefix, cleanKey, map != null);
+        }
+        else if (holder instanceof Entity entity && HideEntitiesHelper.hasAnyHides()) {
+            HideEntitiesHelper.forgetVerdicts(entity.getEntityId());
+        }
         if (map == null) {
-            DataPersistenceHelper.removeDenizenKey(holder, keyPrefix + cleanKeyName(key));
+            DataPersistenceHelper.removeDenizenKey(holder, keyPrefix + cleanKey);
             return;
         }
         if (map.containsKey(expirationString) || map.getObject(valueString) instanceof MapTag) {
             holder.getPersistentDataContainer().set(expireNeededKey, PersistentDataType.STRING, "true");
         }
-        DataPersistenceHelper.setDenizenKey(holder, keyPrefix + cleanKeyName(key), map);
+        DataPersistenceHelper.setDenizenKey(holder, keyPrefix + cleanKey, map);
     }
 
     @Override
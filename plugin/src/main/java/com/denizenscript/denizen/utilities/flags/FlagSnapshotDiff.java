@@ -0,0 +1,51 @@
+package com.denizenscript.denizen.utilities.flags;
+
+import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds which flag roots in a SavableMapFlagTracker changed since a saved snapshot, for incremental flag saves.
+ */
+public class FlagSnapshotDiff {
+
+    public static class FlagChange {
+
+        public String key;
+
+        /** Null for a removal. */
+        public String value;
+
+        public FlagChange(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Returns the list of flag roots that changed since the last call, by comparing against the given snapshot of flag objects.
+     * SavableMapFlagTracker replaces the root flag object on every 'setRootMap', so an identity comparison is sufficient.
+     * Only changed roots are converted to text. The snapshot is updated to match the tracker's current state.
+     * Must be called on the main thread.
+     */
+    public static List<FlagChange> collectChanges(SavableMapFlagTracker tracker, HashMap<StringHolder, SavableMapFlagTracker.SaveOptimizedFlag> snapshot) {
+        ArrayList<FlagChange> changes = new ArrayList<>();
+        for (Map.Entry<StringHolder, SavableMapFlagTracker.SaveOptimizedFlag> entry : tracker.map.entrySet()) {
+            if (snapshot.get(entry.getKey()) != entry.getValue()) {
+                changes.add(new FlagChange(entry.getKey().str, entry.getValue().getString()));
+            }
+        }
+        for (StringHolder key : snapshot.keySet()) {
+            if (!tracker.map.containsKey(key)) {
+                changes.add(new FlagChange(key.str, null));
+            }
+        }
+        snapshot.clear();
+        snapshot.putAll(tracker.map);
+        return changes;
+    }
+}
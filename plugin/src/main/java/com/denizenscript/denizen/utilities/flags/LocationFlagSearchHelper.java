@@ -1,13 +1,11 @@
 package com.denizenscript.denizen.utilities.flags;
 
 import com.denizenscript.denizen.objects.LocationTag;
-import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizen.utilities.blocks.BlockScanner;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
-import org.bukkit.NamespacedKey;
-import org.bukkit.persistence.PersistentDataContainer;
 
-import java.util.List;
 import java.util.function.Consumer;
 
 public class LocationFlagSearchHelper {
@@ -18,19 +16,18 @@ public class LocationFlagSearchHelper {
         if (subKeyIndex != -1) {
             flagName = flagName.substring(0, subKeyIndex);
         }
-        PersistentDataContainer container = chunk.getPersistentDataContainer();
+        LongOpenHashSet positions = ChunkFlagIndex.getPositions(chunk, DataPersistenceFlagTracker.cleanKeyName(flagName));
+        if (positions == null) {
+            return;
+        }
         Location ref = new Location(chunk.getWorld(), 0, 0, 0);
-        for (NamespacedKey key : container.getKeys()) {
-            if (key.getNamespace().equals("denizen") && key.getKey().startsWith("flag_tracker_") && key.getKey().endsWith(flagName)) {
-                List<String> split = CoreUtilities.split(key.getKey(), '_', 6);
-                if (split.size() == 6 && split.get(5).equals(flagName)) {
-                    ref.setX(Integer.parseInt(split.get(2)));
-                    ref.setY(Integer.parseInt(split.get(3)));
-                    ref.setZ(Integer.parseInt(split.get(4)));
-                    if (new LocationTag(ref).getFlagTracker().hasFlag(fullPath)) {
-                        handleLocation.accept(ref);
-                    }
-                }
+        // Copied, as the handler may modify flags in this chunk
+        for (long packed : positions.toLongArray()) {
+            ref.setX(BlockScanner.unpackX(packed));
+            ref.setY(BlockScanner.unpackY(packed));
+            ref.setZ(BlockScanner.unpackZ(packed));
+            if (new LocationTag(ref).getFlagTracker().hasFlag(fullPath)) {
+                handleLocation.accept(ref);
             }
         }
     }
@@ -0,0 +1,191 @@
+package com.denizenscript.denizen.utilities.flags;
+
+import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary player flag storage.
+ * A file is a short header followed by an append-only journal of flag root changes.
+ * Each record is: type byte, key, value (for puts), then a CRC32 of the record. Strings are length-prefixed UTF-8.
+ * A truncated or corrupted trailing record (eg from a crash mid-write) is ignored on read, and the file must then be fully rewritten before appending to it again.
+ * The journal is compacted (rewritten to hold only the latest value of each root) once it grows past the live data size.
+ */
+public class PlayerFlagBinaryStore {
+
+    public static final int MAGIC = 0x44464C47; // "DFLG"
+
+    public static final byte VERSION = 1;
+
+    public static final byte RECORD_PUT = 1, RECORD_REMOVE = 2;
+
+    public static final int HEADER_SIZE = 5;
+
+    /** Journals smaller than this are never compacted. */
+    public static long minimumCompactSize = 64 * 1024;
+
+    public static class LoadedFlags {
+
+        public HashMap<String, String> values = new HashMap<>();
+
+        public long liveBytes;
+
+        /** False if reading stopped early at a truncated or corrupted record, in which case the file must be rewritten with {@link #write} rather than appended to. */
+        public boolean complete = true;
+    }
+
+    public static File fileFor(File folder, String id) {
+        return new File(folder, id + ".dfb");
+    }
+
+    public static SavableMapFlagTracker toTracker(LoadedFlags flags) {
+        SavableMapFlagTracker tracker = new SavableMapFlagTracker();
+        for (Map.Entry<String, String> entry : flags.values.entrySet()) {
+            SavableMapFlagTracker.SaveOptimizedFlag flag = new SavableMapFlagTracker.SaveOptimizedFlag();
+            flag.string = entry.getValue();
+            flag.canExpire = flag.string.startsWith("map@");
+            tracker.map.put(new StringHolder(entry.getKey()), flag);
+        }
+        return tracker;
+    }
+
+    public static LoadedFlags read(File file) throws IOException {
+        LoadedFlags result = new LoadedFlags();
+        byte[] data = Files.readAllBytes(file.toPath());
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        if (data.length < HEADER_SIZE || input.readInt() != MAGIC) {
+            throw new IOException("File '" + file.getName() + "' is not a valid binary flag file");
+        }
+        byte version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("File '" + file.getName() + "' has unsupported binary flag format version " + version);
+        }
+        HashMap<String, Integer> sizes = new HashMap<>();
+        int position = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (position < data.length) {
+            try {
+                byte type = input.readByte();
+                String key = readString(input);
+                String value = type == RECORD_PUT ? readString(input) : null;
+                int end = data.length - input.available();
+                int checksum = input.readInt();
+                crc.reset();
+                crc.update(data, position, end - position);
+                if ((int) crc.getValue() != checksum || (type != RECORD_PUT && type != RECORD_REMOVE)) {
+                    Debug.echoError("Binary flag file '" + file.getName() + "' has a corrupted record at byte " + position + ", ignoring the remainder of the file.");
+                    result.complete = false;
+                    break;
+                }
+                if (value == null) {
+                    result.values.remove(key);
+                    sizes.remove(key);
+                }
+                else {
+                    result.values.put(key, value);
+                    sizes.put(key, end + 4 - position);
+                }
+                position = end + 4;
+            }
+            catch (EOFException ex) {
+                Debug.echoError("Binary flag file '" + file.getName() + "' has a truncated record at byte " + position + ", ignoring it.");
+                result.complete = false;
+                break;
+            }
+        }
+        for (int size : sizes.values()) {
+            result.liveBytes += size;
+        }
+        return result;
+    }
+
+    /**
+     * Appends the given changes to the journal file (creating it if needed), and returns the number of bytes written.
+     */
+    public static long append(File file, List<FlagSnapshotDiff.FlagChange> changes) throws IOException {
+        boolean isNew = !file.exists() || file.length() < HEADER_SIZE;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        if (isNew) {
+            writeHeader(output);
+        }
+        for (FlagSnapshotDiff.FlagChange change : changes) {
+            writeRecord(output, change);
+        }
+        output.flush();
+        try (FileOutputStream stream = new FileOutputStream(file, !isNew)) {
+            bytes.writeTo(stream);
+            stream.getFD().sync();
+        }
+        return bytes.size();
+    }
+
+    /**
+     * Rewrites the journal to contain only the latest value of each flag root, and returns the new file size.
+     * Safe to run off the main thread, as it only works from the file itself.
+     */
+    public static long compact(File file) throws IOException {
+        LoadedFlags flags = read(file);
+        return write(file, flags.values);
+    }
+
+    /**
+     * Writes a complete fresh file with the given values, via a temporary file so that a crash can't lose data.
+     */
+    public static long write(File file, Map<String, String> values) throws IOException {
+        File tempFile = new File(file.getPath() + "~tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            writeHeader(output);
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writeRecord(output, new FlagSnapshotDiff.FlagChange(entry.getKey(), entry.getValue()));
+            }
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file.length();
+    }
+
+    public static void writeHeader(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+    }
+
+    public static void writeRecord(DataOutputStream output, FlagSnapshotDiff.FlagChange change) throws IOException {
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        record.writeByte(change.value == null ? RECORD_REMOVE : RECORD_PUT);
+        writeString(record, change.key);
+        if (change.value != null) {
+            writeString(record, change.value);
+        }
+        record.flush();
+        CRC32 crc = new CRC32();
+        crc.update(recordBytes.toByteArray());
+        recordBytes.writeTo(output);
+        output.writeInt((int) crc.getValue());
+    }
+
+    public static void writeString(DataOutputStream output, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    public static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new EOFException();
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
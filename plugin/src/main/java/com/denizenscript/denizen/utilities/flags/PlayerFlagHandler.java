@@ -7,6 +7,7 @@ import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.flags.AbstractFlagTracker;
 import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -15,14 +16,11 @@ import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.File;
-import java.lang.ref.SoftReference;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class PlayerFlagHandler implements Listener {
@@ -33,14 +31,39 @@ public class PlayerFlagHandler implements Listener {
 
     public static boolean saveOnlyWhenWorldSaveOn = false;
 
+    public static boolean binaryFormat = false;
+
+    public static int secondaryCacheSize = 1000;
+
     public static class CachedPlayerFlag {
 
         public long lastAccessed;
 
-        public SavableMapFlagTracker tracker;
+        /** Null until the flag file has been read and applied by {@link #applyLoaded}. */
+        public volatile SavableMapFlagTracker tracker;
 
         public AtomicBoolean savingNow = new AtomicBoolean(false), loadingNow = new AtomicBoolean(false);
 
+        /** Completes with the read flags once the flag file has been read. They only become the {@link #tracker} once applied by {@link #applyLoaded}. */
+        public CompletableFuture<SavableMapFlagTracker> loadFuture = new CompletableFuture<>();
+
+        /** The flags read from file, waiting to be applied. Only valid once 'readDone' is set. */
+        public SavableMapFlagTracker readTracker;
+
+        /** Whether the read flags exactly match the binary file (and so can be used as the save baseline), and whether they must be saved even if unchanged. */
+        public boolean readIsBaseline, readNeedsSave;
+
+        public volatile boolean readDone;
+
+        /** For binary saves: the flag root objects as of the last save, used to determine which roots changed. */
+        public HashMap<StringHolder, SavableMapFlagTracker.SaveOptimizedFlag> savedFlags = new HashMap<>();
+
+        /** For binary saves: bytes appended to the journal since it was last compacted, and the size of the file at that time. */
+        public long journalBytes, compactedBytes;
+
+        /** For binary saves: set if the last save failed, so the next save rewrites the whole file instead of appending changes that were never written. */
+        public volatile boolean saveFailed;
+
         public boolean shouldExpire() {
             if (cacheTimeoutSeconds == -1) {
                 return false;
@@ -54,34 +77,38 @@ public class PlayerFlagHandler implements Listener {
 
     public static File dataFolder;
 
-    public static HashMap<UUID, CachedPlayerFlag> playerFlagTrackerCache = new HashMap<>();
+    public static ConcurrentHashMap<UUID, CachedPlayerFlag> playerFlagTrackerCache = new ConcurrentHashMap<>();
 
-    public static HashMap<UUID, SoftReference<CachedPlayerFlag>> secondaryPlayerFlagTrackerCache = new HashMap<>();
+    /**
+     * Recently expired, already-saved trackers, kept in case the player comes back soon. Bounded to 'secondaryCacheSize', least-recently-used first out.
+     * Must be synchronized on when used.
+     */
+    public static LinkedHashMap<UUID, CachedPlayerFlag> secondaryPlayerFlagTrackerCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, CachedPlayerFlag> eldest) {
+            return size() > secondaryCacheSize;
+        }
+    };
 
-    private static ArrayList<UUID> toClearCache = new ArrayList<>();
+    public static CachedPlayerFlag takeFromSecondaryCache(UUID id) {
+        synchronized (secondaryPlayerFlagTrackerCache) {
+            return secondaryPlayerFlagTrackerCache.remove(id);
+        }
+    }
 
-    public static void cleanSecondaryCache() {
-        toClearCache.clear();
-        for (Map.Entry<UUID, SoftReference<CachedPlayerFlag>> entry : secondaryPlayerFlagTrackerCache.entrySet()) {
-            // NOTE: This call will make the GC think the value is still needed, thus the 10 minute cleanup timer to allow the GC to know these are unimportant
-            if (entry.getValue().get() == null) {
-                toClearCache.add(entry.getKey());
-            }
+    public static void addToSecondaryCache(UUID id, CachedPlayerFlag cache) {
+        if (secondaryCacheSize <= 0) {
+            return;
         }
-        for (UUID id : toClearCache) {
-            secondaryPlayerFlagTrackerCache.remove(id);
+        synchronized (secondaryPlayerFlagTrackerCache) {
+            secondaryPlayerFlagTrackerCache.put(id, cache);
         }
     }
 
-    private static int secondaryCleanTicker = 0;
-
     public static void cleanCache() {
         if (cacheTimeoutSeconds == -1) {
             return;
         }
-        if (secondaryCleanTicker++ > 10) {
-            cleanSecondaryCache();
-        }
         long timeNow = CoreUtilities.monotonicMillis();
         for (Map.Entry<UUID, CachedPlayerFlag> entry : playerFlagTrackerCache.entrySet()) {
             if (cacheTimeoutSeconds > 0 && entry.getValue().lastAccessed + (cacheTimeoutSeconds * 1000) < timeNow) {
@@ -102,9 +129,8 @@ public class PlayerFlagHandler implements Listener {
         BukkitRunnable expireTask = new BukkitRunnable() {
             @Override
             public void run() {
-                if (cache.shouldExpire()) {
-                    playerFlagTrackerCache.remove(id);
-                    secondaryPlayerFlagTrackerCache.put(id, new SoftReference<>(cache));
+                if (cache.shouldExpire() && !cache.tracker.modified && playerFlagTrackerCache.remove(id, cache)) {
+                    addToSecondaryCache(id, cache);
                 }
             }
         };
@@ -125,13 +151,13 @@ public class PlayerFlagHandler implements Listener {
             return;
         }
         cache.tracker.modified = false;
-        String text = cache.tracker.toString();
+        Runnable doSave = prepareSave(id, cache);
         cache.savingNow.set(true);
         new BukkitRunnable() {
             @Override
             public void run() {
                 try {
-                    saveFlags(id, text);
+                    doSave.run();
                 }
                 catch (Throwable ex) {
                     Debug.echoError(ex);
@@ -142,132 +168,233 @@ public class PlayerFlagHandler implements Listener {
         }.runTaskAsynchronously(Denizen.getInstance());
     }
 
-    public static void loadFlags(UUID id, CachedPlayerFlag cache) {
+    /**
+     * Gathers the data to save on the current (main) thread, and returns a task that writes it to file, which may be run off-thread.
+     */
+    public static Runnable prepareSave(UUID id, CachedPlayerFlag cache) {
+        if (!binaryFormat) {
+            String text = cache.tracker.toString();
+            return () -> {
+                saveFlags(id, text);
+                File binaryFile = PlayerFlagBinaryStore.fileFor(dataFolder, id.toString());
+                if (binaryFile.exists()) {
+                    migrateAway(binaryFile);
+                }
+            };
+        }
+        if (cache.saveFailed) {
+            cache.saveFailed = false;
+            cache.savedFlags.clear();
+        }
+        boolean fullWrite = cache.savedFlags.isEmpty();
+        List<FlagSnapshotDiff.FlagChange> changes = FlagSnapshotDiff.collectChanges(cache.tracker, cache.savedFlags);
+        return () -> {
+            if (changes.isEmpty()) {
+                return;
+            }
+            File binaryFile = PlayerFlagBinaryStore.fileFor(dataFolder, id.toString());
+            try {
+                if (fullWrite) {
+                    HashMap<String, String> values = new HashMap<>(changes.size());
+                    for (FlagSnapshotDiff.FlagChange change : changes) {
+                        values.put(change.key, change.value);
+                    }
+                    cache.compactedBytes = PlayerFlagBinaryStore.write(binaryFile, values);
+                    cache.journalBytes = 0;
+                }
+                else {
+                    cache.journalBytes += PlayerFlagBinaryStore.append(binaryFile, changes);
+                }
+                if (cache.journalBytes > cache.compactedBytes && cache.journalBytes + cache.compactedBytes > PlayerFlagBinaryStore.minimumCompactSize) {
+                    cache.compactedBytes = PlayerFlagBinaryStore.compact(binaryFile);
+                    cache.journalBytes = 0;
+                }
+            }
+            catch (IOException ex) {
+                Debug.echoError("Failed to save binary flags for player " + id + ":");
+                Debug.echoError(ex);
+                cache.saveFailed = true;
+                cache.tracker.modified = true;
+                return;
+            }
+            File textFile = new File(dataFolder, id + ".dat");
+            if (textFile.exists()) {
+                migrateAway(textFile);
+            }
+        };
+    }
+
+    public static void migrateAway(File oldFile) {
         try {
-            cache.tracker = SavableMapFlagTracker.loadFlagFile(new File(dataFolder, id.toString()).getPath(), false);
+            Files.move(oldFile.toPath(), new File(oldFile.getPath() + ".migrated").toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
-        finally {
-            cache.loadingNow.set(false);
+        catch (IOException ex) {
+            Debug.echoError(ex);
         }
     }
 
-    public static AbstractFlagTracker getTrackerFor(UUID id) {
-        CachedPlayerFlag cache = playerFlagTrackerCache.get(id);
-        if (cache == null) {
-            SoftReference<CachedPlayerFlag> softRef = secondaryPlayerFlagTrackerCache.get(id);
-            if (softRef != null) {
-                cache = softRef.get();
-                if (cache != null) {
-                    cache.lastAccessed = CoreUtilities.monotonicMillis();
-                    if (CoreConfiguration.debugVerbose) {
-                        Debug.echoError("Verbose - (getTrackerFor) flag tracker updated from soft to main for " + id);
-                    }
-                    playerFlagTrackerCache.put(id, cache);
-                    secondaryPlayerFlagTrackerCache.remove(id);
-                    return cache.tracker;
+    /**
+     * Reads the flag file for the given cache entry. May be run off-thread. The read flags only become the entry's tracker once applied, see {@link #applyLoaded}.
+     */
+    public static void loadFlags(UUID id, CachedPlayerFlag cache) {
+        try {
+            File binaryFile = PlayerFlagBinaryStore.fileFor(dataFolder, id.toString());
+            boolean hasText = new File(dataFolder, id + ".dat").exists();
+            if (binaryFile.exists() && (binaryFormat || !hasText)) {
+                try {
+                    PlayerFlagBinaryStore.LoadedFlags loaded = PlayerFlagBinaryStore.read(binaryFile);
+                    cache.readTracker = PlayerFlagBinaryStore.toTracker(loaded);
+                    cache.compactedBytes = loaded.liveBytes;
+                    cache.journalBytes = binaryFile.length() - loaded.liveBytes;
+                    // Either migrating away, or the file has a bad record that must be overwritten before any more appends
+                    cache.readIsBaseline = binaryFormat && loaded.complete;
+                    cache.readNeedsSave = !cache.readIsBaseline;
+                    return;
+                }
+                catch (IOException ex) {
+                    Debug.echoError("Failed to load binary flags for player " + id + ", falling back to text flag file:");
+                    Debug.echoError(ex);
                 }
             }
-            cache = new CachedPlayerFlag();
-            cache.lastAccessed = CoreUtilities.monotonicMillis();
-            cache.loadingNow.set(true);
-            if (CoreConfiguration.debugVerbose) {
-                Debug.echoError("Verbose - (getTrackerFor) flag tracker created for " + id);
-            }
-            playerFlagTrackerCache.put(id, cache);
-            loadFlags(id, cache);
-            if (cache.tracker != null && !CoreConfiguration.skipAllFlagCleanings) {
-                cache.tracker.doTotalClean();
+            cache.readTracker = SavableMapFlagTracker.loadFlagFile(new File(dataFolder, id.toString()).getPath(), false);
+            cache.readNeedsSave = binaryFormat && hasText && cache.readTracker != null;
+        }
+        finally {
+            cache.readDone = true;
+            cache.loadFuture.complete(cache.readTracker);
+            if (Denizen.getInstance().isEnabled()) {
+                Bukkit.getScheduler().runTask(Denizen.getInstance(), () -> applyLoaded(cache));
             }
         }
-        else {
-            if (CoreConfiguration.debugVerbose) {
-                Debug.echoError("Verbose - (getTrackerFor) flag tracker was cached for " + id);
+    }
+
+    /**
+     * Makes the flags read by {@link #loadFlags} the entry's tracker, if the read is done and they haven't been applied yet.
+     * No tracker is handed out before this, so nothing can have been written that the read flags would have to be merged with.
+     */
+    public static void applyLoaded(CachedPlayerFlag cache) {
+        synchronized (cache) {
+            if (!cache.readDone || !cache.loadingNow.get()) {
+                return;
             }
-            if (cache.loadingNow.get()) {
-                long start = CoreUtilities.monotonicMillis();
-                while (cache.loadingNow.get()) {
-                    if (CoreConfiguration.debugVerbose) {
-                        Debug.echoError("Verbose - (getTrackerFor) flag tracker is loading, so waiting, for " + id + " ... at " + (CoreUtilities.monotonicMillis() - start) + "ms");
-                    }
-                    if (CoreUtilities.monotonicMillis() - start > 15 * 1000) {
-                        Debug.echoError("Flag loading timeout, errors may follow");
-                        playerFlagTrackerCache.remove(id);
-                        return null;
-                    }
-                    try {
-                        Thread.sleep(1);
-                    }
-                    catch (InterruptedException ex) {
-                        Debug.echoError(ex);
-                        return cache.tracker;
-                    }
+            SavableMapFlagTracker read = cache.readTracker;
+            cache.readTracker = null;
+            if (read != null) {
+                if (cache.readIsBaseline) {
+                    cache.savedFlags.putAll(read.map);
+                }
+                if (cache.readNeedsSave) {
+                    read.modified = true;
+                }
+                if (!CoreConfiguration.skipAllFlagCleanings) {
+                    read.doTotalClean();
                 }
             }
+            cache.tracker = read;
+            cache.loadingNow.set(false);
         }
-        return cache.tracker;
     }
 
-    public static Future loadAsync(UUID id) { // Note: this method is called sync, but triggers an async load
+    /**
+     * Waits up to 15 seconds for an in-flight read of the entry's flag file to finish, returning false if it didn't.
+     */
+    private static boolean awaitRead(UUID id, CachedPlayerFlag cache) {
+        if (cache.readDone) {
+            return true;
+        }
+        if (CoreConfiguration.debugVerbose) {
+            Debug.echoError("Verbose - flag tracker is loading, so waiting, for " + id);
+        }
         try {
-            CachedPlayerFlag cache = playerFlagTrackerCache.get(id);
+            cache.loadFuture.get(15, TimeUnit.SECONDS);
+            return true;
+        }
+        catch (Throwable ex) {
+            Debug.echoError("Flag loading timeout for " + id + ", errors may follow");
+            return false;
+        }
+    }
+
+    /**
+     * Gets the cache entry for the given player, creating it if needed. Safe to call from any thread.
+     * If a new entry had to be created, 'created' is set to true and the caller is responsible for loading it.
+     */
+    private static CachedPlayerFlag getOrCreateCache(UUID id, AtomicBoolean created) {
+        return playerFlagTrackerCache.computeIfAbsent(id, (k) -> {
+            CachedPlayerFlag cache = takeFromSecondaryCache(id);
             if (cache != null) {
                 if (CoreConfiguration.debugVerbose) {
-                    Debug.echoError("Verbose - (loadAsync) flag tracker ignored due to cache for " + id);
+                    Debug.echoError("Verbose - flag tracker updated from secondary to main for " + id);
                 }
-                return null;
             }
-            SoftReference<CachedPlayerFlag> softRef = secondaryPlayerFlagTrackerCache.get(id);
-            if (softRef != null) {
-                cache = softRef.get();
-                if (cache != null) {
-                    cache.lastAccessed = CoreUtilities.monotonicMillis();
-                    if (CoreConfiguration.debugVerbose) {
-                        Debug.echoError("Verbose - (loadAsync) flag tracker updated from softref to main for " + id);
-                    }
-                    playerFlagTrackerCache.put(id, cache);
-                    secondaryPlayerFlagTrackerCache.remove(id);
-                    return null;
+            else {
+                cache = new CachedPlayerFlag();
+                cache.loadingNow.set(true);
+                created.set(true);
+                if (CoreConfiguration.debugVerbose) {
+                    Debug.echoError("Verbose - flag tracker created for " + id);
                 }
             }
-            CachedPlayerFlag newCache = new CachedPlayerFlag();
-            newCache.lastAccessed = CoreUtilities.monotonicMillis();
-            newCache.loadingNow.set(true);
-            if (CoreConfiguration.debugVerbose) {
-                Debug.echoError("Verbose - (loadAsync) flag tracker created " + id);
-            }
-            playerFlagTrackerCache.put(id, newCache);
-            CompletableFuture future = new CompletableFuture();
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    loadFlags(id, newCache);
-                    Bukkit.getScheduler().scheduleSyncDelayedTask(Denizen.instance, () -> {
-                        if (CoreConfiguration.debugVerbose) {
-                            Debug.echoError("Verbose - flag tracker async loaded " + id);
-                        }
-                        if (newCache.tracker != null && !CoreConfiguration.skipAllFlagCleanings) {
-                            newCache.tracker.doTotalClean();
-                        }
-                    });
-                    future.complete(null);
-                }
-            }.runTaskAsynchronously(Denizen.getInstance());
-            return future;
+            cache.lastAccessed = CoreUtilities.monotonicMillis();
+            return cache;
+        });
+    }
+
+    /**
+     * Gets the flag tracker for the given player.
+     * If the player's flags aren't cached, they're loaded on the calling thread. If they're already being loaded (from a login), this waits for that load instead.
+     */
+    public static AbstractFlagTracker getTrackerFor(UUID id) {
+        AtomicBoolean created = new AtomicBoolean(false);
+        CachedPlayerFlag cache = getOrCreateCache(id, created);
+        cache.lastAccessed = CoreUtilities.monotonicMillis();
+        if (created.get()) {
+            loadFlags(id, cache);
         }
-        catch (Throwable ex) {
-            Debug.echoError(ex);
+        else if (cache.loadingNow.get() && !awaitRead(id, cache)) {
+            playerFlagTrackerCache.remove(id, cache);
             return null;
         }
+        applyLoaded(cache);
+        return cache.tracker;
+    }
+
+    private static CachedPlayerFlag startLoad(UUID id) {
+        AtomicBoolean created = new AtomicBoolean(false);
+        CachedPlayerFlag cache = getOrCreateCache(id, created);
+        if (created.get()) {
+            DenizenCore.runAsync(() -> loadFlags(id, cache));
+        }
+        return cache;
+    }
+
+    /**
+     * Starts loading the flags for the given player off-thread if they aren't already cached, as done when the player logs in.
+     * Returns a future that completes once the flag file has been read. Safe to call from any thread.
+     * Note that dependent actions will run on whichever thread completed the load, unless an executor is specified.
+     */
+    public static CompletableFuture<SavableMapFlagTracker> loadAsync(UUID id) {
+        CachedPlayerFlag cache = startLoad(id);
+        if (!cache.loadFuture.isDone() && CoreConfiguration.debugVerbose) {
+            Debug.echoError("Verbose - (loadAsync) flag tracker loading for " + id);
+        }
+        return cache.loadFuture;
     }
 
     public static void saveAllNow(boolean lockUntilDone) {
         for (Map.Entry<UUID, CachedPlayerFlag> entry : playerFlagTrackerCache.entrySet()) {
             CachedPlayerFlag flags = entry.getValue();
-            if (flags.tracker.modified) {
-                if (!lockUntilDone && flags.savingNow.get() || flags.loadingNow.get()) {
+            if (flags.loadingNow.get()) {
+                if (lockUntilDone && !awaitRead(entry.getKey(), flags)) {
+                    continue;
+                }
+                applyLoaded(flags);
+            }
+            if (flags.tracker != null && flags.tracker.modified) {
+                if (!lockUntilDone && flags.savingNow.get()) {
                     continue;
                 }
-                while (flags.savingNow.get() || flags.loadingNow.get()) {
+                while (flags.savingNow.get()) {
                     try {
                         Thread.sleep(10);
                     }
@@ -277,11 +404,14 @@ public class PlayerFlagHandler implements Listener {
                 }
                 flags.savingNow.set(true);
                 flags.tracker.modified = false;
-                final UUID id = entry.getKey();
-                final String data = flags.tracker.toString();
+                final Runnable prepared = prepareSave(entry.getKey(), flags);
                 Runnable doSave = () -> {
-                    saveFlags(id, data);
-                    flags.savingNow.set(false);
+                    try {
+                        prepared.run();
+                    }
+                    finally {
+                        flags.savingNow.set(false);
+                    }
                 };
                 if (lockUntilDone) {
                     doSave.run();
@@ -299,22 +429,13 @@ public class PlayerFlagHandler implements Listener {
 
     @EventHandler
     public void onPlayerLogin(AsyncPlayerPreLoginEvent event) {
-        if (!asyncPreload) {
-            return;
-        }
         if (!Denizen.hasTickedOnce) {
             return;
         }
-        UUID id = event.getUniqueId();
-        if (!Bukkit.isPrimaryThread()) {
-            Future<Future> future = Bukkit.getScheduler().callSyncMethod(Denizen.getInstance(), () -> {
-                return loadAsync(id);
-            });
+        CompletableFuture<SavableMapFlagTracker> future = loadAsync(event.getUniqueId());
+        if (asyncPreload && !Bukkit.isPrimaryThread()) {
             try {
-                Future newFuture = future.get(15, TimeUnit.SECONDS);
-                if (newFuture != null) {
-                    newFuture.get(15, TimeUnit.SECONDS);
-                }
+                future.get(15, TimeUnit.SECONDS);
             }
             catch (Throwable ex) {
                 Debug.echoError(ex);
@@ -324,7 +445,9 @@ public class PlayerFlagHandler implements Listener {
 
     public static void reloadAllFlagsNow() {
         playerFlagTrackerCache.clear();
-        secondaryPlayerFlagTrackerCache.clear();
+        synchronized (secondaryPlayerFlagTrackerCache) {
+            secondaryPlayerFlagTrackerCache.clear();
+        }
         for (Player player : Bukkit.getOnlinePlayers()) {
             getTrackerFor(player.getUniqueId());
         }
@@ -0,0 +1,255 @@
+package com.denizenscript.denizen.utilities.flags;
+
+import com.denizenscript.denizen.utilities.Utilities;
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.flags.AbstractFlagTracker;
+import com.denizenscript.denizencore.flags.SavableMapFlagTracker;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Searches the flags of all players (online or offline) without going through the player flag cache.
+ * Flag files are read on a worker pool, and an optional on-disk index of which flag roots each player file contains
+ * lets files that can't match be skipped without parsing them. Index entries are validated against the file's
+ * modified time and size, so the index never needs to be explicitly updated when flags change.
+ */
+public class PlayerFlagQuery {
+
+    public static boolean useIndex = true;
+
+    public static final int INDEX_MAGIC = 0x44464958; // "DFIX"
+
+    public static final int INDEX_VERSION = 1;
+
+    public static class IndexEntry {
+
+        public long modified, size;
+
+        public String[] roots;
+
+        public boolean isValidFor(File file) {
+            return modified == file.lastModified() && size == file.length();
+        }
+
+        public boolean hasRoot(String root) {
+            for (String str : roots) {
+                if (str.equals(root)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static ConcurrentHashMap<UUID, IndexEntry> index;
+
+    public static volatile boolean indexChanged = false;
+
+    private static final Object indexLock = new Object();
+
+    public static File indexFile() {
+        return new File(PlayerFlagHandler.dataFolder, "flag_index.dfi");
+    }
+
+    /**
+     * Finds all players that have (or, if 'want' is false, don't have) the given flag.
+     * Must be called on the main thread. The returned future completes off-thread.
+     * Players whose flags are currently loaded are checked immediately against their in-memory data, all others are checked from file in the background.
+     */
+    public static CompletableFuture<List<UUID>> findPlayersFlagged(String flagName, boolean want) {
+        List<UUID> results = Collections.synchronizedList(new ArrayList<>());
+        HashSet<UUID> checkedAlready = new HashSet<>();
+        for (Map.Entry<UUID, PlayerFlagHandler.CachedPlayerFlag> entry : PlayerFlagHandler.playerFlagTrackerCache.entrySet()) {
+            checkLoaded(entry.getKey(), entry.getValue(), flagName, want, results, checkedAlready);
+        }
+        synchronized (PlayerFlagHandler.secondaryPlayerFlagTrackerCache) {
+            for (Map.Entry<UUID, PlayerFlagHandler.CachedPlayerFlag> entry : PlayerFlagHandler.secondaryPlayerFlagTrackerCache.entrySet()) {
+                checkLoaded(entry.getKey(), entry.getValue(), flagName, want, results, checkedAlready);
+            }
+        }
+        CompletableFuture<List<UUID>> future = new CompletableFuture<>();
+        int dot = flagName.indexOf('.');
+        String root = CoreUtilities.toLowerCase(dot == -1 ? flagName : flagName.substring(0, dot));
+        DenizenCore.runAsync(() -> {
+            try {
+                if (useIndex) {
+                    loadIndexIfNeeded();
+                }
+                HashMap<UUID, File> files = listFlagFiles();
+                for (UUID id : checkedAlready) {
+                    files.remove(id);
+                }
+                Utilities.getWorkerPool().submit(() -> files.entrySet().parallelStream().forEach(entry -> {
+                    try {
+                        if (checkFile(entry.getKey(), entry.getValue(), root, flagName) == want) {
+                            results.add(entry.getKey());
+                        }
+                    }
+                    catch (Throwable ex) {
+                        Debug.echoError("Failed to check flags for player " + entry.getKey() + ":");
+                        Debug.echoError(ex);
+                    }
+                })).get();
+                if (useIndex && indexChanged) {
+                    saveIndex();
+                }
+                future.complete(new ArrayList<>(results));
+            }
+            catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+
+    private static void checkLoaded(UUID id, PlayerFlagHandler.CachedPlayerFlag cache, String flagName, boolean want, List<UUID> results, HashSet<UUID> checkedAlready) {
+        if (cache.loadingNow.get() || cache.tracker == null) {
+            return;
+        }
+        checkedAlready.add(id);
+        if (cache.tracker.hasFlag(flagName) == want) {
+            results.add(id);
+        }
+    }
+
+    /**
+     * Returns a map of player UUID to the flag file that would be loaded for that player, following the same precedence as PlayerFlagHandler.loadFlags.
+     */
+    public static HashMap<UUID, File> listFlagFiles() {
+        HashMap<UUID, File> result = new HashMap<>();
+        File[] files = PlayerFlagHandler.dataFolder.listFiles();
+        if (files == null) {
+            return result;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            boolean isBinary = name.endsWith(".dfb");
+            if (!isBinary && !name.endsWith(".dat")) {
+                continue;
+            }
+            UUID id;
+            try {
+                id = UUID.fromString(name.substring(0, name.length() - ".dat".length()));
+            }
+            catch (IllegalArgumentException ex) {
+                continue;
+            }
+            File existing = result.get(id);
+            if (existing == null || isBinary == PlayerFlagHandler.binaryFormat) {
+                result.put(id, file);
+            }
+        }
+        return result;
+    }
+
+    public static AbstractFlagTracker loadFile(File file) throws IOException {
+        String name = file.getName();
+        if (name.endsWith(".dfb")) {
+            return PlayerFlagBinaryStore.toTracker(PlayerFlagBinaryStore.read(file));
+        }
+        return SavableMapFlagTracker.loadFlagFile(file.getPath().substring(0, file.getPath().length() - ".dat".length()), false);
+    }
+
+    public static boolean checkFile(UUID id, File file, String root, String flagName) throws IOException {
+        if (useIndex) {
+            IndexEntry entry = index.get(id);
+            if (entry != null && entry.isValidFor(file) && !entry.hasRoot(root)) {
+                return false;
+            }
+        }
+        long modified = file.lastModified(), size = file.length();
+        AbstractFlagTracker tracker = loadFile(file);
+        if (tracker == null) {
+            return false;
+        }
+        if (useIndex && tracker instanceof SavableMapFlagTracker) {
+            IndexEntry entry = new IndexEntry();
+            entry.modified = modified;
+            entry.size = size;
+            Set<StringHolder> keys = ((SavableMapFlagTracker) tracker).map.keySet();
+            entry.roots = new String[keys.size()];
+            int i = 0;
+            for (StringHolder key : keys) {
+                entry.roots[i++] = key.low;
+            }
+            index.put(id, entry);
+            indexChanged = true;
+        }
+        return tracker.hasFlag(flagName);
+    }
+
+    public static void loadIndexIfNeeded() {
+        synchronized (indexLock) {
+            if (index != null) {
+                return;
+            }
+            index = new ConcurrentHashMap<>();
+            File file = indexFile();
+            if (!file.exists()) {
+                return;
+            }
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION) {
+                    Debug.echoError("Player flag index file is invalid or outdated, it will be rebuilt.");
+                    return;
+                }
+                int count = input.readInt();
+                for (int i = 0; i < count; i++) {
+                    UUID id = new UUID(input.readLong(), input.readLong());
+                    IndexEntry entry = new IndexEntry();
+                    entry.modified = input.readLong();
+                    entry.size = input.readLong();
+                    entry.roots = new String[input.readInt()];
+                    for (int r = 0; r < entry.roots.length; r++) {
+                        entry.roots[r] = input.readUTF();
+                    }
+                    index.put(id, entry);
+                }
+            }
+            catch (IOException ex) {
+                Debug.echoError("Failed to read player flag index file, it will be rebuilt:");
+                Debug.echoError(ex);
+                index.clear();
+            }
+        }
+    }
+
+    public static void saveIndex() {
+        synchronized (indexLock) {
+            indexChanged = false;
+            File file = indexFile();
+            File tempFile = new File(file.getPath() + "~tmp");
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                    ArrayList<Map.Entry<UUID, IndexEntry>> entries = new ArrayList<>(index.entrySet());
+                    output.writeInt(INDEX_MAGIC);
+                    output.writeInt(INDEX_VERSION);
+                    output.writeInt(entries.size());
+                    for (Map.Entry<UUID, IndexEntry> entry : entries) {
+                        output.writeLong(entry.getKey().getMostSignificantBits());
+                        output.writeLong(entry.getKey().getLeastSignificantBits());
+                        output.writeLong(entry.getValue().modified);
+                        output.writeLong(entry.getValue().size);
+                        output.writeInt(entry.getValue().roots.length);
+                        for (String root : entry.getValue().roots) {
+                            output.writeUTF(root);
+                        }
+                    }
+                }
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException ex) {
+                Debug.echoError("Failed to save player flag index file:");
+                Debug.echoError(ex);
+            }
+        }
+    }
+}
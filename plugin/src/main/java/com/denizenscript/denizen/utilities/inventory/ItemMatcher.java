@@ -0,0 +1,78 @@
+package com.denizenscript.denizen.utilities.inventory;
+
+import com.denizenscript.denizen.objects.ItemTag;
+import com.denizenscript.denizen.scripts.containers.core.ItemScriptHelper;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An item matcher compiled once for checking against many items, such as every slot of an inventory.
+ * Plain items (and for matchers that don't check meta, any non-script item) are matched by material alone, with results cached per material,
+ * so most items are checked without wrapping or cloning their ItemStack. Other items fall back to the full {@link ItemTag#tryAdvancedMatcher}.
+ */
+public class ItemMatcher {
+
+    public static int maxCached = 256;
+
+    private static final LinkedHashMap<String, ItemMatcher> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ItemMatcher> eldest) {
+            return size() > maxCached;
+        }
+    };
+
+    /**
+     * Gets the compiled matcher for the given matcher text, compiling it if it isn't cached.
+     */
+    public static synchronized ItemMatcher get(String matcher) {
+        ItemMatcher result = cache.get(matcher);
+        if (result == null) {
+            result = new ItemMatcher(matcher);
+            cache.put(matcher, result);
+        }
+        return result;
+    }
+
+    public final String matcher;
+
+    /** False if the matcher's result for an item can change even when the item doesn't, or depends on the exact item (like property matchers), and so can't be cached per material. */
+    public final boolean materialCacheable;
+
+    /** True if the matcher checks item meta (like flags or enchantments), and so can only use the material cache for items without any meta. */
+    public final boolean metaDependent;
+
+    /** 0 for not yet checked, 1 for match, 2 for no match. */
+    private final byte[] materialResults = new byte[Material.values().length];
+
+    public ItemMatcher(String matcher) {
+        this.matcher = matcher;
+        String matcherLow = CoreUtilities.toLowerCase(matcher);
+        materialCacheable = !matcherLow.contains("[") && !matcherLow.contains("material_flagged:");
+        metaDependent = matcherLow.contains("item_flagged:") || matcherLow.contains("item_enchanted:") || matcherLow.contains("raw_exact:");
+    }
+
+    public boolean matchesMaterial(Material material, TagContext context) {
+        int ordinal = material.ordinal();
+        byte result = materialResults[ordinal];
+        if (result == 0) {
+            result = new ItemTag(material).tryAdvancedMatcher(matcher, context) ? (byte) 1 : (byte) 2;
+            materialResults[ordinal] = result;
+        }
+        return result == 1;
+    }
+
+    public boolean matches(ItemStack item, TagContext context) {
+        if (item == null) {
+            return matchesMaterial(Material.AIR, context);
+        }
+        if (materialCacheable && (!item.hasItemMeta() || (!metaDependent && !ItemScriptHelper.isItemscript(item)))) {
+            return matchesMaterial(item.getType(), context);
+        }
+        return ItemTag.view(item).tryAdvancedMatcher(matcher, context);
+    }
+}
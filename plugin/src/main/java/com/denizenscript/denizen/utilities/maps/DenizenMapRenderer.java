@@ -2,6 +2,7 @@ package com.denizenscript.denizen.utilities.maps;
 
 import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.objects.PlayerTag;
+import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import org.bukkit.entity.Player;
 import org.bukkit.map.MapCanvas;
@@ -24,6 +25,9 @@ public class DenizenMapRenderer extends MapRenderer {
 
     public boolean hasChanged = true;
 
+    /** The time (see DenizenCore.currentTimeMonotonicMillis) of the last render, for non-contextual maps, which share a single canvas between all viewers. */
+    private long lastSharedRender = -1;
+
     public DenizenMapRenderer(List<MapRenderer> oldMapRenderers, boolean autoUpdate, boolean contextual) {
         super(contextual);
         this.oldMapRenderers = oldMapRenderers;
@@ -75,6 +79,21 @@ public class DenizenMapRenderer extends MapRenderer {
         return data;
     }
 
+    /**
+     * Evaluates all objects' tags, returning true if any result changed since last checked. Used for non-contextual maps.
+     * Maps that display the original map underneath are always treated as changed, as the original may have changed.
+     */
+    public boolean hasObjectChanges(PlayerTag player) {
+        if (displayOriginal && !oldMapRenderers.isEmpty()) {
+            return true;
+        }
+        boolean changed = false;
+        for (MapObject object : mapObjects) {
+            changed |= object.checkChanged(player);
+        }
+        return changed;
+    }
+
     @Override
     public void render(MapView mapView, MapCanvas mapCanvas, Player player) {
         if (!Denizen.getInstance().isEnabled()) {
@@ -89,6 +108,16 @@ public class DenizenMapRenderer extends MapRenderer {
             return;
         }
         try {
+            if (!isContextual()) {
+                // The canvas is shared, so draw at most once per tick, and only if something actually changed
+                if (lastSharedRender == DenizenCore.currentTimeMonotonicMillis) {
+                    return;
+                }
+                lastSharedRender = DenizenCore.currentTimeMonotonicMillis;
+                if (!hasChanged && !hasObjectChanges(PlayerTag.mirrorBukkitPlayer(player))) {
+                    return;
+                }
+            }
             while (mapCanvas.getCursors().size() > 0) {
                 mapCanvas.getCursors().removeCursor(mapCanvas.getCursors().getCursor(0));
             }
@@ -13,14 +13,14 @@ import java.util.UUID;
 
 public class MapCursor extends MapObject {
 
-    protected String directionTag;
-    protected String typeTag;
+    protected MapExpression directionTag;
+    protected MapExpression typeTag;
     protected Map<UUID, org.bukkit.map.MapCursor> cursors = new HashMap<>();
 
     public MapCursor(String xTag, String yTag, String visibilityTag, boolean debug, String directionTag, String typeTag) {
         super(xTag, yTag, visibilityTag, debug);
-        this.directionTag = directionTag;
-        this.typeTag = typeTag;
+        this.directionTag = compile(directionTag);
+        this.typeTag = compile(typeTag);
     }
 
     public byte getDirection(PlayerTag player) {
@@ -52,8 +52,8 @@ public class MapCursor extends MapObject {
     public Map<String, Object> getSaveData() {
         Map<String, Object> data = super.getSaveData();
         data.put("type", "CURSOR");
-        data.put("direction", directionTag);
-        data.put("cursor", typeTag);
+        data.put("direction", directionTag.raw);
+        data.put("cursor", typeTag.raw);
         return data;
     }
 
@@ -11,21 +11,21 @@ import java.util.UUID;
 
 public class MapDot extends MapObject {
 
-    protected String radiusTag;
-    protected String colorTag;
+    protected MapExpression radiusTag;
+    protected MapExpression colorTag;
 
     public MapDot(String xTag, String yTag, String visibilityTag, boolean debug, String radiusTag, String colorTag) {
         super(xTag, yTag, visibilityTag, debug);
-        this.radiusTag = radiusTag;
-        this.colorTag = colorTag;
+        this.radiusTag = compile(radiusTag);
+        this.colorTag = compile(colorTag);
     }
 
     @Override
     public Map<String, Object> getSaveData() {
         Map<String, Object> data = super.getSaveData();
         data.put("type", "DOT");
-        data.put("radius", radiusTag);
-        data.put("color", colorTag);
+        data.put("radius", radiusTag.raw);
+        data.put("color", colorTag.raw);
         return data;
     }
 
@@ -13,10 +13,10 @@ import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.ImageConsumer;
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 public class MapImage extends MapObject {
 
@@ -157,36 +157,81 @@ public class MapImage extends MapObject {
         int[] pixels = new int[width * height];
         temp.getRGB(0, 0, width, height, pixels, 0, width);
         byte[] result = new byte[width * height];
-        for (int i = 0; i < pixels.length; i++) {
-            result[i] = matchColor(new Color(pixels[i], true));
+        byte[] lookup = getColorLookup();
+        if (pixels.length <= 128 * 128) {
+            for (int i = 0; i < pixels.length; i++) {
+                result[i] = matchColor(lookup, pixels[i]);
+            }
+        }
+        else {
+            // Larger than a single map (eg a multi-map wall or a scaled-up animation frame), so convert rows in parallel
+            IntStream.range(0, height).parallel().forEach(y -> {
+                for (int i = y * width; i < (y + 1) * width; i++) {
+                    result[i] = matchColor(lookup, pixels[i]);
+                }
+            });
         }
         return result;
     }
 
-    public static HashMap<Color, Byte> colorCache = new HashMap<>(1024);
-
-    public static byte matchColor(Color color) {
-        if (color.getAlpha() < 128) {
-            return 0;
-        }
-        Byte result = colorCache.get(color);
-        if (result != null) {
-            return result;
-        }
-        int index = 0;
-        double best = -1;
-        for (int i = 4; i < bukkitColors.length; i++) {
-            double distance = getDistance(color, bukkitColors[i]);
-            if (distance < best || best == -1) {
-                best = distance;
-                index = i;
+    /** Bits kept per color channel in the lookup table. */
+    public static final int LOOKUP_BITS = 6;
+
+    /**
+     * Nearest map color for every RGB color, quantized to {@link #LOOKUP_BITS} bits per channel, indexed as (red, green, blue) from high to low bits.
+     */
+    private static volatile byte[] colorLookup;
+
+    public static byte[] getColorLookup() {
+        byte[] lookup = colorLookup;
+        if (lookup == null) {
+            synchronized (MapImage.class) {
+                lookup = colorLookup;
+                if (lookup == null) {
+                    lookup = buildColorLookup();
+                    colorLookup = lookup;
+                }
             }
         }
-        byte gotten = (byte) (index < 128 ? index : -129 + (index - 127));
-        if (colorCache.size() < 1024 * 16) {
-            colorCache.put(color, gotten);
+        return lookup;
+    }
+
+    private static byte[] buildColorLookup() {
+        int size = 1 << LOOKUP_BITS, shift = 8 - LOOKUP_BITS, half = 1 << (shift - 1);
+        byte[] lookup = new byte[size * size * size];
+        IntStream.range(0, size).parallel().forEach(r -> {
+            for (int g = 0; g < size; g++) {
+                for (int b = 0; b < size; b++) {
+                    Color color = new Color((r << shift) | half, (g << shift) | half, (b << shift) | half);
+                    int index = 0;
+                    double best = -1;
+                    for (int i = 4; i < bukkitColors.length; i++) {
+                        double distance = getDistance(color, bukkitColors[i]);
+                        if (distance < best || best == -1) {
+                            best = distance;
+                            index = i;
+                        }
+                    }
+                    lookup[(((r << LOOKUP_BITS) | g) << LOOKUP_BITS) | b] = (byte) (index < 128 ? index : -129 + (index - 127));
+                }
+            }
+        });
+        return lookup;
+    }
+
+    public static byte matchColor(byte[] lookup, int argb) {
+        if ((argb >>> 24) < 128) {
+            return 0;
         }
-        return gotten;
+        int shift = 8 - LOOKUP_BITS;
+        int r = (argb >> (16 + shift)) & ((1 << LOOKUP_BITS) - 1);
+        int g = (argb >> (8 + shift)) & ((1 << LOOKUP_BITS) - 1);
+        int b = (argb >> shift) & ((1 << LOOKUP_BITS) - 1);
+        return lookup[(((r << LOOKUP_BITS) | g) << LOOKUP_BITS) | b];
+    }
+
+    public static byte matchColor(Color color) {
+        return matchColor(getColorLookup(), color.getRGB());
     }
 
     public static double getDistance(Color c1, Color c2) {
@@ -2,33 +2,116 @@ package com.denizenscript.denizen.utilities.maps;
 
 import com.denizenscript.denizen.objects.PlayerTag;
 import com.denizenscript.denizen.tags.BukkitTagContext;
+import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.tags.ParseableTag;
 import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.tags.TagManager;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
 import org.bukkit.map.MapCanvas;
 import org.bukkit.map.MapView;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 
 public abstract class MapObject {
 
-    protected String xTag;
-    protected String yTag;
-    protected String visibilityTag;
+    /**
+     * A map object tag expression, parsed once when the object is created.
+     * Expressions that don't reference the player (or anything that might implicitly use the player, like procedures) are only evaluated once per tick, with the result shared by all viewers.
+     */
+    public static class MapExpression {
+
+        public final String raw;
+
+        public final ParseableTag parsed;
+
+        public final boolean playerDependent;
+
+        private long cachedTime = -1;
+
+        private UUID cachedFor;
+
+        private String cachedValue;
+
+        /** The value this expression had the last time it was checked for changes, see {@link MapObject#checkChanged}. */
+        private String lastCheckedValue;
+
+        public MapExpression(String raw, boolean debug) {
+            this.raw = raw;
+            parsed = raw == null ? null : TagManager.parseTextToTag(raw, new BukkitTagContext(null, null, null, debug, null));
+            String lowered = raw == null ? "" : CoreUtilities.toLowerCase(raw);
+            playerDependent = lowered.contains("player") || lowered.contains("npc") || lowered.contains("proc") || lowered.contains("script");
+        }
+
+        public String evaluate(MapObject object, PlayerTag player) {
+            if (parsed == null) {
+                return null;
+            }
+            if (!parsed.hasTag && cachedValue != null) {
+                return cachedValue;
+            }
+            UUID uuid = playerDependent ? player.getUUID() : null;
+            if (cachedTime == DenizenCore.currentTimeMonotonicMillis && Objects.equals(cachedFor, uuid)) {
+                return cachedValue;
+            }
+            cachedValue = parsed.parse(object.getTagContext(player)).toString();
+            cachedTime = DenizenCore.currentTimeMonotonicMillis;
+            cachedFor = uuid;
+            return cachedValue;
+        }
+    }
+
+    protected MapExpression xTag;
+    protected MapExpression yTag;
+    protected MapExpression visibilityTag;
     protected Map<UUID, Boolean> currentVisibility = new HashMap<>();
     protected boolean debug;
     public boolean showPastEdge = false;
 
+    /** All tag expressions of this object, used to check for changes. */
+    protected List<MapExpression> expressions = new ArrayList<>();
+
     public MapView lastMap;
 
     public boolean worldCoordinates = false;
 
     public MapObject(String xTag, String yTag, String visibilityTag, boolean debug) {
-        this.xTag = xTag;
-        this.yTag = yTag;
-        this.visibilityTag = visibilityTag;
         this.debug = debug;
+        this.xTag = compile(xTag);
+        this.yTag = compile(yTag);
+        this.visibilityTag = compile(visibilityTag);
+    }
+
+    protected MapExpression compile(String raw) {
+        MapExpression expression = new MapExpression(raw, debug);
+        expressions.add(expression);
+        return expression;
+    }
+
+    /**
+     * Returns true if any of this object's tags might give a different result for different players.
+     */
+    public boolean isPlayerDependent() {
+        for (MapExpression expression : expressions) {
+            if (expression.playerDependent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates all of this object's tags, returning true if any result differs from the last time this was called.
+     */
+    public boolean checkChanged(PlayerTag player) {
+        boolean changed = false;
+        for (MapExpression expression : expressions) {
+            String value = expression.evaluate(this, player);
+            if (!Objects.equals(value, expression.lastCheckedValue)) {
+                expression.lastCheckedValue = value;
+                changed = true;
+            }
+        }
+        return changed;
     }
 
     public void update(PlayerTag player, UUID uuid) {
@@ -70,16 +153,15 @@ public abstract class MapObject {
         return new BukkitTagContext(player, player.getSelectedNPC(), null, debug, null);
     }
 
-    protected String tag(String arg, PlayerTag player) {
-        // Short, reusable TagManager call
-        return TagManager.tag(arg, getTagContext(player));
+    protected String tag(MapExpression expression, PlayerTag player) {
+        return expression.evaluate(this, player);
     }
 
     public Map<String, Object> getSaveData() {
         Map<String, Object> data = new HashMap<>();
-        data.put("x", xTag);
-        data.put("y", yTag);
-        data.put("visibility", visibilityTag);
+        data.put("x", xTag.raw);
+        data.put("y", yTag.raw);
+        data.put("visibility", visibilityTag.raw);
         data.put("debug", debug ? "true" : "false");
         data.put("world_coordinates", worldCoordinates ? "true" : "false");
         data.put("show_past_edge", showPastEdge ? "true" : "false");
@@ -2,9 +2,9 @@ package com.denizenscript.denizen.utilities.maps;
 
 import com.denizenscript.denizen.objects.PlayerTag;
 import com.denizenscript.denizencore.objects.core.ColorTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.core.ListTag;
 import com.denizenscript.denizencore.tags.TagContext;
-import com.denizenscript.denizencore.tags.TagManager;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import org.bukkit.map.MapCanvas;
@@ -19,16 +19,16 @@ import java.util.UUID;
 
 public class MapText extends MapObject {
 
-    protected String textTag, colorTag, fontTag, sizeTag, styleTag;
+    protected MapExpression textTag, colorTag, fontTag, sizeTag, styleTag;
     protected Map<UUID, String> playerTexts = new HashMap<>();
 
     public MapText(String xTag, String yTag, String visibilityTag, boolean debug, String textTag, String colorTag, String fontTag, String sizeTag, String styleTag) {
         super(xTag, yTag, visibilityTag, debug);
-        this.textTag = textTag;
-        this.colorTag = colorTag;
-        this.fontTag = fontTag;
-        this.sizeTag = sizeTag;
-        this.styleTag = styleTag;
+        this.textTag = compile(textTag);
+        this.colorTag = compile(colorTag);
+        this.fontTag = compile(fontTag);
+        this.sizeTag = compile(sizeTag);
+        this.styleTag = compile(styleTag);
     }
 
     @Override
@@ -42,18 +42,19 @@ public class MapText extends MapObject {
     }
 
     public void setText(String textTag) {
-        this.textTag = textTag;
+        expressions.remove(this.textTag);
+        this.textTag = compile(textTag);
     }
 
     @Override
     public Map<String, Object> getSaveData() {
         Map<String, Object> data = super.getSaveData();
         data.put("type", "TEXT");
-        data.put("text", textTag);
-        data.put("color", colorTag);
-        data.put("font", fontTag);
-        data.put("size", sizeTag);
-        data.put("style", styleTag);
+        data.put("text", textTag.raw);
+        data.put("color", colorTag.raw);
+        data.put("font", fontTag.raw);
+        data.put("size", sizeTag.raw);
+        data.put("style", styleTag.raw);
         return data;
     }
 
@@ -63,17 +64,17 @@ public class MapText extends MapObject {
             if (!playerTexts.containsKey(uuid)) {
                 playerTexts.put(uuid, tag(textTag, player));
             }
-            ColorTag color = ColorTag.valueOf(colorTag == null ? "black" : tag(colorTag, player), getTagContext(player));
-            if (fontTag == null) {
+            ColorTag color = ColorTag.valueOf(colorTag.raw == null ? "black" : tag(colorTag, player), getTagContext(player));
+            if (fontTag.raw == null) {
                 byte b = MapImage.matchColor(color.getAWTColor());
                 String text = ((char) 167) + Byte.toString(b) + ((char) 59) + getText(player);
                 mapCanvas.drawText(getX(player), getY(player), MinecraftFont.Font, text);
                 return;
             }
             int style = Font.PLAIN;
-            if (styleTag != null) {
+            if (styleTag.raw != null) {
                 TagContext context = getTagContext(player);
-                ListTag styles = TagManager.tagObject(styleTag, context).asType(ListTag.class, context);
+                ListTag styles = ListTag.valueOf(tag(styleTag, player), context);
                 for (String styleStr : styles) {
                     String styleLower = CoreUtilities.toLowerCase(styleStr);
                     switch (styleLower) {
@@ -82,7 +83,7 @@ public class MapText extends MapObject {
                     }
                 }
             }
-            int size = sizeTag != null ? TagManager.tagObject(sizeTag, getTagContext(player)).asElement().asInt() : 10;
+            int size = sizeTag.raw != null ? new ElementTag(tag(sizeTag, player)).asInt() : 10;
             BufferedImage image = new BufferedImage(128, 128, BufferedImage.TYPE_INT_ARGB);
             Graphics2D graphics = image.createGraphics();
             graphics.setFont(new Font(tag(fontTag, player), style, size));
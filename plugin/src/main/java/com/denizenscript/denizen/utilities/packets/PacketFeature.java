@@ -0,0 +1,47 @@
+package com.denizenscript.denizen.utilities.packets;
+
+import com.denizenscript.denizen.events.player.PlayerHearsSoundScriptEvent;
+import com.denizenscript.denizen.events.player.PlayerReceivesActionbarScriptEvent;
+import com.denizenscript.denizen.events.player.PlayerReceivesTablistUpdateScriptEvent;
+import com.denizenscript.denizen.nms.abstracts.BlockLight;
+import com.denizenscript.denizen.scripts.commands.entity.FakeEquipCommand;
+import com.denizenscript.denizen.scripts.commands.entity.GlowCommand;
+import com.denizenscript.denizen.scripts.commands.entity.InvisibleCommand;
+import com.denizenscript.denizen.scripts.commands.entity.RenameCommand;
+import com.denizenscript.denizen.scripts.commands.entity.SneakCommand;
+import com.denizenscript.denizen.scripts.commands.player.DisguiseCommand;
+import com.denizenscript.denizen.utilities.blocks.FakeBlock;
+import com.denizenscript.denizen.utilities.entity.EntityAttachmentHelper;
+import com.denizenscript.denizen.utilities.entity.HideEntitiesHelper;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * A feature that outgoing packet handlers belong to, used to skip handlers for features that have nothing active.
+ * Each feature is checked at most once per packet, no matter how many of its handlers apply to that packet.
+ */
+public enum PacketFeature {
+
+    ALWAYS(() -> true),
+    ACTION_BAR_EVENT(() -> PlayerReceivesActionbarScriptEvent.instance.loaded),
+    ATTACHMENTS(() -> !EntityAttachmentHelper.toEntityToData.isEmpty()),
+    BLOCK_LIGHTS(() -> !BlockLight.lightsByChunk.isEmpty()),
+    CHAT_INTERCEPT(() -> DenizenPacketHandler.instance.shouldInterceptChatPacket()),
+    DISGUISES(() -> !DisguiseCommand.disguises.isEmpty()),
+    ENTITY_METADATA(() -> RenameCommand.hasAnyDynamicRenames() || !SneakCommand.forceSetSneak.isEmpty() || !InvisibleCommand.helper.noOverrides() || !GlowCommand.helper.noOverrides()),
+    FAKE_BLOCKS(() -> !FakeBlock.blocks.isEmpty()),
+    FAKE_EQUIPMENT(() -> !FakeEquipCommand.overrides.isEmpty()),
+    HIDDEN_ENTITIES(HideEntitiesHelper::hasAnyHides),
+    HIDDEN_PARTICLES(() -> !HideParticles.hidden.isEmpty()),
+    SOUND_EVENT(() -> PlayerHearsSoundScriptEvent.instance.eventData.isEnabled),
+    TABLIST_EVENT(() -> PlayerReceivesTablistUpdateScriptEvent.instance.eventData.isEnabled);
+
+    public final BooleanSupplier isActive;
+
+    public final long bit;
+
+    PacketFeature(BooleanSupplier isActive) {
+        this.isActive = isActive;
+        this.bit = 1L << ordinal();
+    }
+}
@@ -0,0 +1,59 @@
+package com.denizenscript.denizen.utilities.packets;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks how long each outgoing packet handler takes, when enabled via '/denizen debug -t'.
+ */
+public class PacketHandlerTimings {
+
+    public static class Timing {
+
+        public final String name;
+
+        public final LongAdder nanos = new LongAdder(), calls = new LongAdder();
+
+        public Timing(String name) {
+            this.name = name;
+        }
+    }
+
+    public static volatile boolean enabled = false;
+
+    public static final List<Timing> timings = new CopyOnWriteArrayList<>();
+
+    public static Timing register(String name) {
+        Timing timing = new Timing(name);
+        timings.add(timing);
+        return timing;
+    }
+
+    public static void reset() {
+        for (Timing timing : timings) {
+            timing.nanos.reset();
+            timing.calls.reset();
+        }
+    }
+
+    /**
+     * Returns one line per handler that has run since the last reset, slowest total first.
+     */
+    public static List<String> report() {
+        List<Timing> sorted = new ArrayList<>(timings);
+        sorted.sort(Comparator.comparingLong((Timing t) -> t.nanos.sum()).reversed());
+        List<String> lines = new ArrayList<>();
+        for (Timing timing : sorted) {
+            long calls = timing.calls.sum();
+            if (calls == 0) {
+                continue;
+            }
+            long nanos = timing.nanos.sum();
+            lines.add(timing.name + ": " + calls + " calls, " + (nanos / 1_000_000) + "ms total, " + (nanos / calls) + "ns average");
+        }
+        return lines;
+    }
+}
@@ -869,6 +869,12 @@ public class DenizenNetworkManagerImpl extends Connection {
             return false;
         }
         try {
+            if (packet instanceof ClientboundRemoveEntitiesPacket) {
+                for (int id : ((ClientboundRemoveEntitiesPacket) packet).getEntityIds()) {
+                    HideEntitiesHelper.forgetVerdict(player.getUUID(), id);
+                }
+                return false;
+            }
             int ider = -1;
             Entity e = null;
             if (packet instanceof ClientboundAddPlayerPacket) {
@@ -898,6 +904,9 @@ public class DenizenNetworkManagerImpl extends Connection {
             else if (packet instanceof ClientboundTeleportEntityPacket) {
                 ider = ((ClientboundTeleportEntityPacket) packet).getId();
             }
+            if (ider != -1 && (packet instanceof ClientboundAddPlayerPacket || packet instanceof ClientboundAddEntityPacket || packet instanceof ClientboundAddMobPacket || packet instanceof ClientboundAddPaintingPacket || packet instanceof ClientboundAddExperienceOrbPacket)) {
+                HideEntitiesHelper.forgetVerdict(player.getUUID(), ider);
+            }
             if (e == null && ider != -1) {
                 e = player.getLevel().getEntity(ider);
             }
@@ -20,6 +20,7 @@ import com.denizenscript.denizen.utilities.FormattedTextHelper;
 import com.denizenscript.denizen.utilities.Settings;
 import com.denizenscript.denizen.utilities.blocks.ChunkCoordinate;
 import com.denizenscript.denizen.utilities.blocks.FakeBlock;
+import com.denizenscript.denizen.utilities.blocks.FakeBlockChunkView;
 import com.denizenscript.denizen.utilities.entity.EntityAttachmentHelper;
 import com.denizenscript.denizen.utilities.entity.FakeEntity;
 import com.denizenscript.denizen.utilities.entity.HideEntitiesHelper;
@@ -66,6 +67,7 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.craftbukkit.v1_18_R2.CraftParticle;
 import org.bukkit.craftbukkit.v1_18_R2.CraftWorld;
 import org.bukkit.craftbukkit.v1_18_R2.entity.CraftEntity;
@@ -1035,6 +1037,12 @@ public class DenizenNetworkManagerImpl extends Connection {
             return false;
         }
         try {
+            if (packet instanceof ClientboundRemoveEntitiesPacket) {
+                for (int id : ((ClientboundRemoveEntitiesPacket) packet).getEntityIds()) {
+                    HideEntitiesHelper.forgetVerdict(player.getUUID(), id);
+                }
+                return false;
+            }
             int ider = -1;
             Entity e = null;
             if (packet instanceof ClientboundAddPlayerPacket) {
@@ -1064,6 +1072,9 @@ public class DenizenNetworkManagerImpl extends Connection {
             else if (packet instanceof ClientboundTeleportEntityPacket) {
                 ider = ((ClientboundTeleportEntityPacket) packet).getId();
             }
+            if (ider != -1 && (packet instanceof ClientboundAddPlayerPacket || packet instanceof ClientboundAddEntityPacket || packet instanceof ClientboundAddMobPacket || packet instanceof ClientboundAddPaintingPacket || packet instanceof ClientboundAddExperienceOrbPacket)) {
+                HideEntitiesHelper.forgetVerdict(player.getUUID(), ider);
+            }
             if (e == null && ider != -1) {
                 e = player.getLevel().getEntity(ider);
             }
@@ -1138,11 +1149,11 @@ public class DenizenNetworkManagerImpl extends Connection {
                 int chunkX = ((ClientboundLevelChunkWithLightPacket) packet).getX();
                 int chunkZ = ((ClientboundLevelChunkWithLightPacket) packet).getZ();
                 ChunkCoordinate chunkCoord = new ChunkCoordinate(chunkX, chunkZ, player.getLevel().getWorld().getName());
-                List<FakeBlock> blocks = FakeBlock.getFakeBlocksFor(player.getUUID(), chunkCoord);
-                if (blocks == null || blocks.isEmpty()) {
+                FakeBlockChunkView view = map.getChunkView(chunkCoord);
+                if (view == null) {
                     return false;
                 }
-                ClientboundLevelChunkWithLightPacket newPacket = FakeBlockHelper.handleMapChunkPacket(player.getBukkitEntity().getWorld(), (ClientboundLevelChunkWithLightPacket) packet, chunkX, chunkZ, blocks);
+                ClientboundLevelChunkWithLightPacket newPacket = FakeBlockHelper.handleMapChunkPacket(player.getBukkitEntity().getWorld(), (ClientboundLevelChunkWithLightPacket) packet, view);
                 oldManager.send(newPacket, genericfuturelistener);
                 return true;
             }
@@ -1153,7 +1164,7 @@ public class DenizenNetworkManagerImpl extends Connection {
                 }
                 SectionPos coord = (SectionPos) SECTIONPOS_MULTIBLOCKCHANGE.get(packet);
                 ChunkCoordinate coordinateDenizen = new ChunkCoordinate(coord.getX(), coord.getZ(), player.getLevel().getWorld().getName());
-                if (!map.byChunk.containsKey(coordinateDenizen)) {
+                if (!map.hasAnyInChunk(coordinateDenizen)) {
                     return false;
                 }
                 ClientboundSectionBlocksUpdatePacket newPacket = new ClientboundSectionBlocksUpdatePacket(copyPacket(packet));
@@ -1170,7 +1181,7 @@ public class DenizenNetworkManagerImpl extends Connection {
                     location.setX(pos.getX());
                     location.setY(pos.getY());
                     location.setZ(pos.getZ());
-                    FakeBlock block = map.byLocation.get(location);
+                    BlockData block = map.getFakeBlockData(location);
                     if (block != null) {
                         dataArray[i] = FakeBlockHelper.getNMSState(block);
                     }
@@ -1181,7 +1192,7 @@ public class DenizenNetworkManagerImpl extends Connection {
             else if (packet instanceof ClientboundBlockUpdatePacket) {
                 BlockPos pos = ((ClientboundBlockUpdatePacket) packet).getPos();
                 LocationTag loc = new LocationTag(player.getLevel().getWorld(), pos.getX(), pos.getY(), pos.getZ());
-                FakeBlock block = FakeBlock.getFakeBlockFor(player.getUUID(), loc);
+                BlockData block = FakeBlock.getFakeBlockDataFor(player.getUUID(), loc);
                 if (block != null) {
                     ClientboundBlockUpdatePacket newPacket = new ClientboundBlockUpdatePacket(((ClientboundBlockUpdatePacket) packet).getPos(), FakeBlockHelper.getNMSState(block));
                     oldManager.send(newPacket, genericfuturelistener);
@@ -1192,7 +1203,7 @@ public class DenizenNetworkManagerImpl extends Connection {
                 ClientboundBlockBreakAckPacket origPack = (ClientboundBlockBreakAckPacket) packet;
                 BlockPos pos = origPack.pos();
                 LocationTag loc = new LocationTag(player.getLevel().getWorld(), pos.getX(), pos.getY(), pos.getZ());
-                FakeBlock block = FakeBlock.getFakeBlockFor(player.getUUID(), loc);
+                BlockData block = FakeBlock.getFakeBlockDataFor(player.getUUID(), loc);
                 if (block != null) {
                     ClientboundBlockBreakAckPacket newPacket = new ClientboundBlockBreakAckPacket(origPack.pos(), FakeBlockHelper.getNMSState(block), origPack.action(), false);
                     oldManager.send(newPacket, genericfuturelistener);
@@ -2,8 +2,9 @@ package com.denizenscript.denizen.nms.v1_18.impl.network.handlers;
 
 import com.denizenscript.denizen.Denizen;
 import com.denizenscript.denizen.nms.v1_18.ReflectionMappingsInfo;
-import com.denizenscript.denizen.objects.LocationTag;
 import com.denizenscript.denizen.utilities.blocks.FakeBlock;
+import com.denizenscript.denizen.utilities.blocks.FakeBlockChunkView;
+import com.denizenscript.denizen.utilities.blocks.FakeBlockRewriteCache;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import io.netty.buffer.Unpooled;
@@ -18,6 +19,7 @@ import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.PalettedContainer;
 import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.craftbukkit.v1_18_R2.CraftWorld;
 import org.bukkit.craftbukkit.v1_18_R2.block.data.CraftBlockData;
 
@@ -32,27 +34,19 @@ import java.util.ListIterator;
 public class FakeBlockHelper {
 
     public static Field CHUNKDATA_BLOCK_ENTITIES = ReflectionHelper.getFields(ClientboundLevelChunkPacketData.class).getFirstOfType(List.class);
+    public static Field CHUNKDATA_BUFFER = ReflectionHelper.getFields(ClientboundLevelChunkPacketData.class).getFirstOfType(byte[].class);
     public static MethodHandle CHUNKDATA_BUFFER_SETTER = ReflectionHelper.getFinalSetterForFirstOfType(ClientboundLevelChunkPacketData.class, byte[].class);
     public static Class CHUNKDATA_BLOCKENTITYINFO_CLASS = ClientboundLevelChunkPacketData.class.getDeclaredClasses()[0];
     public static Field CHUNKDATA_BLOCKENTITYINFO_PACKEDXZ = ReflectionHelper.getFields(CHUNKDATA_BLOCKENTITYINFO_CLASS).get(ReflectionMappingsInfo.ClientboundLevelChunkPacketData_BlockEntityInfo_packedXZ);
     public static Field CHUNKDATA_BLOCKENTITYINFO_Y = ReflectionHelper.getFields(CHUNKDATA_BLOCKENTITYINFO_CLASS).get(ReflectionMappingsInfo.ClientboundLevelChunkPacketData_BlockEntityInfo_y);
-    public static MethodHandle CHUNKPACKET_CHUNKDATA_SETTER = ReflectionHelper.getFinalSetterForFirstOfType(ClientboundLevelChunkWithLightPacket.class, ClientboundLevelChunkPacketData.class);
     public static Constructor<?> PALETTEDCONTAINER_CTOR = Arrays.stream(PalettedContainer.class.getConstructors()).filter(c -> c.getParameterCount() == 3).findFirst().get();
 
     public static BlockState getNMSState(FakeBlock block) {
-        return ((CraftBlockData) block.material.getModernData()).getState();
+        return getNMSState(block.material.getModernData());
     }
 
-    public static boolean anyBlocksInSection(List<FakeBlock> blocks, int y) {
-        int minY = y << 4;
-        int maxY = (y << 4) + 16;
-        for (FakeBlock block : blocks) {
-            int blockY = block.location.getBlockY();
-            if (blockY >= minY && blockY < maxY) {
-                return true;
-            }
-        }
-        return false;
+    public static BlockState getNMSState(BlockData data) {
+        return ((CraftBlockData) data).getState();
     }
 
     public static Field PAPER_CHUNK_READY;
@@ -81,74 +75,20 @@ public class FakeBlockHelper {
         }
     }
 
-    public static ClientboundLevelChunkWithLightPacket handleMapChunkPacket(World world, ClientboundLevelChunkWithLightPacket originalPacket, int chunkX, int chunkZ, List<FakeBlock> blocks) {
+    public static ClientboundLevelChunkWithLightPacket handleMapChunkPacket(World world, ClientboundLevelChunkWithLightPacket originalPacket, FakeBlockChunkView view) {
         try {
+            byte[] originalBytes = (byte[]) CHUNKDATA_BUFFER.get(originalPacket.getChunkData());
+            FakeBlockRewriteCache.Key key = FakeBlockRewriteCache.keyFor(view, originalBytes);
+            FakeBlockRewriteCache.Rewrite rewrite = FakeBlockRewriteCache.get(key, originalBytes);
+            if (rewrite == null) {
+                rewrite = rewriteChunkData(world, originalPacket.getChunkData(), originalBytes, view);
+                FakeBlockRewriteCache.put(key, rewrite);
+            }
             ClientboundLevelChunkWithLightPacket duplicateCorePacket = new ClientboundLevelChunkWithLightPacket(DenizenNetworkManagerImpl.copyPacket(originalPacket));
             copyPacketPaperPatch(duplicateCorePacket, originalPacket);
-            FriendlyByteBuf copier = new FriendlyByteBuf(Unpooled.buffer());
-            originalPacket.getChunkData().write(copier);
-            ClientboundLevelChunkPacketData packet = new ClientboundLevelChunkPacketData(copier, chunkX, chunkZ);
-            FriendlyByteBuf serial = originalPacket.getChunkData().getReadBuffer();
-            FriendlyByteBuf outputSerial = new FriendlyByteBuf(Unpooled.buffer(serial.readableBytes()));
-            List blockEntities = new ArrayList((List) CHUNKDATA_BLOCK_ENTITIES.get(originalPacket.getChunkData()));
-            CHUNKDATA_BLOCK_ENTITIES.set(packet, blockEntities);
-            ListIterator iterator = blockEntities.listIterator();
-            while (iterator.hasNext()) {
-                Object blockEnt = iterator.next();
-                int xz = CHUNKDATA_BLOCKENTITYINFO_PACKEDXZ.getInt(blockEnt);
-                int y = CHUNKDATA_BLOCKENTITYINFO_Y.getInt(blockEnt);
-                int x = (chunkX << 4) + ((xz >> 4) & 15);
-                int z = (chunkZ << 4) + (xz & 15);
-                for (FakeBlock block : blocks) {
-                    LocationTag loc = block.location;
-                    if (loc.getBlockX() == x && loc.getBlockY() == y && loc.getBlockZ() == z && block.material != null) {
-                        iterator.remove();
-                        break;
-                    }
-                }
-            }
-            int worldMinY = world.getMinHeight();
-            int worldMaxY = world.getMaxHeight();
-            int minChunkY = worldMinY >> 4;
-            int maxChunkY = worldMaxY >> 4;
-            Registry<Biome> biomeRegistry = ((CraftWorld) world).getHandle().registryAccess().registryOrThrow(Registry.BIOME_REGISTRY);
-            for (int y = minChunkY; y < maxChunkY; y++) {
-                int blockCount = serial.readShort();
-                // reflected constructors as workaround for spigot remapper bug - Mojang "IdMap" became Spigot "IRegistry" but should be "Registry"
-                PalettedContainer<BlockState> states = (PalettedContainer<BlockState>) PALETTEDCONTAINER_CTOR.newInstance(Block.BLOCK_STATE_REGISTRY, Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
-                states.read(serial);
-                PalettedContainer<Biome> biomes = (PalettedContainer<Biome>) PALETTEDCONTAINER_CTOR.newInstance(biomeRegistry, biomeRegistry.getOrThrow(Biomes.PLAINS), PalettedContainer.Strategy.SECTION_BIOMES);
-                biomes.read(serial);
-                if (anyBlocksInSection(blocks, y)) {
-                    int minY = y << 4;
-                    int maxY = (y << 4) + 16;
-                    for (FakeBlock block : blocks) {
-                        int blockY = block.location.getBlockY();
-                        if (blockY >= minY && blockY < maxY && block.material != null) {
-                            int blockX = block.location.getBlockX();
-                            int blockZ = block.location.getBlockZ();
-                            blockX -= (blockX >> 4) * 16;
-                            blockY -= (blockY >> 4) * 16;
-                            blockZ -= (blockZ >> 4) * 16;
-                            BlockState oldState = states.get(blockX, blockY, blockZ);
-                            BlockState newState = getNMSState(block);
-                            if (oldState.isAir() && !newState.isAir()) {
-                                blockCount++;
-                            }
-                            else if (newState.isAir() && !oldState.isAir()) {
-                                blockCount--;
-                            }
-                            states.set(blockX, blockY, blockZ, newState);
-                        }
-                    }
-                }
-                outputSerial.writeShort(blockCount);
-                states.write(outputSerial);
-                biomes.write(outputSerial);
-            }
-            byte[] outputBytes = outputSerial.array();
-            CHUNKDATA_BUFFER_SETTER.invoke(packet, outputBytes);
-            CHUNKPACKET_CHUNKDATA_SETTER.invoke(duplicateCorePacket, packet);
+            ClientboundLevelChunkPacketData packet = duplicateCorePacket.getChunkData();
+            CHUNKDATA_BUFFER_SETTER.invoke(packet, rewrite.data);
+            CHUNKDATA_BLOCK_ENTITIES.set(packet, rewriteBlockEntities(originalPacket.getChunkData(), view));
             return duplicateCorePacket;
         }
         catch (Throwable ex) {
@@ -156,4 +96,68 @@ public class FakeBlockHelper {
         }
         return null;
     }
+
+    /**
+     * Applies the fake blocks in the view to the chunk's block entity list.
+     * This is redone for every packet rather than cached, as block entity data (like sign text) can change without any block state changing.
+     */
+    public static List rewriteBlockEntities(ClientboundLevelChunkPacketData originalData, FakeBlockChunkView view) throws Throwable {
+        List blockEntities = new ArrayList((List) CHUNKDATA_BLOCK_ENTITIES.get(originalData));
+        ListIterator iterator = blockEntities.listIterator();
+        while (iterator.hasNext()) {
+            Object blockEnt = iterator.next();
+            int xz = CHUNKDATA_BLOCKENTITYINFO_PACKEDXZ.getInt(blockEnt);
+            int y = CHUNKDATA_BLOCKENTITYINFO_Y.getInt(blockEnt);
+            if (view.indexOf(y, xz) >= 0) {
+                iterator.remove();
+            }
+        }
+        return blockEntities;
+    }
+
+    /**
+     * Applies the fake blocks in the view to the given chunk data. Sections without fake blocks, and all biome data, are copied through byte-for-byte.
+     * Block entities are not included, see {@link #rewriteBlockEntities}.
+     */
+    public static FakeBlockRewriteCache.Rewrite rewriteChunkData(World world, ClientboundLevelChunkPacketData originalData, byte[] originalBytes, FakeBlockChunkView view) throws Throwable {
+        FakeBlockRewriteCache.Rewrite rewrite = new FakeBlockRewriteCache.Rewrite();
+        rewrite.originalData = originalBytes;
+        FriendlyByteBuf serial = new FriendlyByteBuf(Unpooled.wrappedBuffer(originalBytes));
+        FriendlyByteBuf outputSerial = new FriendlyByteBuf(Unpooled.buffer(originalBytes.length));
+        int minChunkY = world.getMinHeight() >> 4;
+        int maxChunkY = world.getMaxHeight() >> 4;
+        Registry<Biome> biomeRegistry = ((CraftWorld) world).getHandle().registryAccess().registryOrThrow(Registry.BIOME_REGISTRY);
+        for (int y = minChunkY; y < maxChunkY; y++) {
+            int sectionStart = serial.readerIndex();
+            int blockCount = serial.readShort();
+            // reflected constructors as workaround for spigot remapper bug - Mojang "IdMap" became Spigot "IRegistry" but should be "Registry"
+            PalettedContainer<BlockState> states = (PalettedContainer<BlockState>) PALETTEDCONTAINER_CTOR.newInstance(Block.BLOCK_STATE_REGISTRY, Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
+            states.read(serial);
+            int biomesStart = serial.readerIndex();
+            PalettedContainer<Biome> biomes = (PalettedContainer<Biome>) PALETTEDCONTAINER_CTOR.newInstance(biomeRegistry, biomeRegistry.getOrThrow(Biomes.PLAINS), PalettedContainer.Strategy.SECTION_BIOMES);
+            biomes.read(serial);
+            int first = view.sectionStart(y), last = view.sectionEnd(y);
+            if (first == last) {
+                outputSerial.writeBytes(serial, sectionStart, serial.readerIndex() - sectionStart);
+                continue;
+            }
+            for (int i = first; i < last; i++) {
+                int blockX = view.getX(i), blockY = view.getY(i) & 15, blockZ = view.getZ(i);
+                BlockState oldState = states.get(blockX, blockY, blockZ);
+                BlockState newState = getNMSState(view.states[i]);
+                if (oldState.isAir() && !newState.isAir()) {
+                    blockCount++;
+                }
+                else if (newState.isAir() && !oldState.isAir()) {
+                    blockCount--;
+                }
+                states.set(blockX, blockY, blockZ, newState);
+            }
+            outputSerial.writeShort(blockCount);
+            states.write(outputSerial);
+            outputSerial.writeBytes(serial, biomesStart, serial.readerIndex() - biomesStart);
+        }
+        rewrite.data = Arrays.copyOf(outputSerial.array(), outputSerial.writerIndex());
+        return rewrite;
+    }
 }
@@ -18,6 +18,7 @@ import com.denizenscript.denizen.utilities.FormattedTextHelper;
 import com.denizenscript.denizen.utilities.Settings;
 import com.denizenscript.denizen.utilities.blocks.ChunkCoordinate;
 import com.denizenscript.denizen.utilities.blocks.FakeBlock;
+import com.denizenscript.denizen.utilities.blocks.FakeBlockChunkView;
 import com.denizenscript.denizen.utilities.entity.EntityAttachmentHelper;
 import com.denizenscript.denizen.utilities.entity.FakeEntity;
 import com.denizenscript.denizen.utilities.entity.HideEntitiesHelper;
@@ -59,6 +60,7 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.craftbukkit.v1_19_R3.CraftParticle;
 import org.bukkit.craftbukkit.v1_19_R3.CraftWorld;
 import org.bukkit.craftbukkit.v1_19_R3.entity.CraftEntity;
@@ -1150,6 +1152,12 @@ public class DenizenNetworkManagerImpl extends Connection {
             return false;
         }
         try {
+            if (packet instanceof ClientboundRemoveEntitiesPacket) {
+                for (int id : ((ClientboundRemoveEntitiesPacket) packet).getEntityIds()) {
+                    HideEntitiesHelper.forgetVerdict(player.getUUID(), id);
+                }
+                return false;
+            }
             int ider = -1;
             Entity e = null;
             if (packet instanceof ClientboundAddPlayerPacket) {
@@ -1173,6 +1181,9 @@ public class DenizenNetworkManagerImpl extends Connection {
             else if (packet instanceof ClientboundTeleportEntityPacket) {
                 ider = ((ClientboundTeleportEntityPacket) packet).getId();
             }
+            if (ider != -1 && (packet instanceof ClientboundAddPlayerPacket || packet instanceof ClientboundAddEntityPacket || packet instanceof ClientboundAddExperienceOrbPacket)) {
+                HideEntitiesHelper.forgetVerdict(player.getUUID(), ider);
+            }
             if (e == null && ider != -1) {
                 e = player.getLevel().getEntity(ider);
             }
@@ -1259,11 +1270,11 @@ public class DenizenNetworkManagerImpl extends Connection {
                 int chunkX = ((ClientboundLevelChunkWithLightPacket) packet).getX();
                 int chunkZ = ((ClientboundLevelChunkWithLightPacket) packet).getZ();
                 ChunkCoordinate chunkCoord = new ChunkCoordinate(chunkX, chunkZ, player.getLevel().getWorld().getName());
-                List<FakeBlock> blocks = FakeBlock.getFakeBlocksFor(player.getUUID(), chunkCoord);
-                if (blocks == null || blocks.isEmpty()) {
+                FakeBlockChunkView view = map.getChunkView(chunkCoord);
+                if (view == null) {
                     return false;
                 }
-                ClientboundLevelChunkWithLightPacket newPacket = FakeBlockHelper.handleMapChunkPacket(player.getBukkitEntity().getWorld(), (ClientboundLevelChunkWithLightPacket) packet, chunkX, chunkZ, blocks);
+                ClientboundLevelChunkWithLightPacket newPacket = FakeBlockHelper.handleMapChunkPacket(player.getBukkitEntity().getWorld(), (ClientboundLevelChunkWithLightPacket) packet, view);
                 oldManager.send(newPacket, genericfuturelistener);
                 return true;
             }
@@ -1274,7 +1285,7 @@ public class DenizenNetworkManagerImpl extends Connection {
                 }
                 SectionPos coord = (SectionPos) SECTIONPOS_MULTIBLOCKCHANGE.get(packet);
                 ChunkCoordinate coordinateDenizen = new ChunkCoordinate(coord.getX(), coord.getZ(), player.getLevel().getWorld().getName());
-                if (!map.byChunk.containsKey(coordinateDenizen)) {
+                if (!map.hasAnyInChunk(coordinateDenizen)) {
                     return false;
                 }
                 ClientboundSectionBlocksUpdatePacket newPacket = new ClientboundSectionBlocksUpdatePacket(copyPacket(packet));
@@ -1291,7 +1302,7 @@ public class DenizenNetworkManagerImpl extends Connection {
                     location.setX(pos.getX());
                     location.setY(pos.getY());
                     location.setZ(pos.getZ());
-                    FakeBlock block = map.byLocation.get(location);
+                    BlockData block = map.getFakeBlockData(location);
                     if (block != null) {
                         dataArray[i] = FakeBlockHelper.getNMSState(block);
                     }
@@ -1302,7 +1313,7 @@ public class DenizenNetworkManagerImpl extends Connection {
             else if (packet instanceof ClientboundBlockUpdatePacket) {
                 BlockPos pos = ((ClientboundBlockUpdatePacket) packet).getPos();
                 LocationTag loc = new LocationTag(player.getLevel().getWorld(), pos.getX(), pos.getY(), pos.getZ());
-                FakeBlock block = FakeBlock.getFakeBlockFor(player.getUUID(), loc);
+                BlockData block = FakeBlock.getFakeBlockDataFor(player.getUUID(), loc);
                 if (block != null) {
                     ClientboundBlockUpdatePacket newPacket = new ClientboundBlockUpdatePacket(((ClientboundBlockUpdatePacket) packet).getPos(), FakeBlockHelper.getNMSState(block));
                     oldManager.send(newPacket, genericfuturelistener);
@@ -1315,7 +1326,7 @@ public class DenizenNetworkManagerImpl extends Connection {
                 ClientboundBlockChangedAckPacket origPack = (ClientboundBlockChangedAckPacket) packet;
                 BlockPos pos = origPack.pos();
                 LocationTag loc = new LocationTag(player.getLevel().getWorld(), pos.getX(), pos.getY(), pos.getZ());
-                FakeBlock block = FakeBlock.getFakeBlockFor(player.getUUID(), loc);
+                BlockData block = FakeBlock.getFakeBlockDataFor(player.getUUID(), loc);
                 if (block != null) {
                     ClientboundBlockChangedAckPacket newPacket = new ClientboundBlockChangedAckPacket(origPack.pos(), FakeBlockHelper.getNMSState(block), origPack.action(), false);
                     oldManager.send(newPacket, genericfuturelistener);
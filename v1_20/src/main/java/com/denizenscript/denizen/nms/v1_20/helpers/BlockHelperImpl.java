@@ -1,5 +1,6 @@
 package com.denizenscript.denizen.nms.v1_20.helpers;
 
+import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.nms.interfaces.BlockHelper;
 import com.denizenscript.denizen.nms.util.PlayerProfile;
 import com.denizenscript.denizen.nms.util.jnbt.CompoundTag;
@@ -14,13 +15,16 @@ import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.google.common.collect.Iterables;
 import com.mojang.authlib.GameProfile;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Holder;
 import net.minecraft.core.HolderSet;
+import net.minecraft.core.SectionPos;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.network.protocol.common.ClientboundUpdateTagsPacket;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ThreadedLevelLightEngine;
 import net.minecraft.tags.TagKey;
 import net.minecraft.tags.TagNetworkSerialization;
 import net.minecraft.util.InclusiveRange;
@@ -33,10 +37,14 @@ import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.SpawnerBlockEntity;
 import net.minecraft.world.level.block.state.BlockBehaviour;
 import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.world.level.chunk.status.ChunkStatus;
+import net.minecraft.world.level.levelgen.Heightmap;
 import net.minecraft.world.level.material.FluidState;
 import net.minecraft.world.level.material.PushReaction;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Instrument;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -44,6 +52,7 @@ import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.CreatureSpawner;
 import org.bukkit.block.Skull;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.craftbukkit.v1_20_R4.CraftChunk;
 import org.bukkit.craftbukkit.v1_20_R4.CraftRegistry;
 import org.bukkit.craftbukkit.v1_20_R4.CraftServer;
@@ -52,6 +61,7 @@ import org.bukkit.craftbukkit.v1_20_R4.block.CraftBlock;
 import org.bukkit.craftbukkit.v1_20_R4.block.CraftBlockEntityState;
 import org.bukkit.craftbukkit.v1_20_R4.block.CraftCreatureSpawner;
 import org.bukkit.craftbukkit.v1_20_R4.block.CraftSkull;
+import org.bukkit.craftbukkit.v1_20_R4.block.data.CraftBlockData;
 import org.bukkit.craftbukkit.v1_20_R4.entity.CraftEntity;
 import org.bukkit.craftbukkit.v1_20_R4.inventory.CraftItemStack;
 import org.bukkit.craftbukkit.v1_20_R4.tag.CraftBlockTag;
@@ -312,4 +322,60 @@ public class BlockHelperImpl implements BlockHelper {
         }
         PacketHelperImpl.broadcast(new ClientboundUpdateTagsPacket(TagNetworkSerialization.serializeTagsToNetwork(((CraftServer) Bukkit.getServer()).getServer().registries())));
     }
+
+    @Override
+    public boolean setBlocksDirect(Chunk chunk, int sectionY, short[] positions, BlockData[] states, int count, LongList changedPositions) {
+        LevelChunk nmsChunk = (LevelChunk) ((CraftChunk) chunk).getHandle(ChunkStatus.FULL);
+        LevelChunkSection section = nmsChunk.getSection(nmsChunk.getSectionIndexFromSectionY(sectionY));
+        ServerLevel level = (ServerLevel) nmsChunk.getLevel();
+        int baseX = chunk.getX() << 4, baseY = sectionY << 4, baseZ = chunk.getZ() << 4;
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        boolean changed = false;
+        boolean wasOnlyAir = section.hasOnlyAir();
+        for (int i = 0; i < count; i++) {
+            int x = positions[i] & 15, z = (positions[i] >> 4) & 15, y = (positions[i] >> 8) & 15;
+            net.minecraft.world.level.block.state.BlockState state = ((CraftBlockData) states[i]).getState();
+            net.minecraft.world.level.block.state.BlockState oldState = section.getBlockState(x, y, z);
+            if (oldState.hasBlockEntity() || state.hasBlockEntity()) {
+                continue;
+            }
+            states[i] = null;
+            if (oldState != state) {
+                section.setBlockState(x, y, z, state, false);
+                pos.set(baseX + x, baseY + y, baseZ + z);
+                level.onBlockStateChange(pos, oldState, state);
+                changedPositions.add(pos.asLong());
+                changed = true;
+            }
+        }
+        if (changed) {
+            nmsChunk.setUnsaved(true);
+            boolean isOnlyAir = section.hasOnlyAir();
+            if (wasOnlyAir != isOnlyAir) {
+                level.getChunkSource().getLightEngine().updateSectionStatus(SectionPos.of(chunk.getX(), sectionY, chunk.getZ()), isOnlyAir);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void finishDirectWrites(Chunk chunk, LongList changedPositions, Runnable afterLighting) {
+        if (changedPositions.isEmpty()) {
+            return;
+        }
+        LevelChunk nmsChunk = (LevelChunk) ((CraftChunk) chunk).getHandle(ChunkStatus.FULL);
+        Heightmap.primeHeightmaps(nmsChunk, EnumSet.of(Heightmap.Types.MOTION_BLOCKING, Heightmap.Types.MOTION_BLOCKING_NO_LEAVES, Heightmap.Types.OCEAN_FLOOR, Heightmap.Types.WORLD_SURFACE));
+        ThreadedLevelLightEngine lightEngine = ((ServerLevel) nmsChunk.getLevel()).getChunkSource().getLightEngine();
+        for (int i = 0; i < changedPositions.size(); i++) {
+            lightEngine.checkBlock(BlockPos.of(changedPositions.getLong(i)));
+        }
+        lightEngine.waitForPendingTasks(chunk.getX(), chunk.getZ()).whenComplete((result, ex) -> {
+            if (ex != null) {
+                Debug.echoError(ex);
+            }
+            if (NMSHandler.getJavaPlugin().isEnabled()) {
+                Bukkit.getScheduler().runTask(NMSHandler.getJavaPlugin(), afterLighting);
+            }
+        });
+    }
 }
@@ -14,8 +14,11 @@ import com.denizenscript.denizen.utilities.packets.NetworkInterceptHelper;
 import com.denizenscript.denizencore.objects.core.ColorTag;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
+import io.netty.buffer.Unpooled;
 import net.md_5.bungee.api.ChatColor;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.common.ClientboundCustomPayloadPacket;
@@ -43,11 +46,14 @@ import net.minecraft.world.scores.Team;
 import org.bukkit.Bukkit;
 import org.bukkit.EntityEffect;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.block.Sign;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.block.sign.Side;
 import org.bukkit.block.sign.SignSide;
 import org.bukkit.craftbukkit.v1_20_R4.CraftServer;
 import org.bukkit.craftbukkit.v1_20_R4.CraftWorld;
+import org.bukkit.craftbukkit.v1_20_R4.block.data.CraftBlockData;
 import org.bukkit.craftbukkit.v1_20_R4.entity.CraftEntity;
 import org.bukkit.craftbukkit.v1_20_R4.entity.CraftPlayer;
 import org.bukkit.craftbukkit.v1_20_R4.inventory.CraftItemStack;
@@ -146,6 +152,18 @@ public class PacketHelperImpl implements PacketHelper {
         send(player, new ClientboundBlockEventPacket(position, block, action, state));
     }
 
+    @Override
+    public void sendSectionBlockChanges(Player player, World world, int sectionX, int sectionY, int sectionZ, short[] offsets, BlockData[] states) {
+        // Built via the packet codec, as the packet's constructors all require a live chunk section
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeLong(SectionPos.asLong(sectionX, sectionY, sectionZ));
+        buf.writeVarInt(offsets.length);
+        for (int i = 0; i < offsets.length; i++) {
+            buf.writeVarLong(((long) Block.getId(((CraftBlockData) states[i]).getState()) << 12) | offsets[i]);
+        }
+        send(player, ClientboundSectionBlocksUpdatePacket.STREAM_CODEC.decode(buf));
+    }
+
     @Override
     public void showTabListHeaderFooter(Player player, String header, String footer) {
         Component cHeader = Handler.componentToNMS(FormattedTextHelper.parse(header, ChatColor.WHITE));
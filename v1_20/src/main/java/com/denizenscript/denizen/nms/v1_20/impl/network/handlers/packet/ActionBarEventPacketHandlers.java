@@ -5,6 +5,7 @@ import com.denizenscript.denizen.nms.v1_20.Handler;
 import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.DenizenNetworkManagerImpl;
 import com.denizenscript.denizen.objects.PlayerTag;
 import com.denizenscript.denizen.utilities.FormattedTextHelper;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import com.denizenscript.denizencore.objects.core.ElementTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.protocol.game.ClientboundSetActionBarTextPacket;
@@ -13,14 +14,11 @@ import org.bukkit.craftbukkit.v1_20_R4.util.CraftChatMessage;
 public class ActionBarEventPacketHandlers {
 
     public static void registerHandlers() {
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSetActionBarTextPacket.class, ActionBarEventPacketHandlers::processActionbarPacket);
+        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSetActionBarTextPacket.class, PacketFeature.ACTION_BAR_EVENT, ActionBarEventPacketHandlers::processActionbarPacket);
     }
 
     public static ClientboundSetActionBarTextPacket processActionbarPacket(DenizenNetworkManagerImpl networkManager, ClientboundSetActionBarTextPacket actionbarPacket) {
         PlayerReceivesActionbarScriptEvent event = PlayerReceivesActionbarScriptEvent.instance;
-        if (!event.loaded) {
-            return actionbarPacket;
-        }
         event.reset();
         Component actionbarText = actionbarPacket.text();
         event.message = new ElementTag(FormattedTextHelper.stringify(Handler.componentToSpigot(actionbarText)), true);
@@ -3,7 +3,9 @@ package com.denizenscript.denizen.nms.v1_20.impl.network.handlers.packet;
 import com.denizenscript.denizen.nms.NMSHandler;
 import com.denizenscript.denizen.nms.v1_20.ReflectionMappingsInfo;
 import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.DenizenNetworkManagerImpl;
+import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.PacketContext;
 import com.denizenscript.denizen.utilities.entity.EntityAttachmentHelper;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import com.denizenscript.denizencore.utilities.CoreConfiguration;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
@@ -19,11 +21,17 @@ import java.lang.reflect.Field;
 public class AttachPacketHandlers {
 
     public static void registerHandlers() {
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundMoveEntityPacket.class, AttachPacketHandlers::processAttachToForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundRotateHeadPacket.class, AttachPacketHandlers::processAttachToForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSetEntityMotionPacket.class, AttachPacketHandlers::processAttachToForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundTeleportEntityPacket.class, AttachPacketHandlers::processAttachToForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundRemoveEntitiesPacket.class, AttachPacketHandlers::processAttachToForPacket);
+        registerHandler(ClientboundMoveEntityPacket.Pos.class);
+        registerHandler(ClientboundMoveEntityPacket.Rot.class);
+        registerHandler(ClientboundMoveEntityPacket.PosRot.class);
+        registerHandler(ClientboundRotateHeadPacket.class);
+        registerHandler(ClientboundSetEntityMotionPacket.class);
+        registerHandler(ClientboundTeleportEntityPacket.class);
+        registerHandler(ClientboundRemoveEntitiesPacket.class);
+    }
+
+    public static <T extends Packet<ClientGamePacketListener>> void registerHandler(Class<T> packetClass) {
+        DenizenNetworkManagerImpl.registerContextPacketHandler(packetClass, PacketFeature.ATTACHMENTS, AttachPacketHandlers::processAttachToForPacket);
     }
 
     public static Field POS_X_PACKENT = ReflectionHelper.getFields(ClientboundMoveEntityPacket.class).get(ReflectionMappingsInfo.ClientboundMoveEntityPacket_xa, short.class);
@@ -246,13 +254,10 @@ public class AttachPacketHandlers {
         }
     }
 
-    public static Packet<ClientGamePacketListener> processAttachToForPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet) {
-        if (EntityAttachmentHelper.toEntityToData.isEmpty()) {
-            return packet;
-        }
+    public static Packet<ClientGamePacketListener> processAttachToForPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet, PacketContext context) {
         try {
             if (packet instanceof ClientboundMoveEntityPacket moveEntityPacket) {
-                Entity e = moveEntityPacket.getEntity(networkManager.player.level());
+                Entity e = context.getEntity();
                 if (e == null) {
                     return packet;
                 }
@@ -262,7 +267,7 @@ public class AttachPacketHandlers {
                 return EntityAttachmentHelper.denyOriginalPacketSend(networkManager.player.getUUID(), e.getUUID()) ? null : packet;
             }
             else if (packet instanceof ClientboundRotateHeadPacket rotateHeadPacket) {
-                Entity e = rotateHeadPacket.getEntity(networkManager.player.level());
+                Entity e = context.getEntity();
                 if (e == null) {
                     return packet;
                 }
@@ -270,8 +275,7 @@ public class AttachPacketHandlers {
                 return EntityAttachmentHelper.denyOriginalPacketSend(networkManager.player.getUUID(), e.getUUID()) ? null : packet;
             }
             else if (packet instanceof ClientboundSetEntityMotionPacket setEntityMotionPacket) {
-                int ider = setEntityMotionPacket.getId();
-                Entity e = networkManager.player.level().getEntity(ider);
+                Entity e = context.getEntity();
                 if (e == null) {
                     return packet;
                 }
@@ -279,8 +283,7 @@ public class AttachPacketHandlers {
                 return EntityAttachmentHelper.denyOriginalPacketSend(networkManager.player.getUUID(), e.getUUID()) ? null : packet;
             }
             else if (packet instanceof ClientboundTeleportEntityPacket teleportEntityPacket) {
-                int ider = teleportEntityPacket.getId();
-                Entity e = networkManager.player.level().getEntity(ider);
+                Entity e = context.getEntity();
                 if (e == null) {
                     return packet;
                 }
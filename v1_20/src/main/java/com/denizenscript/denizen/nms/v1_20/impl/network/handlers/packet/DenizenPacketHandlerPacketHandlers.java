@@ -4,6 +4,7 @@ import com.denizenscript.denizen.events.player.PlayerReceivesMessageScriptEvent;
 import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.DenizenNetworkManagerImpl;
 import com.denizenscript.denizen.nms.v1_20.impl.network.packets.PacketOutChatImpl;
 import com.denizenscript.denizen.utilities.packets.DenizenPacketHandler;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.ClientGamePacketListener;
 import net.minecraft.network.protocol.game.ClientboundPlayerChatPacket;
@@ -12,8 +13,8 @@ import net.minecraft.network.protocol.game.ClientboundSystemChatPacket;
 public class DenizenPacketHandlerPacketHandlers {
 
     public static void registerHandlers() {
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSystemChatPacket.class, DenizenPacketHandlerPacketHandlers::processPacketHandlerForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundPlayerChatPacket.class, DenizenPacketHandlerPacketHandlers::processPacketHandlerForPacket);
+        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSystemChatPacket.class, PacketFeature.CHAT_INTERCEPT, DenizenPacketHandlerPacketHandlers::processPacketHandlerForPacket);
+        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundPlayerChatPacket.class, PacketFeature.CHAT_INTERCEPT, DenizenPacketHandlerPacketHandlers::processPacketHandlerForPacket);
     }
 
     public static Packet<ClientGamePacketListener> processPacketHandlerForPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet) {
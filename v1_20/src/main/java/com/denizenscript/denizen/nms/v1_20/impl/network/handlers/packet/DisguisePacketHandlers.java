@@ -8,12 +8,12 @@ import com.denizenscript.denizen.objects.PlayerTag;
 import com.denizenscript.denizen.scripts.commands.player.DisguiseCommand;
 import com.denizenscript.denizen.utilities.entity.EntityAttachmentHelper;
 import com.denizenscript.denizen.utilities.entity.FakeEntity;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.*;
 import net.minecraft.network.syncher.SynchedEntityData;
 import net.minecraft.world.entity.Entity;
-import net.minecraft.world.level.Level;
 import org.bukkit.craftbukkit.v1_20_R4.entity.CraftEntity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
@@ -23,34 +23,28 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.function.BiFunction;
-import java.util.function.ToIntFunction;
 
 public class DisguisePacketHandlers {
 
     public static void registerHandlers() {
-        registerPacketHandler(ClientboundSetEntityDataPacket.class, ClientboundSetEntityDataPacket::id, DisguisePacketHandlers::processEntityDataPacket);
-        registerPacketHandler(ClientboundUpdateAttributesPacket.class, ClientboundUpdateAttributesPacket::getEntityId, DisguisePacketHandlers::processAttributesPacket);
-        registerPacketHandler(ClientboundAddEntityPacket.class, ClientboundAddEntityPacket::getId, DisguisePacketHandlers::sendDisguiseForPacket);
-        registerPacketHandler(ClientboundTeleportEntityPacket.class, ClientboundTeleportEntityPacket::getId, DisguisePacketHandlers::processTeleportPacket);
-        registerPacketHandler(ClientboundMoveEntityPacket.Rot.class, ClientboundMoveEntityPacket::getEntity, DisguisePacketHandlers::processMoveEntityRotPacket);
-        registerPacketHandler(ClientboundMoveEntityPacket.PosRot.class, ClientboundMoveEntityPacket::getEntity, DisguisePacketHandlers::processMoveEntityPosRotPacket);
+        registerPacketHandler(ClientboundSetEntityDataPacket.class, DisguisePacketHandlers::processEntityDataPacket);
+        registerPacketHandler(ClientboundUpdateAttributesPacket.class, DisguisePacketHandlers::processAttributesPacket);
+        registerPacketHandler(ClientboundAddEntityPacket.class, DisguisePacketHandlers::sendDisguiseForPacket);
+        registerPacketHandler(ClientboundTeleportEntityPacket.class, DisguisePacketHandlers::processTeleportPacket);
+        registerPacketHandler(ClientboundMoveEntityPacket.Rot.class, DisguisePacketHandlers::processMoveEntityRotPacket);
+        registerPacketHandler(ClientboundMoveEntityPacket.PosRot.class, DisguisePacketHandlers::processMoveEntityPosRotPacket);
     }
 
     public static final Field TELEPORT_PACKET_YAW = ReflectionHelper.getFields(ClientboundTeleportEntityPacket.class).get(ReflectionMappingsInfo.ClientboundTeleportEntityPacket_yRot, byte.class);
 
     private static boolean antiDuplicate = false;
 
-    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetType, ToIntFunction<T> idGetter, DisguisePacketHandler<T> handler) {
-        registerPacketHandler(packetType, (packet, level) -> level.getEntity(idGetter.applyAsInt(packet)), handler);
-    }
-
-    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetType, BiFunction<T, Level, Entity> entityGetter, DisguisePacketHandler<T> handler) {
-        DenizenNetworkManagerImpl.registerPacketHandler(packetType, (networkManager, packet) -> {
-            if (DisguiseCommand.disguises.isEmpty() || antiDuplicate) {
+    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetType, DisguisePacketHandler<T> handler) {
+        DenizenNetworkManagerImpl.registerContextPacketHandler(packetType, PacketFeature.DISGUISES, (networkManager, packet, context) -> {
+            if (antiDuplicate) {
                 return packet;
             }
-            Entity entity = entityGetter.apply(packet, networkManager.player.level());
+            Entity entity = context.getEntity();
             if (entity == null) {
                 return packet;
             }
@@ -3,13 +3,16 @@ package com.denizenscript.denizen.nms.v1_20.impl.network.handlers.packet;
 import com.denizenscript.denizen.nms.v1_20.Handler;
 import com.denizenscript.denizen.nms.v1_20.helpers.PacketHelperImpl;
 import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.DenizenNetworkManagerImpl;
+import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.PacketContext;
 import com.denizenscript.denizen.scripts.commands.entity.GlowCommand;
 import com.denizenscript.denizen.scripts.commands.entity.InvisibleCommand;
 import com.denizenscript.denizen.scripts.commands.entity.RenameCommand;
 import com.denizenscript.denizen.scripts.commands.entity.SneakCommand;
 import com.denizenscript.denizen.utilities.FormattedTextHelper;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import net.md_5.bungee.api.ChatColor;
+import net.minecraft.network.chat.Component;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.ClientGamePacketListener;
 import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
@@ -17,21 +20,46 @@ import net.minecraft.network.syncher.SynchedEntityData;
 import net.minecraft.world.entity.Entity;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class EntityMetadataPacketHandlers {
 
     public static void registerHandlers() {
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSetEntityDataPacket.class, EntityMetadataPacketHandlers::processMetadataChangesForPacket);
+        DenizenNetworkManagerImpl.registerContextPacketHandler(ClientboundSetEntityDataPacket.class, PacketFeature.ENTITY_METADATA, EntityMetadataPacketHandlers::processMetadataChangesForPacket);
     }
 
-    public static ClientboundSetEntityDataPacket getModifiedMetadataFor(DenizenNetworkManagerImpl networkManager, ClientboundSetEntityDataPacket metadataPacket) {
-        if (!RenameCommand.hasAnyDynamicRenames() && SneakCommand.forceSetSneak.isEmpty() && InvisibleCommand.helper.noOverrides() && GlowCommand.helper.noOverrides()) {
-            return null;
+    public static int nameComponentCacheSize = 1024;
+
+    /**
+     * Recently used custom name components, keyed by the name text, so that per-player renames don't need to re-parse the same name for every metadata packet.
+     * Must be synchronized on when used.
+     */
+    public static final LinkedHashMap<String, Component> nameComponentCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Component> eldest) {
+            return size() > nameComponentCacheSize;
+        }
+    };
+
+    public static Component getNameComponent(String name) {
+        synchronized (nameComponentCache) {
+            Component component = nameComponentCache.get(name);
+            if (component != null) {
+                return component;
+            }
+        }
+        Component component = Handler.componentToNMS(FormattedTextHelper.parse(name, ChatColor.WHITE));
+        synchronized (nameComponentCache) {
+            nameComponentCache.put(name, component);
         }
+        return component;
+    }
+
+    public static ClientboundSetEntityDataPacket getModifiedMetadataFor(DenizenNetworkManagerImpl networkManager, ClientboundSetEntityDataPacket metadataPacket, Entity entity) {
         try {
-            Entity entity = networkManager.player.level().getEntity(metadataPacket.id());
             if (entity == null) {
                 return null; // If it doesn't exist on-server, it's definitely not relevant, so move on
             }
@@ -61,7 +89,7 @@ public class EntityMetadataPacketHandlers {
                 data.add(SynchedEntityData.DataValue.create(PacketHelperImpl.ENTITY_DATA_ACCESSOR_FLAGS, flags));
             }
             if (nameToApply != null) {
-                data.add(SynchedEntityData.DataValue.create(PacketHelperImpl.ENTITY_DATA_ACCESSOR_CUSTOM_NAME, Optional.of(Handler.componentToNMS(FormattedTextHelper.parse(nameToApply, ChatColor.WHITE)))));
+                data.add(SynchedEntityData.DataValue.create(PacketHelperImpl.ENTITY_DATA_ACCESSOR_CUSTOM_NAME, Optional.of(getNameComponent(nameToApply))));
                 data.add(SynchedEntityData.DataValue.create(PacketHelperImpl.ENTITY_DATA_ACCESSOR_CUSTOM_NAME_VISIBLE, true));
             }
             return new ClientboundSetEntityDataPacket(metadataPacket.id(), data);
@@ -79,11 +107,11 @@ public class EntityMetadataPacketHandlers {
         return (byte) (value ? currentFlags | flag : currentFlags & ~flag);
     }
 
-    public static Packet<ClientGamePacketListener> processMetadataChangesForPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet) {
+    public static Packet<ClientGamePacketListener> processMetadataChangesForPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet, PacketContext context) {
         if (!(packet instanceof ClientboundSetEntityDataPacket entityDataPacket)) {
             return packet;
         }
-        ClientboundSetEntityDataPacket altPacket = getModifiedMetadataFor(networkManager, entityDataPacket);
+        ClientboundSetEntityDataPacket altPacket = getModifiedMetadataFor(networkManager, entityDataPacket, context.getEntity());
         if (altPacket == null) {
             return packet;
         }
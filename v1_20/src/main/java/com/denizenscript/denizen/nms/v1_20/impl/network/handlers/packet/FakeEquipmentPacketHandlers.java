@@ -1,8 +1,10 @@
 package com.denizenscript.denizen.nms.v1_20.impl.network.handlers.packet;
 
 import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.DenizenNetworkManagerImpl;
+import com.denizenscript.denizen.nms.v1_20.impl.network.handlers.PacketContext;
 import com.denizenscript.denizen.objects.ItemTag;
 import com.denizenscript.denizen.scripts.commands.entity.FakeEquipCommand;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import com.mojang.datafixers.util.Pair;
 import net.minecraft.core.NonNullList;
 import net.minecraft.network.protocol.Packet;
@@ -20,17 +22,14 @@ import java.util.List;
 public class FakeEquipmentPacketHandlers {
 
     public static void registerHandlers() {
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSetEquipmentPacket.class, FakeEquipmentPacketHandlers::processSetEquipmentPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundEntityEventPacket.class, FakeEquipmentPacketHandlers::processEntityEventPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundContainerSetContentPacket.class, FakeEquipmentPacketHandlers::processContainerSetContentPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundContainerSetSlotPacket.class, FakeEquipmentPacketHandlers::processContainerSetSlotPacket);
+        DenizenNetworkManagerImpl.registerContextPacketHandler(ClientboundSetEquipmentPacket.class, PacketFeature.FAKE_EQUIPMENT, FakeEquipmentPacketHandlers::processSetEquipmentPacket);
+        DenizenNetworkManagerImpl.registerContextPacketHandler(ClientboundEntityEventPacket.class, PacketFeature.FAKE_EQUIPMENT, FakeEquipmentPacketHandlers::processEntityEventPacket);
+        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundContainerSetContentPacket.class, PacketFeature.FAKE_EQUIPMENT, FakeEquipmentPacketHandlers::processContainerSetContentPacket);
+        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundContainerSetSlotPacket.class, PacketFeature.FAKE_EQUIPMENT, FakeEquipmentPacketHandlers::processContainerSetSlotPacket);
     }
 
-    public static ClientboundSetEquipmentPacket processSetEquipmentPacket(DenizenNetworkManagerImpl networkManager, ClientboundSetEquipmentPacket setEquipmentPacket) {
-        if (FakeEquipCommand.overrides.isEmpty()) {
-            return setEquipmentPacket;
-        }
-        Entity entity = networkManager.player.level().getEntity(setEquipmentPacket.getEntity());
+    public static ClientboundSetEquipmentPacket processSetEquipmentPacket(DenizenNetworkManagerImpl networkManager, ClientboundSetEquipmentPacket setEquipmentPacket, PacketContext context) {
+        Entity entity = context.getEntity();
         if (entity == null) {
             return setEquipmentPacket;
         }
@@ -55,14 +54,11 @@ public class FakeEquipmentPacketHandlers {
         return new ClientboundSetEquipmentPacket(setEquipmentPacket.getEntity(), equipment);
     }
 
-    public static Packet<ClientGamePacketListener> processEntityEventPacket(DenizenNetworkManagerImpl networkManager, ClientboundEntityEventPacket entityEventPacket) {
-        if (FakeEquipCommand.overrides.isEmpty()) {
-            return entityEventPacket;
-        }
+    public static Packet<ClientGamePacketListener> processEntityEventPacket(DenizenNetworkManagerImpl networkManager, ClientboundEntityEventPacket entityEventPacket, PacketContext context) {
         if (entityEventPacket.getEventId() != 55) {
             return entityEventPacket;
         }
-        if (!(entityEventPacket.getEntity(networkManager.player.level()) instanceof LivingEntity livingEntity)) {
+        if (!(context.getEntity() instanceof LivingEntity livingEntity)) {
             return entityEventPacket;
         }
         FakeEquipCommand.EquipmentOverride override = FakeEquipCommand.getOverrideFor(livingEntity.getUUID(), networkManager.player.getBukkitEntity());
@@ -75,9 +71,6 @@ public class FakeEquipmentPacketHandlers {
     }
 
     public static ClientboundContainerSetContentPacket processContainerSetContentPacket(DenizenNetworkManagerImpl networkManager, ClientboundContainerSetContentPacket setContentPacket) {
-        if (FakeEquipCommand.overrides.isEmpty()) {
-            return setContentPacket;
-        }
         if (setContentPacket.getContainerId() != 0) {
             return setContentPacket;
         }
@@ -108,9 +101,6 @@ public class FakeEquipmentPacketHandlers {
     }
 
     public static ClientboundContainerSetSlotPacket processContainerSetSlotPacket(DenizenNetworkManagerImpl networkManager, ClientboundContainerSetSlotPacket setSlotPacket) {
-        if (FakeEquipCommand.overrides.isEmpty()) {
-            return setSlotPacket;
-        }
         if (setSlotPacket.getContainerId() != 0) {
             return setSlotPacket;
         }
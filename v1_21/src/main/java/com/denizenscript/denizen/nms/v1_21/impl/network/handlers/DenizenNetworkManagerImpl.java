@@ -7,6 +7,8 @@ import com.denizenscript.denizen.nms.v1_21.impl.ProfileEditorImpl;
 import com.denizenscript.denizen.nms.v1_21.impl.network.handlers.packet.*;
 import com.denizenscript.denizen.utilities.Settings;
 import com.denizenscript.denizen.utilities.packets.NetworkInterceptCodeGen;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
+import com.denizenscript.denizen.utilities.packets.PacketHandlerTimings;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.ReflectionHelper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
@@ -29,6 +31,8 @@ import net.minecraft.server.network.ServerCommonPacketListenerImpl;
 import net.minecraft.server.network.ServerGamePacketListenerImpl;
 import net.minecraft.server.network.ServerPlayerConnection;
 import net.minecraft.util.debugchart.LocalSampleLogger;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.bukkit.craftbukkit.v1_21_R3.CraftRegistry;
@@ -46,7 +50,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 public class DenizenNetworkManagerImpl extends Connection {
@@ -68,19 +74,71 @@ public class DenizenNetworkManagerImpl extends Connection {
         Packet<ClientGamePacketListener> handlePacket(DenizenNetworkManagerImpl networkManager, T packet) throws Exception;
     }
 
-    public static final Map<Class<? extends Packet<ClientGamePacketListener>>, List<PacketHandler<?>>> packetHandlers = new HashMap<>();
+    @FunctionalInterface
+    public interface ContextPacketHandler<T extends Packet<ClientGamePacketListener>> {
+        Packet<ClientGamePacketListener> handlePacket(DenizenNetworkManagerImpl networkManager, T packet, PacketContext context) throws Exception;
+    }
 
-    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetClass, PacketHandler<T> handler) {
-        packetHandlers.computeIfAbsent(packetClass, k -> new ArrayList<>()).add(handler);
+    public static class RegisteredPacketHandler {
+
+        public final PacketFeature feature;
+
+        public final ContextPacketHandler<Packet<ClientGamePacketListener>> handler;
+
+        public final PacketHandlerTimings.Timing timing;
+
+        public RegisteredPacketHandler(PacketFeature feature, ContextPacketHandler<Packet<ClientGamePacketListener>> handler, PacketHandlerTimings.Timing timing) {
+            this.feature = feature;
+            this.handler = handler;
+            this.timing = timing;
+        }
     }
 
-    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetClass, BiConsumer<DenizenNetworkManagerImpl, T> handler) {
-        registerPacketHandler(packetClass, (networkManager, packet) -> {
+    public static class PacketTypeHandlers {
+
+        public final List<RegisteredPacketHandler> handlers = new ArrayList<>();
+
+        public BiFunction<Packet<ClientGamePacketListener>, Level, Entity> entityGetter;
+    }
+
+    public static final Map<Class<? extends Packet<ClientGamePacketListener>>, PacketTypeHandlers> packetHandlers = new HashMap<>();
+
+    public static <T extends Packet<ClientGamePacketListener>> void registerContextPacketHandler(Class<T> packetClass, PacketFeature feature, ContextPacketHandler<T> handler) {
+        String className = packetClass.getName();
+        PacketHandlerTimings.Timing timing = PacketHandlerTimings.register(CoreUtilities.toLowerCase(feature.name()) + " " + className.substring(className.lastIndexOf('.') + 1));
+        packetHandlers.computeIfAbsent(packetClass, k -> new PacketTypeHandlers()).handlers.add(new RegisteredPacketHandler(feature, (ContextPacketHandler<Packet<ClientGamePacketListener>>) handler, timing));
+    }
+
+    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetClass, PacketFeature feature, PacketHandler<T> handler) {
+        registerContextPacketHandler(packetClass, feature, (networkManager, packet, context) -> handler.handlePacket(networkManager, packet));
+    }
+
+    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetClass, PacketFeature feature, BiConsumer<DenizenNetworkManagerImpl, T> handler) {
+        registerContextPacketHandler(packetClass, feature, (networkManager, packet, context) -> {
             handler.accept(networkManager, packet);
             return packet;
         });
     }
 
+    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetClass, PacketHandler<T> handler) {
+        registerPacketHandler(packetClass, PacketFeature.ALWAYS, handler);
+    }
+
+    public static <T extends Packet<ClientGamePacketListener>> void registerPacketHandler(Class<T> packetClass, BiConsumer<DenizenNetworkManagerImpl, T> handler) {
+        registerPacketHandler(packetClass, PacketFeature.ALWAYS, handler);
+    }
+
+    /**
+     * Registers how to find the entity a packet type is about, for {@link PacketContext#getEntity()}.
+     */
+    public static <T extends Packet<ClientGamePacketListener>> void registerPacketEntityGetter(Class<T> packetClass, BiFunction<T, Level, Entity> entityGetter) {
+        packetHandlers.computeIfAbsent(packetClass, k -> new PacketTypeHandlers()).entityGetter = (BiFunction<Packet<ClientGamePacketListener>, Level, Entity>) (BiFunction<?, Level, Entity>) entityGetter;
+    }
+
+    public static <T extends Packet<ClientGamePacketListener>> void registerPacketEntityId(Class<T> packetClass, ToIntFunction<T> idGetter) {
+        registerPacketEntityGetter(packetClass, (packet, level) -> level.getEntity(idGetter.applyAsInt(packet)));
+    }
+
     public final Connection oldManager;
     public final DenizenPacketListenerImpl packetListener;
     public final ServerPlayer player;
@@ -367,19 +425,30 @@ public class DenizenNetworkManagerImpl extends Connection {
         if (packet == null) {
             return null;
         }
-        List<PacketHandler<?>> packetHandlers = DenizenNetworkManagerImpl.packetHandlers.get(packet.getClass());
-        if (packetHandlers != null) {
-            for (PacketHandler<?> _packetHandler : packetHandlers) {
-                PacketHandler<Packet<ClientGamePacketListener>> packetHandler = (PacketHandler<Packet<ClientGamePacketListener>>) _packetHandler;
+        PacketTypeHandlers typeHandlers = DenizenNetworkManagerImpl.packetHandlers.get(packet.getClass());
+        if (typeHandlers != null && !typeHandlers.handlers.isEmpty()) {
+            PacketContext context = new PacketContext(this, packet, typeHandlers.entityGetter);
+            boolean timed = PacketHandlerTimings.enabled;
+            for (RegisteredPacketHandler packetHandler : typeHandlers.handlers) {
+                if (!context.isActive(packetHandler.feature)) {
+                    continue;
+                }
+                long start = timed ? System.nanoTime() : 0;
                 Packet<ClientGamePacketListener> processed;
                 try {
-                    processed = packetHandler.handlePacket(this, packet);
+                    processed = packetHandler.handler.handlePacket(this, packet, context);
                 }
                 catch (Exception ex) {
                     Debug.echoError("Packet handler for " + packet.getClass().getCanonicalName() + " threw an exception:");
                     Debug.echoError(ex);
                     continue;
                 }
+                finally {
+                    if (timed) {
+                        packetHandler.timing.nanos.add(System.nanoTime() - start);
+                        packetHandler.timing.calls.increment();
+                    }
+                }
                 if (processed == null) {
                     if (NMSHandler.debugPackets) {
                         doPacketOutput("DENIED PACKET - " + packet.getClass().getCanonicalName() + " DENIED FROM SEND TO " + player.getScoreboardName());
@@ -399,6 +468,19 @@ public class DenizenNetworkManagerImpl extends Connection {
     }
 
     static {
+        registerPacketEntityId(ClientboundAddEntityPacket.class, ClientboundAddEntityPacket::getId);
+        registerPacketEntityId(ClientboundAddExperienceOrbPacket.class, ClientboundAddExperienceOrbPacket::getId);
+        registerPacketEntityGetter(ClientboundMoveEntityPacket.Pos.class, ClientboundMoveEntityPacket::getEntity);
+        registerPacketEntityGetter(ClientboundMoveEntityPacket.Rot.class, ClientboundMoveEntityPacket::getEntity);
+        registerPacketEntityGetter(ClientboundMoveEntityPacket.PosRot.class, ClientboundMoveEntityPacket::getEntity);
+        registerPacketEntityGetter(ClientboundRotateHeadPacket.class, ClientboundRotateHeadPacket::getEntity);
+        registerPacketEntityGetter(ClientboundEntityEventPacket.class, ClientboundEntityEventPacket::getEntity);
+        registerPacketEntityId(ClientboundSetEntityDataPacket.class, ClientboundSetEntityDataPacket::id);
+        registerPacketEntityId(ClientboundSetEntityMotionPacket.class, ClientboundSetEntityMotionPacket::getId);
+        registerPacketEntityId(ClientboundTeleportEntityPacket.class, ClientboundTeleportEntityPacket::id);
+        registerPacketEntityId(ClientboundUpdateAttributesPacket.class, ClientboundUpdateAttributesPacket::getEntityId);
+        registerPacketEntityId(ClientboundSetEquipmentPacket.class, ClientboundSetEquipmentPacket::getEntity);
+        registerPacketEntityId(ClientboundSoundEntityPacket.class, ClientboundSoundEntityPacket::getId);
         ActionBarEventPacketHandlers.registerHandlers();
         AttachPacketHandlers.registerHandlers();
         BlockLightPacketHandlers.registerHandlers();
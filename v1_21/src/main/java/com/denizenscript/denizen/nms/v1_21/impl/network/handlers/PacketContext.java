@@ -0,0 +1,54 @@
+package com.denizenscript.denizen.nms.v1_21.impl.network.handlers;
+
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
+
+import java.util.function.BiFunction;
+
+/**
+ * Per-packet information shared by every handler processing a single outgoing packet, so that it's resolved at most once.
+ */
+public class PacketContext {
+
+    public final DenizenNetworkManagerImpl networkManager;
+
+    public final Packet<ClientGamePacketListener> originalPacket;
+
+    private final BiFunction<Packet<ClientGamePacketListener>, Level, Entity> entityGetter;
+
+    private Entity entity;
+
+    private boolean entityResolved;
+
+    private long checkedFeatures, activeFeatures;
+
+    public PacketContext(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> originalPacket, BiFunction<Packet<ClientGamePacketListener>, Level, Entity> entityGetter) {
+        this.networkManager = networkManager;
+        this.originalPacket = originalPacket;
+        this.entityGetter = entityGetter;
+    }
+
+    /**
+     * Returns the entity the packet is about, or null if the packet isn't about an entity or the entity doesn't exist on the server.
+     */
+    public Entity getEntity() {
+        if (!entityResolved) {
+            entityResolved = true;
+            entity = entityGetter == null ? null : entityGetter.apply(originalPacket, networkManager.player.level());
+        }
+        return entity;
+    }
+
+    public boolean isActive(PacketFeature feature) {
+        if ((checkedFeatures & feature.bit) == 0) {
+            checkedFeatures |= feature.bit;
+            if (feature.isActive.getAsBoolean()) {
+                activeFeatures |= feature.bit;
+            }
+        }
+        return (activeFeatures & feature.bit) != 0;
+    }
+}
@@ -3,14 +3,15 @@ package com.denizenscript.denizen.nms.v1_21.impl.network.handlers.packet;
 import com.denizenscript.denizen.nms.abstracts.BlockLight;
 import com.denizenscript.denizen.nms.v1_21.impl.blocks.BlockLightImpl;
 import com.denizenscript.denizen.nms.v1_21.impl.network.handlers.DenizenNetworkManagerImpl;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import net.minecraft.network.protocol.game.ClientboundBlockUpdatePacket;
 import net.minecraft.network.protocol.game.ClientboundLightUpdatePacket;
 
 public class BlockLightPacketHandlers {
 
     public static void registerHandlers() {
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundLightUpdatePacket.class, BlockLightPacketHandlers::processLightUpdatePacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundBlockUpdatePacket.class, BlockLightPacketHandlers::processBlockUpdatePacket);
+        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundLightUpdatePacket.class, PacketFeature.BLOCK_LIGHTS, BlockLightPacketHandlers::processLightUpdatePacket);
+        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundBlockUpdatePacket.class, PacketFeature.BLOCK_LIGHTS, BlockLightPacketHandlers::processBlockUpdatePacket);
     }
 
     public static void processLightUpdatePacket(DenizenNetworkManagerImpl networkManager, ClientboundLightUpdatePacket lightUpdatePacket) {
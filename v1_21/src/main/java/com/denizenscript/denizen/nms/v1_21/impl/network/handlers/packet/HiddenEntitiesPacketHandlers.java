@@ -1,7 +1,9 @@
 package com.denizenscript.denizen.nms.v1_21.impl.network.handlers.packet;
 
 import com.denizenscript.denizen.nms.v1_21.impl.network.handlers.DenizenNetworkManagerImpl;
+import com.denizenscript.denizen.nms.v1_21.impl.network.handlers.PacketContext;
 import com.denizenscript.denizen.utilities.entity.HideEntitiesHelper;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.*;
@@ -11,52 +13,42 @@ import net.minecraft.world.entity.Entity;
 public class HiddenEntitiesPacketHandlers {
 
     public static void registerHandlers() {
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundAddEntityPacket.class, HiddenEntitiesPacketHandlers::processHiddenEntitiesForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundAddExperienceOrbPacket.class, HiddenEntitiesPacketHandlers::processHiddenEntitiesForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundMoveEntityPacket.Rot.class, HiddenEntitiesPacketHandlers::processHiddenEntitiesForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundMoveEntityPacket.Pos.class, HiddenEntitiesPacketHandlers::processHiddenEntitiesForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundMoveEntityPacket.PosRot.class, HiddenEntitiesPacketHandlers::processHiddenEntitiesForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSetEntityDataPacket.class, HiddenEntitiesPacketHandlers::processHiddenEntitiesForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSetEntityMotionPacket.class, HiddenEntitiesPacketHandlers::processHiddenEntitiesForPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundTeleportEntityPacket.class, HiddenEntitiesPacketHandlers::processHiddenEntitiesForPacket);
+        registerHandler(ClientboundAddEntityPacket.class);
+        registerHandler(ClientboundAddExperienceOrbPacket.class);
+        registerHandler(ClientboundMoveEntityPacket.Rot.class);
+        registerHandler(ClientboundMoveEntityPacket.Pos.class);
+        registerHandler(ClientboundMoveEntityPacket.PosRot.class);
+        registerHandler(ClientboundSetEntityDataPacket.class);
+        registerHandler(ClientboundSetEntityMotionPacket.class);
+        registerHandler(ClientboundTeleportEntityPacket.class);
+        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundRemoveEntitiesPacket.class, PacketFeature.HIDDEN_ENTITIES, HiddenEntitiesPacketHandlers::processRemoveEntitiesPacket);
+    }
+
+    public static <T extends Packet<ClientGamePacketListener>> void registerHandler(Class<T> packetClass) {
+        DenizenNetworkManagerImpl.registerContextPacketHandler(packetClass, PacketFeature.HIDDEN_ENTITIES, HiddenEntitiesPacketHandlers::processHiddenEntitiesForPacket);
     }
 
     public static boolean isHidden(ServerPlayer player, Entity entity) {
         return entity != null && HideEntitiesHelper.playerShouldHide(player.getBukkitEntity().getUniqueId(), entity.getBukkitEntity());
     }
 
-    public static Packet<ClientGamePacketListener> processHiddenEntitiesForPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet) {
-        if (!HideEntitiesHelper.hasAnyHides()) {
-            return packet;
+    public static void processRemoveEntitiesPacket(DenizenNetworkManagerImpl networkManager, ClientboundRemoveEntitiesPacket packet) {
+        for (int id : packet.getEntityIds()) {
+            HideEntitiesHelper.forgetVerdict(networkManager.player.getUUID(), id);
         }
+    }
+
+    public static Packet<ClientGamePacketListener> processHiddenEntitiesForPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet, PacketContext context) {
         try {
-            int ider = -1;
-            Entity e = null;
-            if (packet instanceof ClientboundAddEntityPacket) {
-                ider = ((ClientboundAddEntityPacket) packet).getId();
-            }
-            else if (packet instanceof ClientboundAddExperienceOrbPacket) {
-                ider = ((ClientboundAddExperienceOrbPacket) packet).getId();
-            }
-            else if (packet instanceof ClientboundMoveEntityPacket) {
-                e = ((ClientboundMoveEntityPacket) packet).getEntity(networkManager.player.level());
-            }
-            else if (packet instanceof ClientboundSetEntityDataPacket) {
-                ider = ((ClientboundSetEntityDataPacket) packet).id();
-            }
-            else if (packet instanceof ClientboundSetEntityMotionPacket) {
-                ider = ((ClientboundSetEntityMotionPacket) packet).getId();
-            }
-            else if (packet instanceof ClientboundTeleportEntityPacket) {
-                ider = ((ClientboundTeleportEntityPacket) packet).id();
+            Entity e = context.getEntity();
+            if (e == null) {
+                return packet;
             }
-            if (e == null && ider != -1) {
-                e = networkManager.player.level().getEntity(ider);
+            if (packet instanceof ClientboundAddEntityPacket || packet instanceof ClientboundAddExperienceOrbPacket) {
+                HideEntitiesHelper.forgetVerdict(networkManager.player.getUUID(), e.getId());
             }
-            if (e != null) {
-                if (isHidden(networkManager.player, e)) {
-                    return null;
-                }
+            if (isHidden(networkManager.player, e)) {
+                return null;
             }
         }
         catch (Exception ex) {
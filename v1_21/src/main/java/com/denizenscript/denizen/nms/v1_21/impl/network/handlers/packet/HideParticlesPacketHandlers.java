@@ -2,6 +2,7 @@ package com.denizenscript.denizen.nms.v1_21.impl.network.handlers.packet;
 
 import com.denizenscript.denizen.nms.v1_21.impl.network.handlers.DenizenNetworkManagerImpl;
 import com.denizenscript.denizen.utilities.packets.HideParticles;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import net.minecraft.network.protocol.game.ClientboundLevelParticlesPacket;
 import org.bukkit.Particle;
 import org.bukkit.craftbukkit.v1_21_R3.CraftParticle;
@@ -11,13 +12,10 @@ import java.util.Set;
 public class HideParticlesPacketHandlers {
 
     public static void registerHandlers() {
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundLevelParticlesPacket.class, HideParticlesPacketHandlers::processParticlesPacket);
+        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundLevelParticlesPacket.class, PacketFeature.HIDDEN_PARTICLES, HideParticlesPacketHandlers::processParticlesPacket);
     }
 
     public static ClientboundLevelParticlesPacket processParticlesPacket(DenizenNetworkManagerImpl networkManager, ClientboundLevelParticlesPacket particlesPacket) {
-        if (HideParticles.hidden.isEmpty()) {
-            return particlesPacket;
-        }
         Set<Particle> hidden = HideParticles.hidden.get(networkManager.player.getUUID());
         if (hidden == null) {
             return particlesPacket;
@@ -2,6 +2,8 @@ package com.denizenscript.denizen.nms.v1_21.impl.network.handlers.packet;
 
 import com.denizenscript.denizen.events.player.PlayerHearsSoundScriptEvent;
 import com.denizenscript.denizen.nms.v1_21.impl.network.handlers.DenizenNetworkManagerImpl;
+import com.denizenscript.denizen.nms.v1_21.impl.network.handlers.PacketContext;
+import com.denizenscript.denizen.utilities.packets.PacketFeature;
 import net.minecraft.network.protocol.Packet;
 import net.minecraft.network.protocol.game.ClientGamePacketListener;
 import net.minecraft.network.protocol.game.ClientboundSoundEntityPacket;
@@ -12,14 +14,11 @@ import org.bukkit.Location;
 public class PlayerHearsSoundEventPacketHandlers {
 
     public static void registerHandlers() {
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSoundPacket.class, PlayerHearsSoundEventPacketHandlers::processSoundPacket);
-        DenizenNetworkManagerImpl.registerPacketHandler(ClientboundSoundEntityPacket.class, PlayerHearsSoundEventPacketHandlers::processSoundPacket);
+        DenizenNetworkManagerImpl.registerContextPacketHandler(ClientboundSoundPacket.class, PacketFeature.SOUND_EVENT, PlayerHearsSoundEventPacketHandlers::processSoundPacket);
+        DenizenNetworkManagerImpl.registerContextPacketHandler(ClientboundSoundEntityPacket.class, PacketFeature.SOUND_EVENT, PlayerHearsSoundEventPacketHandlers::processSoundPacket);
     }
 
-    public static Packet<ClientGamePacketListener> processSoundPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet) {
-        if (!PlayerHearsSoundScriptEvent.instance.eventData.isEnabled) {
-            return packet;
-        }
+    public static Packet<ClientGamePacketListener> processSoundPacket(DenizenNetworkManagerImpl networkManager, Packet<ClientGamePacketListener> packet, PacketContext context) {
         if (packet instanceof ClientboundSoundPacket) {
             ClientboundSoundPacket spacket = (ClientboundSoundPacket) packet;
             return PlayerHearsSoundScriptEvent.instance.run(networkManager.player.getBukkitEntity(), spacket.getSound().value().location().getPath(), spacket.getSource().name(),
@@ -27,7 +26,7 @@ public class PlayerHearsSoundEventPacketHandlers {
         }
         else if (packet instanceof ClientboundSoundEntityPacket) {
             ClientboundSoundEntityPacket spacket = (ClientboundSoundEntityPacket) packet;
-            Entity entity = networkManager.player.level().getEntity(spacket.getId());
+            Entity entity = context.getEntity();
             if (entity == null) {
                 return packet;
             }